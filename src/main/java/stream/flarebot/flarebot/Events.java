@@ -19,13 +19,19 @@ import net.dv8tion.jda.core.events.StatusChangeEvent;
 import net.dv8tion.jda.core.events.guild.GuildJoinEvent;
 import net.dv8tion.jda.core.events.guild.GuildLeaveEvent;
 import net.dv8tion.jda.core.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberLeaveEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleAddEvent;
+import net.dv8tion.jda.core.events.guild.member.GuildMemberRoleRemoveEvent;
+import net.dv8tion.jda.core.events.guild.update.GuildUpdateOwnerEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceJoinEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceLeaveEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceMoveEvent;
-import net.dv8tion.jda.core.events.message.guild.GenericGuildMessageEvent;
+import net.dv8tion.jda.core.events.message.MessageBulkDeleteEvent;
+import net.dv8tion.jda.core.events.message.MessageDeleteEvent;
 import net.dv8tion.jda.core.events.message.guild.GuildMessageReceivedEvent;
 import net.dv8tion.jda.core.events.message.react.MessageReactionAddEvent;
 import net.dv8tion.jda.core.events.role.RoleDeleteEvent;
+import net.dv8tion.jda.core.events.role.update.RoleUpdatePermissionsEvent;
 import net.dv8tion.jda.core.events.user.update.UserUpdateOnlineStatusEvent;
 import net.dv8tion.jda.core.exceptions.InsufficientPermissionException;
 import net.dv8tion.jda.core.hooks.ListenerAdapter;
@@ -34,30 +40,29 @@ import okhttp3.RequestBody;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.MDC;
+import stream.flarebot.flarebot.cache.MessageCache;
 import stream.flarebot.flarebot.commands.*;
 import stream.flarebot.flarebot.commands.music.*;
 import stream.flarebot.flarebot.commands.secret.update.*;
-import stream.flarebot.flarebot.database.RedisController;
 import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.metrics.MusicMetrics;
 import stream.flarebot.flarebot.mod.modlog.ModlogEvent;
 import stream.flarebot.flarebot.mod.modlog.ModlogHandler;
 import stream.flarebot.flarebot.objects.GuildWrapper;
-import stream.flarebot.flarebot.objects.PlayerCache;
 import stream.flarebot.flarebot.objects.Welcome;
+import stream.flarebot.flarebot.permissions.PermissionCache;
 import stream.flarebot.flarebot.util.Constants;
 import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.RandomUtils;
 import stream.flarebot.flarebot.util.WebUtils;
-import stream.flarebot.flarebot.util.buttons.ButtonUtil;
+import stream.flarebot.flarebot.util.buttons.ComponentRegistry;
 import stream.flarebot.flarebot.util.errorhandling.Markers;
 import stream.flarebot.flarebot.util.general.GeneralUtils;
 import stream.flarebot.flarebot.util.general.GuildUtils;
-import stream.flarebot.flarebot.util.general.VariableUtils;
 import stream.flarebot.flarebot.util.objects.ButtonGroup;
 import stream.flarebot.flarebot.util.votes.VoteUtil;
 
 import java.awt.Color;
-import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -65,9 +70,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
@@ -76,34 +78,45 @@ import java.util.stream.Collectors;
 public class Events extends ListenerAdapter {
 
     public static final ThreadGroup COMMAND_THREADS = new ThreadGroup("Command Threads");
-    private static final ExecutorService COMMAND_POOL = Executors.newFixedThreadPool(4, r ->
-            new Thread(COMMAND_THREADS, r, "Command Pool-" + COMMAND_THREADS.activeCount()));
     private static final List<Long> removedByMe = new ArrayList<>();
 
     private final Logger LOGGER = FlareBot.getLog(this.getClass());
-    private final Pattern multiSpace = Pattern.compile(" {2,}");
     private final Pattern rip = Pattern.compile("\\brip( [a-zA-Z0-9]+)?\\b", Pattern.CASE_INSENSITIVE);
 
     private FlareBot flareBot;
 
-    private Map<String, Integer> spamMap = new ConcurrentHashMap<>();
+    private final SpamDetector spamDetector = new SpamDetector(TimeUnit.SECONDS.toMillis(3));
 
     private final Map<Integer, Long> shardEventTime = new HashMap<>();
     private final AtomicInteger commandCounter = new AtomicInteger(0);
 
-    private Map<Long, Double> maxButtonClicksPerSec = new HashMap<>();
-    private Map<Long, List<Double>> buttonClicksPerSec = new HashMap<>();
+
+    private final CommandExecutor commandExecutor;
 
     Events(FlareBot bot) {
         this.flareBot = bot;
+        this.commandExecutor = new CommandExecutor(COMMAND_THREADS, FlareBot.getConfig().getBoolean("bot.virtualThreads")
+                .isPresent() && FlareBot.getConfig().getBoolean("bot.virtualThreads").get());
+    }
+
+    @Override
+    public void onMessageDelete(MessageDeleteEvent event) {
+        ComponentRegistry.remove(event.getMessageIdLong());
+    }
+
+    @Override
+    public void onMessageBulkDelete(MessageBulkDeleteEvent event) {
+        for (String id : event.getMessageIds())
+            ComponentRegistry.remove(Long.parseLong(id));
     }
 
     @Override
     public void onMessageReactionAdd(MessageReactionAddEvent event) {
         if (!event.getGuild().getSelfMember().hasPermission(event.getTextChannel(), Permission.MESSAGE_READ)) return;
         if (event.getUser().isBot()) return;
-        if (ButtonUtil.isButtonMessage(event.getMessageId())) {
-            for (ButtonGroup.Button button : ButtonUtil.getButtonGroup(event.getMessageId()).getButtons()) {
+        ButtonGroup buttonGroup = ComponentRegistry.getButtonGroup(event.getMessageIdLong());
+        if (buttonGroup != null) {
+            for (ButtonGroup.Button button : buttonGroup.getButtons()) {
                 if ((event.getReactionEmote() != null && event.getReactionEmote().isEmote()
                         && event.getReactionEmote().getIdLong() == button.getEmoteId())
                         || (button.getUnicode() != null && event.getReactionEmote().getName().equals(button.getUnicode()))) {
@@ -120,12 +133,10 @@ public class Events extends ListenerAdapter {
                     } catch (InsufficientPermissionException e) {
 
                     }
-                    button.onClick(ButtonUtil.getButtonGroup(event.getMessageId()).getOwner(), event.getUser());
+                    if (!ComponentRegistry.tryClick(event.getUser().getIdLong())) return;
+                    button.onClick(buttonGroup.getOwner(), event.getUser());
                     String emote = event.getReactionEmote() != null ? event.getReactionEmote().getName() + "(" + event.getReactionEmote().getId() + ")" : button.getUnicode();
-                    Metrics.buttonsPressed.labels(emote, ButtonUtil.getButtonGroup(event.getMessageId()).getName()).inc();
-                    if (!event.getGuild().getSelfMember().hasPermission(Permission.MESSAGE_MANAGE)) {
-                        return;
-                    }
+                    Metrics.buttonsPressed.labels(emote, buttonGroup.getName()).inc();
                     return;
                 }
             }
@@ -154,8 +165,8 @@ public class Events extends ListenerAdapter {
     @Override
     public void onGuildMemberJoin(GuildMemberJoinEvent event) {
         if (event.getMember().getUser().isBot() || event.getMember().getUser().isFake()) return;
-        PlayerCache cache = flareBot.getPlayerCache(event.getMember().getUser().getId());
-        cache.setLastSeen(LocalDateTime.now());
+        spamDetector.invalidate(event.getGuild().getIdLong());
+        flareBot.getActivityTracker().onSeen(event.getMember().getUser().getIdLong());
         GuildWrapper wrapper = FlareBotManager.instance().getGuild(event.getGuild().getId());
         if (wrapper == null) return;
         if (wrapper.isBlocked()) return;
@@ -174,40 +185,14 @@ public class Events extends ListenerAdapter {
                         return;
                     }
                     if (welcome.isGuildEnabled()) {
-                        String guildMsg = VariableUtils.parseVariables(welcome.getRandomGuildMessage(), wrapper, null, event.getUser());
-                        // Deprecated values
-                        guildMsg = guildMsg
-                                .replace("%user%", event.getMember().getUser().getName())
-                                .replace("%guild%", event.getGuild().getName())
-                                .replace("%mention%", event.getMember().getUser().getAsMention());
+                        String guildMsg = welcome.getRandomGuildTemplate().render(wrapper, null, event.getUser(), null, null);
                         channel.sendMessage(guildMsg).queue();
-
-                        if (guildMsg.contains("%user%") || guildMsg.contains("%guild%") || guildMsg.contains("%mention%")) {
-                            MessageUtils.sendPM(event.getGuild().getOwner().getUser(),
-                                    "Your guild welcome message contains deprecated variables! " +
-                                            "Please check the docs at the link below for a list of all the " +
-                                            "variables you can use!\n" +
-                                            "https://docs.flarebot.stream/variables");
-                        }
                     }
                 }
                 if (welcome.isDmEnabled()) {
                     if (event.getMember().getUser().isBot()) return; // We can't DM other bots.
-                    String dmMsg = VariableUtils.parseVariables(welcome.getRandomDmMessage(), wrapper, null, event.getUser());
-                    // Deprecated values
-                    dmMsg = dmMsg
-                            .replace("%user%", event.getMember().getUser().getName())
-                            .replace("%guild%", event.getGuild().getName())
-                            .replace("%mention%", event.getMember().getUser().getAsMention());
+                    String dmMsg = welcome.getRandomDmTemplate().render(wrapper, null, event.getUser(), null, null);
                     MessageUtils.sendPM(event.getMember().getUser(), dmMsg);
-
-                    if (dmMsg.contains("%user%") || dmMsg.contains("%guild%") || dmMsg.contains("%mention%")) {
-                        MessageUtils.sendPM(event.getGuild().getOwner().getUser(),
-                                "Your DM welcome message contains deprecated variables! " +
-                                        "Please check the docs at the link below for a list of all the " +
-                                        "variables you can use!\n" +
-                                        "https://docs.flarebot.stream/variables");
-                    }
                 }
             } else welcome.setGuildEnabled(false);
         }
@@ -271,6 +256,8 @@ public class Events extends ListenerAdapter {
 
     @Override
     public void onGuildLeave(GuildLeaveEvent event) {
+        MusicMetrics.onDisconnected(event.getGuild().getIdLong());
+        spamDetector.invalidate(event.getGuild().getIdLong());
         Constants.getGuildLogChannel().sendMessage(new EmbedBuilder()
                 .setColor(new Color(244, 23, 23))
                 .setThumbnail(event.getGuild().getIconUrl())
@@ -285,6 +272,8 @@ public class Events extends ListenerAdapter {
 
     @Override
     public void onGuildVoiceJoin(GuildVoiceJoinEvent event) {
+        if (event.getMember().getUser().getIdLong() == event.getJDA().getSelfUser().getIdLong())
+            MusicMetrics.onConnected(event.getGuild().getIdLong());
         if (event.getMember().getUser().equals(event.getJDA().getSelfUser()) && flareBot.getMusicManager()
                 .hasPlayer(event.getGuild().getId())) {
             flareBot.getMusicManager().getPlayer(event.getGuild().getId()).setPaused(false);
@@ -303,6 +292,7 @@ public class Events extends ListenerAdapter {
     @Override
     public void onGuildVoiceLeave(GuildVoiceLeaveEvent event) {
         if (event.getMember().getUser().getIdLong() == event.getJDA().getSelfUser().getIdLong()) {
+            MusicMetrics.onDisconnected(event.getGuild().getIdLong());
             if (flareBot.getMusicManager().hasPlayer(event.getGuild().getId())) {
                 flareBot.getMusicManager().getPlayer(event.getGuild().getId()).setPaused(true);
             }
@@ -337,14 +327,20 @@ public class Events extends ListenerAdapter {
 
     @Override
     public void onGuildMessageReceived(GuildMessageReceivedEvent event) {
-        PlayerCache cache = flareBot.getPlayerCache(event.getAuthor().getId());
-        cache.setLastMessage(LocalDateTime.from(event.getMessage().getCreationTime()));
-        cache.setLastSeen(LocalDateTime.now());
-        cache.setLastSpokeGuild(event.getGuild().getId());
+        flareBot.getActivityTracker().onMessage(event.getAuthor().getIdLong(), event.getGuild().getIdLong(),
+                event.getMessage().getCreationTime().toInstant().toEpochMilli());
 
         if (event.getAuthor().isBot()) return;
-        String message = multiSpace.matcher(event.getMessage().getContentRaw()).replaceAll(" ");
-        if (message.startsWith("" + FlareBotManager.instance().getGuild(getGuildId(event)).getPrefix())) {
+        GuildWrapper wrapper = FlareBotManager.instance().getGuild(event.getGuild().getIdLong());
+        if (wrapper == null) return;
+        char prefix = wrapper.getPrefix();
+        String message = event.getMessage().getContentRaw();
+        // Cheap check on the first character, most messages are not commands and never get tokenized.
+        if (!message.isEmpty() && message.charAt(0) == prefix) {
+            CommandTokenizer tokenizer = new CommandTokenizer(message);
+            Command cmd = FlareBot.getCommandManager().getCommand(tokenizer.getCommand(), event.getAuthor());
+            if (cmd == null) return;
+
             List<Permission> perms = event.getChannel().getGuild().getSelfMember().getPermissions(event.getChannel());
             if (!perms.contains(Permission.ADMINISTRATOR)) {
                 if (!perms.contains(Permission.MESSAGE_WRITE)) {
@@ -357,26 +353,16 @@ public class Events extends ListenerAdapter {
                     return;
                 }
             }
-
-            String command = message.substring(1);
-            String[] args = new String[0];
-            if (message.contains(" ")) {
-                command = command.substring(0, message.indexOf(" ") - 1);
-                args = message.substring(message.indexOf(" ") + 1).split(" ");
-            }
-            Command cmd = FlareBot.getCommandManager().getCommand(command, event.getAuthor());
-            if (cmd != null)
-                handleCommand(event, cmd, args);
+            handleCommand(event, wrapper, cmd, tokenizer.getArgs());
         } else {
-            if (FlareBotManager.instance().getGuild(getGuildId(event)).getPrefix() != Constants.COMMAND_CHAR &&
+            if (prefix != Constants.COMMAND_CHAR &&
                     (message.startsWith("_prefix")) || message.startsWith(event.getGuild().getSelfMember().getAsMention())) {
                 event.getChannel().sendMessage(MessageUtils.getEmbed(event.getAuthor())
-                        .setDescription("The server prefix is `" + FlareBotManager
-                                .instance().getGuild(getGuildId(event)).getPrefix() + "`")
+                        .setDescription("The server prefix is `" + prefix + "`")
                         .build()).queue();
             }
             if (!message.isEmpty()) {
-                RedisController.set(event.getMessageId(), GeneralUtils.getRedisMessageJson(event.getMessage()), "nx", "ex", 86400);
+                MessageCache.getInstance().put(event.getMessage());
             }
 
             // Random fun stuff
@@ -403,7 +389,7 @@ public class Events extends ListenerAdapter {
     @Override
     public void onUserUpdateOnlineStatus(UserUpdateOnlineStatusEvent event) {
         if (event.getOldOnlineStatus() == OnlineStatus.OFFLINE)
-            flareBot.getPlayerCache(event.getUser().getId()).setLastSeen(LocalDateTime.now());
+            flareBot.getActivityTracker().onSeen(event.getUser().getIdLong());
     }
 
     @Override
@@ -432,17 +418,44 @@ public class Events extends ListenerAdapter {
                     .getClientCloseFrame().getCloseReason()));
     }
 
+    @Override
+    public void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event) {
+        PermissionCache.invalidateMember(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberRoleRemove(GuildMemberRoleRemoveEvent event) {
+        PermissionCache.invalidateMember(event.getGuild().getIdLong(), event.getUser().getIdLong());
+    }
+
+    @Override
+    public void onGuildMemberLeave(GuildMemberLeaveEvent event) {
+        PermissionCache.invalidateMember(event.getGuild().getIdLong(), event.getUser().getIdLong());
+        if (!event.getUser().isBot())
+            spamDetector.invalidate(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onRoleUpdatePermissions(RoleUpdatePermissionsEvent event) {
+        PermissionCache.invalidateGuild(event.getGuild().getIdLong());
+    }
+
+    @Override
+    public void onGuildUpdateOwner(GuildUpdateOwnerEvent event) {
+        PermissionCache.invalidateGuild(event.getGuild().getIdLong());
+    }
+
     @Override
     public void onRoleDelete(RoleDeleteEvent event) {
+        PermissionCache.invalidateGuild(event.getGuild().getIdLong());
         if (FlareBotManager.instance().getGuild(event.getGuild().getId()) == null) return;
         if (FlareBotManager.instance().getGuild(event.getGuild().getId()).getSelfAssignRoles().contains(event.getRole().getId())) {
             FlareBotManager.instance().getGuild(event.getGuild().getId()).getSelfAssignRoles().remove(event.getRole().getId());
         }
     }
 
-    private void handleCommand(GuildMessageReceivedEvent event, Command cmd, String[] args) {
+    private void handleCommand(GuildMessageReceivedEvent event, GuildWrapper guild, Command cmd, String[] args) {
         Metrics.commandsReceived.labels(cmd.getClass().getSimpleName()).inc();
-        GuildWrapper guild = flareBot.getManager().getGuild(event.getGuild().getId());
 
         if (cmd.getType().isInternal()) {
             if (GeneralUtils.canRunInternalCommand(cmd.getType(), event.getAuthor())) {
@@ -546,32 +559,21 @@ public class Events extends ListenerAdapter {
             message.delete().queue();
     }
 
-    private String getGuildId(GenericGuildMessageEvent e) {
-        return e.getChannel().getGuild() != null ? e.getChannel().getGuild().getId() : null;
-    }
-
     private void handleSpamDetection(GuildMessageReceivedEvent event, GuildWrapper guild) {
-        if (spamMap.containsKey(event.getGuild().getId())) {
-            int messages = spamMap.get(event.getGuild().getId());
-            double allowed = Math.floor(Math.sqrt(GuildUtils.getGuildUserCount(event.getGuild()) / 2.5));
-            allowed = allowed == 0 ? 1 : allowed;
-            if (messages > allowed) {
-                if (!guild.isBlocked()) {
-                    MessageUtils.sendErrorMessage("We detected command spam in this guild. No commands will be able to " +
-                            "be run in this guild for a little bit.", event.getChannel());
-                    guild.addBlocked("Command spam", System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5));
-                    Metrics.blocksGivenOut.labels(guild.getGuildId()).inc();
-                }
-            } else {
-                spamMap.put(event.getGuild().getId(), messages + 1);
-            }
-        } else {
-            spamMap.put(event.getGuild().getId(), 1);
+        if (spamDetector.tryAcquire(event.getGuild().getIdLong(),
+                () -> SpamDetector.getGuildLimit(GuildUtils.getGuildUserCount(event.getGuild()))))
+            return;
+        if (!guild.isBlocked()) {
+            MessageUtils.sendErrorMessage("We detected command spam in this guild. No commands will be able to " +
+                    "be run in this guild for a little bit.", event.getChannel());
+            guild.addBlocked("Command spam", System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(5));
+            Metrics.blocksGivenOut.inc();
+            Metrics.blockedGuilds.offer(event.getGuild().getIdLong());
         }
     }
 
     private void dispatchCommand(Command cmd, String[] args, GuildMessageReceivedEvent event, GuildWrapper guild) {
-        COMMAND_POOL.submit(() -> {
+        boolean queued = commandExecutor.submit(event.getGuild().getIdLong(), cmd, () -> {
             Map<String, String> mdcContext = (MDC.getCopyOfContextMap() == null ? new HashMap<>() : MDC.getCopyOfContextMap());
             mdcContext.put("command", cmd.getCommand());
             mdcContext.put("args", Arrays.toString(args).replace("\n", "\\n"));
@@ -588,7 +590,7 @@ public class Events extends ListenerAdapter {
                     .put("guildId", guild.getGuildId()));*/
             commandCounter.incrementAndGet();
             try {
-                Histogram.Timer executionTimer = Metrics.commandExecutionTime.labels(cmd.getClass().getSimpleName()).startTimer();
+                Histogram.Timer executionTimer = Metrics.commandExecutionTime.labels(cmd.getType().name().toLowerCase()).startTimer();
                 cmd.onCommand(event.getAuthor(), guild, event.getChannel(), event.getMessage(), args, event
                         .getMember());
                 executionTimer.observeDuration();
@@ -620,6 +622,14 @@ public class Events extends ListenerAdapter {
                 removedByMe.add(event.getMessageIdLong());
             }
         });
+        if (!queued)
+            MessageUtils.sendAutoDeletedMessage(MessageUtils.getEmbed(event.getAuthor()).setColor(Color.red)
+                    .setDescription("This server is running too many commands at once, please wait a moment!")
+                    .build(), 5000, event.getChannel());
+    }
+
+    public CommandExecutor getCommandExecutor() {
+        return commandExecutor;
     }
 
     public int getCommandCount() {
@@ -635,19 +645,7 @@ public class Events extends ListenerAdapter {
         return this.shardEventTime;
     }
 
-    public Map<String, Integer> getSpamMap() {
-        return spamMap;
-    }
-
     public List<Long> getRemovedByMeList() {
         return removedByMe;
     }
-
-    public Map<Long, Double> getMaxButtonClicksPerSec() {
-        return maxButtonClicksPerSec;
-    }
-
-    public Map<Long, List<Double>> getButtonClicksPerSec() {
-        return buttonClicksPerSec;
-    }
 }
@@ -31,8 +31,6 @@ import okhttp3.ConnectionPool;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
-import org.eclipse.jetty.util.ConcurrentHashSet;
-import org.joda.time.DateTime;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import org.slf4j.Logger;
@@ -45,15 +43,16 @@ import stream.flarebot.flarebot.analytics.GuildCountAnalytics;
 import stream.flarebot.flarebot.api.ApiRequester;
 import stream.flarebot.flarebot.api.ApiRoute;
 import stream.flarebot.flarebot.audio.PlayerListener;
+import stream.flarebot.flarebot.cache.UserActivityTracker;
 import stream.flarebot.flarebot.commands.*;
 import stream.flarebot.flarebot.database.CassandraController;
 import stream.flarebot.flarebot.database.RedisController;
 import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.metrics.MusicMetrics;
 import stream.flarebot.flarebot.mod.nino.NINOListener;
 import stream.flarebot.flarebot.music.QueueListener;
-import stream.flarebot.flarebot.objects.PlayerCache;
 import stream.flarebot.flarebot.scheduler.FlareBotTask;
-import stream.flarebot.flarebot.scheduler.FutureAction;
+import stream.flarebot.flarebot.scheduler.FutureActionLoader;
 import stream.flarebot.flarebot.scheduler.Scheduler;
 import stream.flarebot.flarebot.tasks.VoiceChannelCleanup;
 import stream.flarebot.flarebot.util.Constants;
@@ -61,6 +60,7 @@ import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.MigrationHandler;
 import stream.flarebot.flarebot.util.ShardUtils;
 import stream.flarebot.flarebot.util.WebUtils;
+import stream.flarebot.flarebot.util.buttons.ComponentRegistry;
 import stream.flarebot.flarebot.util.general.GeneralUtils;
 import stream.flarebot.flarebot.web.ApiFactory;
 import stream.flarebot.flarebot.web.DataInterceptor;
@@ -91,7 +91,6 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
@@ -122,7 +121,7 @@ public class FlareBot {
     }
 
     private FlareBotManager manager;
-    private Map<String, PlayerCache> playerCache = new ConcurrentHashMap<>();
+    private UserActivityTracker activityTracker;
     private Events events;
     private ShardManager shardManager;
     private PlayerManager musicManager;
@@ -138,7 +137,6 @@ public class FlareBot {
 
     private AnalyticsHandler analyticsHandler;
 
-    private final Set<FutureAction> futureActions = new ConcurrentHashSet<>();
 
     public static void main(String[] args) {
         Spark.port(8080);
@@ -339,6 +337,8 @@ public class FlareBot {
             LOGGER.warn("Failed RestAction - " + t.getMessage());
         };
 
+        activityTracker = new UserActivityTracker(config.getLong("bot.activityResolution").isPresent()
+                ? config.getLong("bot.activityResolution").getAsLong() : TimeUnit.MINUTES.toMillis(1));
         events = new Events(this);
         LOGGER.info("Starting builders");
 
@@ -452,33 +452,7 @@ public class FlareBot {
 
     private void loadFutureTasks() {
         if (FlareBot.testBot) return;
-        final int[] loaded = {0};
-        CassandraController.runTask(session -> {
-            ResultSet set = session.execute("SELECT * FROM flarebot.future_tasks");
-            Row row;
-            while ((row = set.one()) != null) {
-                FutureAction fa =
-                        new FutureAction(row.getLong("guild_id"), row.getLong("channel_id"), row.getLong("responsible"),
-                                row.getLong("target"), row.getString("content"), new DateTime(row.getTimestamp("expires_at")),
-                                new DateTime(row.getTimestamp("created_at")),
-                                FutureAction.Action.valueOf(row.getString("action").toUpperCase()));
-
-                try {
-                    if (new DateTime().isAfter(fa.getExpires()))
-                        fa.execute();
-                    else {
-                        fa.queue();
-                        loaded[0]++;
-                    }
-                } catch (NullPointerException e) {
-                    LOGGER.error("Failed to execute/queue future task"
-                            + "\nAction: " + fa.getAction() + "\nResponsible: " + fa.getResponsible()
-                            + "\nTarget: " + fa.getTarget() + "\nContent: " + fa.getContent(), e);
-                }
-            }
-        });
-
-        LOGGER.info("Loaded " + loaded[0] + " future tasks");
+        FutureActionLoader.start();
     }
 
     // TODO: Spread this out a little so we don't just burst.
@@ -647,12 +621,15 @@ public class FlareBot {
         Constants.getImportantLogChannel().sendMessage("Average load time of this session: " + manager.getGuildWrapperLoader().getLoadTimes()
                 .stream().mapToLong(v -> v).average().orElse(0) + "\nTotal loads: " + manager.getGuildWrapperLoader().getLoadTimes().size())
                 .complete();
-        for (ScheduledFuture<?> scheduledFuture : Scheduler.getTasks().values())
-            scheduledFuture.cancel(false); // No tasks in theory should block this or cause issues. We'll see
+        Scheduler.cancelAll(); // No tasks in theory should block this or cause issues. We'll see
         for (JDA client : shardManager.getShards())
             client.removeEventListener(events); //todo: Make a replacement for the array
+        events.getCommandExecutor().shutdown();
         sendData();
         manager.getGuilds().invalidateAll();
+        manager.getGuildSaver().shutdown();
+        if (RedisController.getWriter() != null)
+            RedisController.getWriter().shutdown();
         shardManager.shutdown();
         LOGGER.info("Finished saving!");
         for (JDA client : shardManager.getShards())
@@ -689,9 +666,8 @@ public class FlareBot {
         return this.manager;
     }
 
-    public PlayerCache getPlayerCache(String userId) {
-        this.playerCache.computeIfAbsent(userId, k -> new PlayerCache(userId, null, null, null));
-        return this.playerCache.get(userId);
+    public UserActivityTracker getActivityTracker() {
+        return this.activityTracker;
     }
 
     public boolean isTestBot() {
@@ -774,13 +750,6 @@ public class FlareBot {
             }
         }.repeat(10, TimeUnit.MINUTES.toMillis(10));
 
-        new FlareBotTask("spam" + System.currentTimeMillis()) {
-            @Override
-            public void run() {
-                events.getSpamMap().clear();
-            }
-        }.repeat(TimeUnit.SECONDS.toMillis(3), TimeUnit.SECONDS.toMillis(3));
-
         new FlareBotTask("DeadShard-Checker") {
             @Override
             public void run() {
@@ -822,6 +791,20 @@ public class FlareBot {
             }
         }.repeat(0, TimeUnit.SECONDS.toMillis(30));
 
+        new FlareBotTask("MusicMetrics-Reconcile") {
+            @Override
+            public void run() {
+                MusicMetrics.reconcile();
+            }
+        }.repeat(TimeUnit.MINUTES.toMillis(1), TimeUnit.MINUTES.toMillis(5));
+
+        new FlareBotTask("ComponentCleanup") {
+            @Override
+            public void run() {
+                ComponentRegistry.cleanUp();
+            }
+        }.repeat(0, TimeUnit.MINUTES.toMillis(1));
+
         /*new FlareBotTask("ActivityChecker") {
             @Override
             public void run() {
@@ -876,7 +859,4 @@ public class FlareBot {
         });
     }
 
-    public Set<FutureAction> getFutureActions() {
-        return futureActions;
-    }
 }
@@ -1,29 +1,28 @@
 package stream.flarebot.flarebot;
 
-import com.datastax.driver.core.PreparedStatement;
-import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.Row;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.LoadingCache;
-import com.google.common.cache.RemovalListener;
 import com.google.common.util.concurrent.Runnables;
-import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import net.dv8tion.jda.core.entities.TextChannel;
 import net.dv8tion.jda.core.entities.User;
 import org.slf4j.Logger;
 import stream.flarebot.flarebot.annotations.DoNotUse;
+import stream.flarebot.flarebot.cache.GuildCache;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.database.CassandraController;
+import stream.flarebot.flarebot.database.CassandraStatement;
+import stream.flarebot.flarebot.database.GuildSaver;
+import stream.flarebot.flarebot.database.GuildStorage;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.objects.GuildWrapperLoader;
 import stream.flarebot.flarebot.util.ConfirmUtil;
 import stream.flarebot.flarebot.util.MessageUtils;
+import stream.flarebot.flarebot.util.general.GeneralUtils;
 import stream.flarebot.flarebot.util.objects.RunnableWrapper;
 
 public class FlareBotManager {
@@ -38,21 +37,29 @@ public class FlareBotManager {
     private Map<Long, Long> lastActive = new ConcurrentHashMap<>();
     private GuildWrapperLoader guildWrapperLoader = new GuildWrapperLoader();
 
-    private LoadingCache<String, GuildWrapper> guilds;
+    private GuildCache guilds;
     private final long GUILD_EXPIRE = TimeUnit.MINUTES.toMillis(15);
     private final long INACTIVITY_CHECK = TimeUnit.MINUTES.toMillis(2);
 
     public final String GUILD_DATA_TABLE;
 
-    private PreparedStatement saveGuildStatement;
-    private PreparedStatement loadPlaylistStatement;
-    private PreparedStatement savePlaylistStatement;
-    private PreparedStatement insertPlaylistStatement;
+    private GuildStorage guildStorage;
+    private GuildSaver guildSaver;
+    private final CassandraStatement loadPlaylistStatement = CassandraController.register(
+            new CassandraStatement("playlist_load", "SELECT songs FROM flarebot.playlist " +
+                    "WHERE playlist_name = ? AND guild_id = ?").setIdempotent(true));
+    private final CassandraStatement selectPlaylistStatement = CassandraController.register(
+            new CassandraStatement("playlist_select", "SELECT * FROM flarebot.playlist " +
+                    "WHERE playlist_name = ? AND guild_id = ?").setIdempotent(true));
+    private final CassandraStatement insertPlaylistStatement = CassandraController.register(
+            new CassandraStatement("playlist_insert", "INSERT INTO flarebot.playlist" +
+                    " (playlist_name, guild_id, owner, songs, scope, times_played) VALUES (?, ?, ?, ?, ?, ?)"));
 
     public FlareBotManager() {
         instance = this;
         GUILD_DATA_TABLE = (FlareBot.instance().isTestBot() ? "flarebot.guild_data_test" : "flarebot.guild_data");
         FlareBot.LOGGER.info("Using " + (FlareBot.instance().isTestBot() ? "test bot data" : "production bot data"));
+        guildStorage = new GuildStorage(GUILD_DATA_TABLE);
     }
 
     public static FlareBotManager instance() {
@@ -61,12 +68,13 @@ public class FlareBotManager {
 
     public void executeCreations() {
         // Note to self: Figure out a way to order this but where I can still update the damn last_retrieved key
-        CassandraController.executeAsync("CREATE TABLE IF NOT EXISTS " + GUILD_DATA_TABLE + " (" +
+        CassandraController.execute("CREATE TABLE IF NOT EXISTS " + GUILD_DATA_TABLE + " (" +
                 "guild_id varchar, " +
                 "data text, " +
                 "last_retrieved timestamp, " +
                 "PRIMARY KEY(guild_id))");
-        CassandraController.executeAsync("CREATE TABLE IF NOT EXISTS flarebot.playlist (" +
+        guildStorage.executeCreations();
+        CassandraController.execute("CREATE TABLE IF NOT EXISTS flarebot.playlist (" +
                 "playlist_name varchar, " +
                 "guild_id varchar, " +
                 "owner varchar, " +
@@ -79,7 +87,7 @@ public class FlareBotManager {
         //"WITH CLUSTERING ORDER BY (times_played DESC)");
 
         // Also used in FutureAction - Make sure to update if changes are done.
-        CassandraController.executeAsync("CREATE TABLE IF NOT EXISTS future_tasks (" +
+        CassandraController.execute("CREATE TABLE IF NOT EXISTS future_tasks (" +
                 "guild_id bigint, " +
                 "channel_id bigint, " +
                 "responsible bigint, " +
@@ -89,103 +97,103 @@ public class FlareBotManager {
                 "created_at timestamp, " +
                 "action varchar, " +
                 "PRIMARY KEY(guild_id, channel_id, created_at))");
+        // The same tasks by the hour they are due and the hours which have tasks, see FutureActionLoader.
+        CassandraController.execute("CREATE TABLE IF NOT EXISTS future_tasks_due (" +
+                "bucket bigint, " +
+                "guild_id bigint, " +
+                "channel_id bigint, " +
+                "responsible bigint, " +
+                "target bigint, " +
+                "content text, " +
+                "expires_at timestamp, " +
+                "created_at timestamp, " +
+                "action varchar, " +
+                "PRIMARY KEY(bucket, expires_at, guild_id, channel_id, created_at))");
+        CassandraController.execute("CREATE TABLE IF NOT EXISTS future_task_buckets (" +
+                "id int, " +
+                "bucket bigint, " +
+                "PRIMARY KEY(id, bucket))");
+
+        // Tables exist now, prepare everything which has been registered.
+        CassandraController.prepareAll();
 
         initGuildSaving();
     }
 
     private void initGuildSaving() {
-        guilds = CacheBuilder.newBuilder()
-                .expireAfterAccess(GUILD_EXPIRE, TimeUnit.MILLISECONDS)
-                .removalListener((RemovalListener<String, GuildWrapper>) removalNotification -> saveGuild(removalNotification.getKey(), removalNotification.getValue(), -1))
-                .build(guildWrapperLoader);
+        if (guildSaver == null)
+            guildSaver = new GuildSaver(guildStorage);
+        guilds = new GuildCache(guildWrapperLoader, GUILD_EXPIRE, removalNotification ->
+                saveGuild(String.valueOf(removalNotification.getKey()), removalNotification.getValue(), -1));
     }
 
     // Do not use this method!
     @DoNotUse(expressUse = "GuildCommand save")
     public void saveGuild(String guildId, GuildWrapper guildWrapper, final long last_retrieved) {
-        long last_r = (last_retrieved == -1 ? System.currentTimeMillis() : last_retrieved);
-        CassandraController.runTask(session -> {
-            if (saveGuildStatement == null) saveGuildStatement = session.prepare("UPDATE " + GUILD_DATA_TABLE
-                    + " SET last_retrieved = ?, data = ? WHERE guild_id = ?");
-            session.executeAsync(saveGuildStatement.bind()
-                    .setTimestamp(0, new Date(last_r))
-                    .setString(1, FlareBot.GSON.toJson(guildWrapper)).setString(2, guildId));
-        });
-        LOGGER.debug("Guild " + guildId + "'s data got saved! Last retrieved: " + last_r
-                + " (" + new Date(last_r) + ") - " + guilds.size() + " currently loaded.");
+        guildSaver.save(Long.parseLong(guildId), guildWrapper, last_retrieved);
+        LOGGER.debug("Guild " + guildId + "'s data got queued for saving! " + guildSaver.getPending()
+                + " pending - " + guilds.size() + " currently loaded.");
     }
 
     public void savePlaylist(Command command, TextChannel channel, String ownerId, boolean overwriteAllowed, String name, List<String> songs) {
-        CassandraController.runTask(session -> {
-            if (savePlaylistStatement == null)
-                savePlaylistStatement = session.prepare("SELECT * FROM flarebot.playlist " +
-                        "WHERE playlist_name = ? AND guild_id = ?");
-
-            ResultSet set =
-                    session.execute(savePlaylistStatement.bind().setString(0, name).setString(1, channel.getGuild().getId()));
+        CassandraController.query(selectPlaylistStatement, name, channel.getGuild().getId()).thenCompose(set -> {
             if (set.one() != null) {
-                if (ConfirmUtil.checkExists(ownerId, command.getClass())) {
+                if (ConfirmUtil.checkExists(Long.parseLong(ownerId), command.getClass())) {
                     MessageUtils.sendWarningMessage("Overwriting playlist!", channel);
                 } else if (!overwriteAllowed) {
                     MessageUtils.sendErrorMessage("That name is already taken! You need the `flarebot.queue.save.overwrite` permission to overwrite", channel);
-                    return;
+                    return CompletableFuture.<Void>completedFuture(null);
                 } else {
                     MessageUtils.sendErrorMessage("That name is already taken! Do this again within 1 minute to overwrite!", channel);
-                    ConfirmUtil.pushAction(ownerId, new RunnableWrapper(Runnables.doNothing(), command.getClass()));
-                    return;
+                    ConfirmUtil.pushAction(Long.parseLong(ownerId), new RunnableWrapper(Runnables.doNothing(), command.getClass()));
+                    return CompletableFuture.<Void>completedFuture(null);
                 }
             }
-            if (insertPlaylistStatement == null)
-                insertPlaylistStatement = session.prepare("INSERT INTO flarebot.playlist" +
-                        " (playlist_name, guild_id, owner, songs, scope, times_played) VALUES (?, ?, ?, ?, ?, ?)");
-
-            session.execute(insertPlaylistStatement.bind().setString(0, name).setString(1, channel.getGuild().getId())
-                    .setString(2, ownerId).setList(3, songs).setString(4, "local").setInt(5, 0));
-            channel.sendMessage(MessageUtils.getEmbed(Getters.getUserById(ownerId))
-                    .setDescription("Successfully saved the playlist: " + MessageUtils.escapeMarkdown(name)).build()).queue();
+            return CassandraController.query(insertPlaylistStatement, name, channel.getGuild().getId(), ownerId, songs, "local", 0)
+                    .thenRun(() -> channel.sendMessage(MessageUtils.getEmbed(Getters.getUserById(ownerId))
+                            .setDescription("Successfully saved the playlist: " + MessageUtils.escapeMarkdown(name))
+                            .build()).queue());
+        }).exceptionally(t -> {
+            LOGGER.error("Failed to save playlist " + name + " in guild " + channel.getGuild().getId(), t);
+            MessageUtils.sendErrorMessage("Failed to save the playlist! Please try again later.", channel);
+            return null;
         });
     }
 
-    public ArrayList<String> loadPlaylist(TextChannel channel, User sender, String name) {
-        final ArrayList<String> list = new ArrayList<>();
-        CassandraController.runTask(session -> {
-            if (loadPlaylistStatement == null) loadPlaylistStatement = session.prepare("SELECT songs FROM " +
-                    "flarebot.playlist WHERE playlist_name = ? AND guild_id = ?");
-
-            ResultSet set =
-                    session.execute(loadPlaylistStatement.bind().setString(0, name).setString(1, channel.getGuild().getId()));
+    public CompletableFuture<List<String>> loadPlaylist(TextChannel channel, User sender, String name) {
+        return CassandraController.query(loadPlaylistStatement, name, channel.getGuild().getId()).thenApply(set -> {
             Row row = set.one();
-            if (row != null) {
-                list.addAll(row.getList("songs", String.class));
-            } else
-                channel.sendMessage(MessageUtils.getEmbed(sender)
-                        .setDescription("That playlist does not exist!").build()).queue();
+            if (row != null)
+                return row.getList("songs", String.class);
+            channel.sendMessage(MessageUtils.getEmbed(sender)
+                    .setDescription("That playlist does not exist!").build()).queue();
+            return Collections.emptyList();
+        }).exceptionally(t -> {
+            LOGGER.error("Failed to load playlist " + name + " in guild " + channel.getGuild().getId(), t);
+            MessageUtils.sendErrorMessage("Failed to load the playlist! Please try again later.", channel, sender);
+            return Collections.emptyList();
         });
-        return list;
     }
 
-    public synchronized GuildWrapper getGuild(String id) {
+    public GuildWrapper getGuild(String id) {
+        long guildId = GeneralUtils.getLong(id, -1);
+        return guildId == -1 ? null : getGuild(guildId);
+    }
+
+    public GuildWrapper getGuild(long id) {
         if (guilds == null) return null; //This is if it's ran before even being loaded
-        try {
-            return guilds.get(id);
-        } catch (ExecutionException e) {
-            LOGGER.error("Failed to load guild from cache!", e);
-            return null;
-        }
+        return guilds.get(id);
     }
 
     public GuildWrapper getGuildNoCache(String id) {
         if (guilds == null) return null; //This is if it's ran before even being loaded
-        guilds.invalidate(id);
-        try {
-            return guilds.get(id);
-        } catch (ExecutionException e) {
-            LOGGER.error("Failed to load guild from cache!", e);
-            return null;
-        }
+        long guildId = GeneralUtils.getLong(id, -1);
+        if (guildId == -1) return null;
+        guilds.invalidate(guildId);
+        return guilds.get(guildId);
     }
 
-    public LoadingCache<String, GuildWrapper> getGuilds() {
+    public GuildCache getGuilds() {
         return guilds;
     }
 
@@ -206,6 +214,14 @@ public class FlareBotManager {
         return disabledCommands;
     }
 
+    public GuildStorage getGuildStorage() {
+        return guildStorage;
+    }
+
+    public GuildSaver getGuildSaver() {
+        return guildSaver;
+    }
+
     public GuildWrapperLoader getGuildWrapperLoader() {
         return guildWrapperLoader;
     }
@@ -4,10 +4,10 @@ import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.Permission;
 import net.dv8tion.jda.core.audit.ActionType;
 import net.dv8tion.jda.core.audit.AuditLogChange;
-import net.dv8tion.jda.core.audit.AuditLogEntry;
 import net.dv8tion.jda.core.entities.Channel;
 import net.dv8tion.jda.core.entities.Guild;
 import net.dv8tion.jda.core.entities.MessageEmbed;
+import net.dv8tion.jda.core.entities.Role;
 import net.dv8tion.jda.core.entities.User;
 import net.dv8tion.jda.core.events.Event;
 import net.dv8tion.jda.core.events.channel.text.GenericTextChannelEvent;
@@ -20,7 +20,6 @@ import net.dv8tion.jda.core.events.guild.GenericGuildEvent;
 import net.dv8tion.jda.core.events.guild.GuildBanEvent;
 import net.dv8tion.jda.core.events.guild.member.*;
 import net.dv8tion.jda.core.events.guild.update.GenericGuildUpdateEvent;
-import net.dv8tion.jda.core.events.guild.update.GuildUpdateExplicitContentLevelEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceJoinEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceLeaveEvent;
 import net.dv8tion.jda.core.events.guild.voice.GuildVoiceMoveEvent;
@@ -34,8 +33,9 @@ import net.dv8tion.jda.core.events.role.RoleDeleteEvent;
 import net.dv8tion.jda.core.events.role.update.GenericRoleUpdateEvent;
 import net.dv8tion.jda.core.events.role.update.RoleUpdatePositionEvent;
 import net.dv8tion.jda.core.hooks.EventListener;
-import stream.flarebot.flarebot.database.RedisController;
+import stream.flarebot.flarebot.cache.MessageCache;
 import stream.flarebot.flarebot.database.RedisMessage;
+import stream.flarebot.flarebot.mod.modlog.AuditLogCorrelator;
 import stream.flarebot.flarebot.mod.modlog.ModlogEvent;
 import stream.flarebot.flarebot.mod.modlog.ModlogHandler;
 import stream.flarebot.flarebot.objects.GuildWrapper;
@@ -47,16 +47,13 @@ import stream.flarebot.flarebot.util.general.VariableUtils;
 
 import java.time.Instant;
 import java.time.ZoneId;
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.annotation.Nonnull;
 
 public class ModlogEvents implements EventListener {
 
-    private long roleResponseNumber = 0;
-    private long guildResponseNumber = 0;
+    private final AuditLogCorrelator auditLogs = AuditLogCorrelator.getInstance();
 
     @Override
     public void onEvent(Event event) {
@@ -125,8 +122,6 @@ public class ModlogEvents implements EventListener {
         else if (event instanceof MessageDeleteEvent)
             onMessageDelete((MessageDeleteEvent) event, guildWrapper);
             // GUILD
-        else if (event instanceof GuildUpdateExplicitContentLevelEvent)
-            onGuildUpdateExplicitContentLevel((GuildUpdateExplicitContentLevelEvent) event, guildWrapper);
         else if (event instanceof GuildMemberNickChangeEvent)
             onGuildMemberNickChange((GuildMemberNickChangeEvent) event, guildWrapper);
         else if (event instanceof GenericGuildUpdateEvent)
@@ -137,14 +132,12 @@ public class ModlogEvents implements EventListener {
 
     private void onGuildBan(GuildBanEvent event, @Nonnull GuildWrapper wrapper) {
         if (cannotHandle(wrapper, ModlogEvent.USER_BANNED)) return;
-        event.getGuild().getAuditLogs().limit(1).type(ActionType.BAN).queue(auditLogEntries -> {
-            AuditLogEntry entry = auditLogEntries.get(0);
+        auditLogs.find(event.getGuild(), ActionType.BAN, event.getUser().getIdLong()).thenAccept(entry -> {
             // We don't want dupes.
-            if (entry.getUser().getIdLong() == FlareBot.instance().getClient().getSelfUser().getIdLong()) return;
-            boolean validEntry = entry.getTargetId().equals(event.getUser().getId());
+            if (entry != null && entry.getUser().getIdLong() == event.getJDA().getSelfUser().getIdLong()) return;
             ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.USER_BANNED, event.getUser(),
-                    validEntry ? entry.getUser() : null,
-                    validEntry ? entry.getReason() : null);
+                    entry != null ? entry.getUser() : null,
+                    entry != null ? entry.getReason() : null);
         });
     }
 
@@ -163,19 +156,13 @@ public class ModlogEvents implements EventListener {
             ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MEMBER_LEAVE, event.getUser());
             return;
         }
-        event.getGuild().getAuditLogs().limit(1).type(ActionType.KICK).queue(auditLogEntries -> {
-            AuditLogEntry entry = null;
+        auditLogs.find(event.getGuild(), ActionType.KICK, event.getUser().getIdLong()).thenAccept(entry -> {
             User responsible = null;
             String reason = null;
 
-            if (!auditLogEntries.isEmpty())
-                entry = auditLogEntries.get(0);
-
             if (entry != null) {
                 // We don't want dupes.
-                if (entry.getUser().getIdLong() == FlareBot.instance().getClient().getSelfUser().getIdLong()) return;
-
-                if (!entry.getTargetId().equals(event.getUser().getId())) return;
+                if (entry.getUser().getIdLong() == event.getJDA().getSelfUser().getIdLong()) return;
                 responsible = entry.getUser();
                 reason = entry.getReason();
             }
@@ -209,8 +196,8 @@ public class ModlogEvents implements EventListener {
     private void onRoleCreate(RoleCreateEvent event, @Nonnull GuildWrapper wrapper) {
         if (event.getGuild() == null) return;
         if (cannotHandle(wrapper, ModlogEvent.ROLE_CREATE)) return;
-        event.getGuild().getAuditLogs().queue(auditLog -> {
-            AuditLogEntry entry = auditLog.get(0);
+        auditLogs.find(event.getGuild(), ActionType.ROLE_CREATE, event.getRole().getIdLong()).thenAccept(entry -> {
+            if (entry == null) return;
             ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.ROLE_CREATE,
                     entry.getUser(), new MessageEmbed.Field("Role", event.getRole().getName()
                             + " (" + event.getRole().getId() + ")", true));
@@ -220,8 +207,8 @@ public class ModlogEvents implements EventListener {
 
     private void onRoleDelete(RoleDeleteEvent event, @Nonnull GuildWrapper wrapper) {
         if (cannotHandle(wrapper, ModlogEvent.ROLE_DELETE)) return;
-        event.getGuild().getAuditLogs().queue(auditLog -> {
-            AuditLogEntry entry = auditLog.get(0);
+        auditLogs.find(event.getGuild(), ActionType.ROLE_DELETE, event.getRole().getIdLong()).thenAccept(entry -> {
+            if (entry == null) return;
             ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.ROLE_DELETE,
                     entry.getUser(), new MessageEmbed.Field("Role", event.getRole().getName()
                             + " (" + event.getRole().getId() + ")", true));
@@ -233,12 +220,9 @@ public class ModlogEvents implements EventListener {
         if (event instanceof RoleUpdatePositionEvent) {
             return;
         }
-        if (event.getResponseNumber() == roleResponseNumber) {
-            return;
-        }
-        roleResponseNumber = event.getResponseNumber();
-        event.getGuild().getAuditLogs().limit(1).queue(auditLogs -> {
-            AuditLogEntry entry = auditLogs.get(0);
+        // A single edit fires an event per change, only the first is given the entry so it's only posted once.
+        auditLogs.find(event.getGuild(), ActionType.ROLE_UPDATE, event.getRole().getIdLong()).thenAccept(entry -> {
+            if (entry == null) return;
             Map<String, AuditLogChange> changes = entry.getChanges();
             EmbedBuilder permissionsBuilder = new EmbedBuilder();
             permissionsBuilder.addField("Role", event.getRole().getName() + " (" + event.getRole().getId() + ")", true);
@@ -288,41 +272,24 @@ public class ModlogEvents implements EventListener {
 
     private void onGuildMemberRoleAdd(GuildMemberRoleAddEvent event, @Nonnull GuildWrapper wrapper) {
         if (cannotHandle(wrapper, ModlogEvent.MEMBER_ROLE_GIVE)) return;
-        event.getGuild().getAuditLogs().queue(auditLogEntries -> {
-            if (auditLogEntries.isEmpty())
-                return;
-            AuditLogEntry entry = auditLogEntries.get(0);
-            Map<String, AuditLogChange> changes = entry.getChanges();
-            AuditLogChange change = changes.get("$add");
-            @SuppressWarnings("unchecked")
-            HashMap<String, String> role = ((ArrayList<HashMap<String, String>>) change.getNewValue()).get(0);
-
-            if (wrapper.getAutoAssignRoles().contains(role.get("id"))
-                    && ((System.currentTimeMillis() / 1000) - event.getMember().getJoinDate().toEpochSecond()) < 10) {
-                return;
-            }
-
-            ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MEMBER_ROLE_GIVE,
-                    event.getUser(), entry.getUser(), null,
-                    new MessageEmbed.Field("Role", role.get("name") + " (" + role.get("id") + ")", true));
-        });
+        Role role = event.getRoles().get(0);
+        if (wrapper.getAutoAssignRoles().contains(role.getId())
+                && ((System.currentTimeMillis() / 1000) - event.getMember().getJoinDate().toEpochSecond()) < 10) {
+            return;
+        }
+        auditLogs.find(event.getGuild(), ActionType.MEMBER_ROLE_UPDATE, event.getUser().getIdLong()).thenAccept(entry ->
+                ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MEMBER_ROLE_GIVE,
+                        event.getUser(), entry != null ? entry.getUser() : null, null,
+                        new MessageEmbed.Field("Role", role.getName() + " (" + role.getId() + ")", true)));
     }
 
     private void onGuildMemberRoleRemove(GuildMemberRoleRemoveEvent event, @Nonnull GuildWrapper wrapper) {
         if (cannotHandle(wrapper, ModlogEvent.MEMBER_ROLE_REMOVE)) return;
-        event.getGuild().getAuditLogs().queue(auditLogEntries -> {
-            if (auditLogEntries.isEmpty())
-                return;
-            AuditLogEntry entry = auditLogEntries.get(0);
-            Map<String, AuditLogChange> changes = entry.getChanges();
-            AuditLogChange change = changes.get("$remove");
-            @SuppressWarnings("unchecked")
-            HashMap<String, String> role = ((ArrayList<HashMap<String, String>>) change.getNewValue()).get(0);
-
-            ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MEMBER_ROLE_REMOVE,
-                    event.getUser(), entry.getUser(), null,
-                    new MessageEmbed.Field("Role", role.get("name") + " (" + role.get("id") + ")", true));
-        });
+        Role role = event.getRoles().get(0);
+        auditLogs.find(event.getGuild(), ActionType.MEMBER_ROLE_UPDATE, event.getUser().getIdLong()).thenAccept(entry ->
+                ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MEMBER_ROLE_REMOVE,
+                        event.getUser(), entry != null ? entry.getUser() : null, null,
+                        new MessageEmbed.Field("Role", role.getName() + " (" + role.getId() + ")", true)));
     }
 
     private void onTextChannelCreate(TextChannelCreateEvent event, @Nonnull GuildWrapper wrapper) {
@@ -334,6 +301,7 @@ public class ModlogEvents implements EventListener {
     }
 
     private void onTextChannelDelete(TextChannelDeleteEvent event, @Nonnull GuildWrapper wrapper) {
+        wrapper.getModeration().onChannelDelete(event.getChannel().getIdLong());
         handleChannelDelete(wrapper, event.getChannel());
     }
 
@@ -348,53 +316,41 @@ public class ModlogEvents implements EventListener {
     private void onMessageUpdate(MessageUpdateEvent event, @Nonnull GuildWrapper wrapper) {
         if (cannotHandle(wrapper, ModlogEvent.MESSAGE_EDIT)) return;
         if (event.getAuthor().isBot()) return;
-        if (!RedisController.exists(event.getMessageId())) return;
-        RedisMessage old = GeneralUtils.toRedisMessage(RedisController.get(event.getMessageId()));
+        RedisMessage old = MessageCache.getInstance().getIfPresent(event.getMessageIdLong());
+        if (old == null) return;
         ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MESSAGE_EDIT, event.getAuthor(),
                 new MessageEmbed.Field("Old Message", FormatUtils.truncate(1024, old.getContent(), true), false),
                 new MessageEmbed.Field("New Message", FormatUtils.truncate(1024, event.getMessage().getContentDisplay(), true), false),
                 new MessageEmbed.Field("Channel", event.getTextChannel().getName() + " (" + event.getTextChannel().getId() + ")", true));
-        RedisController.set(event.getMessageId(), GeneralUtils.getRedisMessageJson(event.getMessage()), "xx", "ex", 61200);
+        MessageCache.getInstance().update(event.getMessage());
     }
 
     private void onMessageDelete(MessageDeleteEvent event, @Nonnull GuildWrapper wrapper) {
         if (cannotHandle(wrapper, ModlogEvent.MESSAGE_DELETE)) return;
-        AuditLogEntry entry = event.getGuild().getAuditLogs().type(ActionType.MESSAGE_DELETE).complete().get(0);
-        if (entry.getUser().isBot()) return;
-        User responsible = null;
         if (FlareBot.instance().getEvents().getRemovedByMeList().contains(event.getMessageIdLong())) {
             FlareBot.instance().getEvents().getRemovedByMeList().remove(event.getMessageIdLong());
             return;
         }
-        if (!RedisController.exists(event.getMessageId())) return;
-        RedisMessage deleted = GeneralUtils.toRedisMessage(RedisController.get(event.getMessageId()));
-        if (entry.getTargetId().equals(deleted.getAuthorID())) {
-            if (entry.getUser().isBot()) return;
-            responsible = entry.getUser();
-        }
-        User sender = GuildUtils.getUser(deleted.getAuthorID());
-        ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MESSAGE_DELETE, sender,
-                (responsible != null ? new MessageEmbed.Field("Deleted By", MessageUtils.getUserAndId(responsible), true)
-                        : null),
-                new MessageEmbed.Field("Message", FormatUtils.truncate(1024, deleted.getContent(), true), true),
-                new MessageEmbed.Field("Channel", event.getTextChannel().getName() + " (" + deleted.getChannelID() + ")", true),
-                new MessageEmbed.Field("Sent", FormatUtils.formatTime(Instant.ofEpochMilli(deleted.getTimestamp())
-                        .atZone(ZoneId.systemDefault()).toLocalDateTime()), true)
-        );
-        RedisController.del(event.getMessageId());
-    }
-
-    private void onGuildUpdateExplicitContentLevel(GuildUpdateExplicitContentLevelEvent e, @Nonnull GuildWrapper wrapper) {
-        if (cannotHandle(wrapper, ModlogEvent.GUILD_EXPLICIT_FILTER_CHANGE)) return;
-        AuditLogEntry entry = e.getGuild().getAuditLogs().complete().get(0);
-        AuditLogChange levelChange = entry.getChanges().get("explicit_content_filter");
-
-        ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.GUILD_EXPLICIT_FILTER_CHANGE, entry.getUser(),
-                new MessageEmbed.Field("Old level", Guild.ExplicitContentLevel.fromKey(levelChange.getOldValue()).getDescription(), true),
-                new MessageEmbed.Field("New level", Guild.ExplicitContentLevel.fromKey(levelChange.getNewValue()).getDescription(), true));
+        RedisMessage deleted = MessageCache.getInstance().getIfPresent(event.getMessageIdLong());
+        if (deleted == null) return;
+        MessageCache.getInstance().remove(event.getMessageIdLong());
+        String channelName = event.getTextChannel().getName();
+        auditLogs.find(event.getGuild(), ActionType.MESSAGE_DELETE, deleted.getAuthorIDLong())
+                .thenAccept(entry -> {
+                    if (entry != null && entry.getUser().isBot()) return;
+                    User responsible = entry != null ? entry.getUser() : null;
+                    User sender = GuildUtils.getUser(deleted.getAuthorID());
+                    ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MESSAGE_DELETE, sender,
+                            (responsible != null ? new MessageEmbed.Field("Deleted By", MessageUtils.getUserAndId(responsible), true)
+                                    : null),
+                            new MessageEmbed.Field("Message", FormatUtils.truncate(1024, deleted.getContent(), true), true),
+                            new MessageEmbed.Field("Channel", channelName + " (" + deleted.getChannelID() + ")", true),
+                            new MessageEmbed.Field("Sent", FormatUtils.formatTime(Instant.ofEpochMilli(deleted.getTimestamp())
+                                    .atZone(ZoneId.systemDefault()).toLocalDateTime()), true)
+                    );
+                });
     }
 
-
     private void onGuildMemberNickChange(GuildMemberNickChangeEvent event, @Nonnull GuildWrapper wrapper) {
         if (cannotHandle(wrapper, ModlogEvent.MEMBER_NICK_CHANGE)) return;
         ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.MEMBER_NICK_CHANGE,
@@ -404,18 +360,23 @@ public class ModlogEvents implements EventListener {
     }
 
     private void onGenericGuildUpdate(GenericGuildUpdateEvent event, @Nonnull GuildWrapper wrapper) {
-        if (event instanceof GuildUpdateExplicitContentLevelEvent) {
-            return;
-        }
-        if (cannotHandle(wrapper, ModlogEvent.GUILD_UPDATE)) return;
-        if (event.getResponseNumber() == guildResponseNumber) {
-            return;
-        }
-        guildResponseNumber = event.getResponseNumber();
-        event.getGuild().getAuditLogs().limit(1).queue(auditLogs -> {
-            AuditLogEntry entry = auditLogs.get(0);
+        boolean explicitFilter = !cannotHandle(wrapper, ModlogEvent.GUILD_EXPLICIT_FILTER_CHANGE);
+        boolean update = !cannotHandle(wrapper, ModlogEvent.GUILD_UPDATE);
+        if (!explicitFilter && !update) return;
+        // A single update fires an event per change, only the first is given the entry so it's only posted once.
+        // The explicit filter is posted from here too so it doesn't compete with the other changes for the entry.
+        auditLogs.find(event.getGuild(), ActionType.GUILD_UPDATE, event.getGuild().getIdLong()).thenAccept(entry -> {
+            if (entry == null) return;
             Map<String, AuditLogChange> changes = entry.getChanges();
 
+            AuditLogChange levelChange = changes.get("explicit_content_filter");
+            if (explicitFilter && levelChange != null) {
+                ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.GUILD_EXPLICIT_FILTER_CHANGE, entry.getUser(),
+                        new MessageEmbed.Field("Old level", Guild.ExplicitContentLevel.fromKey(levelChange.getOldValue()).getDescription(), true),
+                        new MessageEmbed.Field("New level", Guild.ExplicitContentLevel.fromKey(levelChange.getNewValue()).getDescription(), true));
+            }
+            if (!update || (levelChange != null && changes.size() == 1)) return;
+
             EmbedBuilder embedBuilder = new EmbedBuilder();
             if (changes.containsKey("region")) {
                 embedBuilder.addField("Region change", "`" + changes.get("region").getOldValue() + "` -> `"
@@ -500,29 +461,31 @@ public class ModlogEvents implements EventListener {
 
     private void handleChannelCreate(GuildWrapper wrapper, Channel channel) {
         if (cannotHandle(wrapper, ModlogEvent.CHANNEL_CREATE)) return;
-        AuditLogEntry entry = wrapper.getGuild().getAuditLogs().complete().get(0);
         EmbedBuilder builder = new EmbedBuilder()
                 .addField("Type", channel.getType().name().toLowerCase(), true)
                 .addField("Name", channel.getName(), true);
         if (channel.getParent() != null) {
             builder.addField("Category", channel.getParent().getName(), true);
         }
-        ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.CHANNEL_CREATE, entry.getUser(),
-                builder);
+        auditLogs.find(wrapper.getGuild(), ActionType.CHANNEL_CREATE, channel.getIdLong()).thenAccept(entry -> {
+            if (entry == null) return;
+            ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.CHANNEL_CREATE, entry.getUser(), builder);
+        });
     }
 
     private void handleChannelDelete(GuildWrapper wrapper, Channel channel) {
         if (wrapper == null) return;
         if (cannotHandle(wrapper, ModlogEvent.CHANNEL_DELETE)) return;
-        AuditLogEntry entry = wrapper.getGuild().getAuditLogs().complete().get(0);
         EmbedBuilder builder = new EmbedBuilder()
                 .addField("Type", channel.getType().name().toLowerCase(), true)
                 .addField("Name", channel.getName(), true);
         if (channel.getParent() != null) {
             builder.addField("Category", channel.getParent().getName(), true);
         }
-        ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.CHANNEL_DELETE, entry.getUser(),
-                builder);
+        auditLogs.find(wrapper.getGuild(), ActionType.CHANNEL_DELETE, channel.getIdLong()).thenAccept(entry -> {
+            if (entry == null) return;
+            ModlogHandler.getInstance().postToModlog(wrapper, ModlogEvent.CHANNEL_DELETE, entry.getUser(), builder);
+        });
     }
 
     private boolean cannotHandle(@Nonnull GuildWrapper wrapper, @Nonnull ModlogEvent event) {
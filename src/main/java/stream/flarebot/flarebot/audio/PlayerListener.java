@@ -14,6 +14,7 @@ import stream.flarebot.flarebot.FlareBotManager;
 import stream.flarebot.flarebot.Getters;
 import stream.flarebot.flarebot.commands.music.SkipCommand;
 import stream.flarebot.flarebot.commands.music.SongCommand;
+import stream.flarebot.flarebot.metrics.MusicMetrics;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.general.FormatUtils;
@@ -30,6 +31,7 @@ public class PlayerListener extends AudioEventAdapter {
 
     @Override
     public void onTrackEnd(AudioPlayer aplayer, AudioTrack atrack, AudioTrackEndReason reason) {
+        updateMetrics(false);
         GuildWrapper wrapper = FlareBotManager.instance().getGuild(player.getGuildId());
 
         if (wrapper == null) return;
@@ -61,6 +63,7 @@ public class PlayerListener extends AudioEventAdapter {
 
     @Override
     public void onTrackStart(AudioPlayer aplayer, AudioTrack atrack) {
+        updateMetrics(true);
         FlareBotManager.instance().getLastActive().remove(Long.parseLong(player.getGuildId()));
 
         GuildWrapper wrapper = FlareBotManager.instance().getGuild(player.getGuildId());
@@ -114,4 +117,18 @@ public class PlayerListener extends AudioEventAdapter {
             }
         }
     }
+
+    @Override
+    public void onPlayerPause(AudioPlayer aplayer) {
+        updateMetrics(false);
+    }
+
+    @Override
+    public void onPlayerResume(AudioPlayer aplayer) {
+        updateMetrics(player.getPlayingTrack() != null);
+    }
+
+    private void updateMetrics(boolean playing) {
+        MusicMetrics.onPlayerUpdate(Long.parseLong(player.getGuildId()), playing, player.getPlaylist().size());
+    }
 }
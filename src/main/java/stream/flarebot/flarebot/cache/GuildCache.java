@@ -0,0 +1,106 @@
+package stream.flarebot.flarebot.cache;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.prometheus.client.Histogram;
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.objects.GuildWrapper;
+import stream.flarebot.flarebot.objects.GuildWrapperLoader;
+
+import javax.annotation.Nullable;
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds every loaded {@link GuildWrapper} keyed by the guild's long ID.
+ *
+ * Reads never take a lock, a cached guild is returned straight out of the segment it is in. Segments are striped by
+ * the amount of cores available so that writes (loads and evictions) on different guilds do not contend. If multiple
+ * threads miss on the same guild at once only one of them will run the {@link GuildWrapperLoader}, the rest will wait
+ * for that load to finish and get the same wrapper.
+ */
+public class GuildCache {
+
+    private static final Logger LOGGER = FlareBot.getLog(GuildCache.class);
+
+    private final LoadingCache<Long, GuildWrapper> cache;
+
+    public GuildCache(GuildWrapperLoader loader, long expireAfterAccess, RemovalListener<Long, GuildWrapper> listener) {
+        this.cache = CacheBuilder.newBuilder()
+                .concurrencyLevel(Math.max(4, Runtime.getRuntime().availableProcessors() * 2))
+                .expireAfterAccess(expireAfterAccess, TimeUnit.MILLISECONDS)
+                .removalListener(listener)
+                .build(new CacheLoader<Long, GuildWrapper>() {
+                    @Override
+                    @ParametersAreNonnullByDefault
+                    public GuildWrapper load(Long id) {
+                        Histogram.Timer timer = Metrics.guildLoadTime.startTimer();
+                        try {
+                            return loader.load(String.valueOf(id));
+                        } finally {
+                            timer.observeDuration();
+                        }
+                    }
+                });
+    }
+
+    /**
+     * Get a guild from the cache, loading it if it isn't already present.
+     *
+     * @param guildId The ID of the guild to get.
+     * @return The GuildWrapper or null if it failed to load.
+     */
+    @Nullable
+    public GuildWrapper get(long guildId) {
+        GuildWrapper wrapper = cache.getIfPresent(guildId);
+        if (wrapper != null) {
+            Metrics.guildCacheRequests.labels("hit").inc();
+            return wrapper;
+        }
+        Metrics.guildCacheRequests.labels("miss").inc();
+        try {
+            return cache.get(guildId);
+        } catch (ExecutionException | UncheckedExecutionException | CacheLoader.InvalidCacheLoadException e) {
+            LOGGER.error("Failed to load guild " + guildId + " into the cache!", e);
+            return null;
+        }
+    }
+
+    /**
+     * Get a guild only if it is currently loaded, this will never hit the database.
+     *
+     * @param guildId The ID of the guild to get.
+     * @return The GuildWrapper or null if it is not loaded.
+     */
+    @Nullable
+    public GuildWrapper getIfPresent(long guildId) {
+        return cache.getIfPresent(guildId);
+    }
+
+    public void invalidate(long guildId) {
+        cache.invalidate(guildId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public void cleanUp() {
+        cache.cleanUp();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public Map<Long, GuildWrapper> asMap() {
+        return cache.asMap();
+    }
+}
@@ -0,0 +1,116 @@
+package stream.flarebot.flarebot.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.dv8tion.jda.core.entities.Message;
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.database.RedisController;
+import stream.flarebot.flarebot.database.RedisMessage;
+import stream.flarebot.flarebot.database.RedisMessageCodec;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.util.general.GeneralUtils;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cache of messages the bot has seen, used by the modlog to show what a message said before it was edited or
+ * deleted.
+ *
+ * There are two tiers. Recent messages are kept in memory, encoded the same way as in redis so the size of an entry is
+ * known and the memory used can be bounded by bytes rather than by a count of messages. Everything is also written to
+ * redis which keeps messages for far longer. Most edits and deletes happen shortly after a message is sent so they
+ * should rarely need to go to redis, and when they do it is a single get.
+ */
+public class MessageCache {
+
+    private static final Logger LOGGER = FlareBot.getLog(MessageCache.class);
+
+    private static final int REDIS_EXPIRY = (int) TimeUnit.DAYS.toSeconds(1);
+    private static final int REDIS_EDITED_EXPIRY = (int) TimeUnit.HOURS.toSeconds(17);
+
+    private static final MessageCache instance = new MessageCache(64 * 1024 * 1024, TimeUnit.HOURS.toMillis(1));
+
+    private final Cache<Long, byte[]> local;
+
+    public static MessageCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * @param maxBytes The most bytes of encoded messages to keep in memory.
+     * @param expiry   The time in milliseconds to keep a message in memory for after it was last written.
+     */
+    public MessageCache(long maxBytes, long expiry) {
+        this.local = CacheBuilder.newBuilder()
+                .concurrencyLevel(Math.max(4, Runtime.getRuntime().availableProcessors() * 2))
+                .maximumWeight(maxBytes)
+                .<Long, byte[]>weigher((id, data) -> data.length)
+                .expireAfterWrite(expiry, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Cache a newly sent message, if it is already cached this does nothing.
+     */
+    public void put(Message message) {
+        byte[] data = GeneralUtils.getRedisMessage(message);
+        if (local.asMap().putIfAbsent(message.getIdLong(), data) == null)
+            RedisController.set(message.getId(), data, "nx", "ex", REDIS_EXPIRY);
+    }
+
+    /**
+     * Replace a message after it has been edited. This should only be called for a message which is already cached, it
+     * will not be added to redis if it isn't there.
+     */
+    public void update(Message message) {
+        byte[] data = GeneralUtils.getRedisMessage(message);
+        local.put(message.getIdLong(), data);
+        RedisController.set(message.getId(), data, "xx", "ex", REDIS_EDITED_EXPIRY);
+    }
+
+    /**
+     * Get a cached message, this checks memory first and then redis.
+     *
+     * @param messageId The ID of the message.
+     * @return The message or null if it isn't cached in either tier.
+     */
+    @Nullable
+    public RedisMessage getIfPresent(long messageId) {
+        byte[] data = local.getIfPresent(messageId);
+        if (data != null) {
+            Metrics.messageCacheRequests.labels("local").inc();
+        } else {
+            data = RedisController.getBytes(Long.toString(messageId));
+            if (data == null) {
+                Metrics.messageCacheRequests.labels("miss").inc();
+                return null;
+            }
+            Metrics.messageCacheRequests.labels("redis").inc();
+            local.put(messageId, data);
+        }
+        try {
+            return RedisMessageCodec.decode(data);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Failed to decode cached message " + messageId + ": " + e.getMessage());
+            local.invalidate(messageId);
+            return null;
+        }
+    }
+
+    /**
+     * Remove a message from both tiers.
+     */
+    public void remove(long messageId) {
+        local.invalidate(messageId);
+        RedisController.del(Long.toString(messageId));
+    }
+
+    /**
+     * @return The approximate amount of messages held in memory.
+     */
+    public long getLocalSize() {
+        return local.size();
+    }
+}
@@ -0,0 +1,176 @@
+package stream.flarebot.flarebot.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks when users were last seen and when they last spoke, this is shown in userinfo.
+ *
+ * Users who haven't been active for a while are dropped, as are the least recently active users once too many are
+ * tracked. Activity is only written when the stored time is older than {@link #resolution} so a user sending messages
+ * in bursts only updates their entry once.
+ *
+ * If a {@link PersistenceHook} is given every dropped user is handed to it and users which aren't tracked are looked up
+ * from it.
+ */
+public class UserActivityTracker {
+
+    private static final Logger LOGGER = FlareBot.getLog(UserActivityTracker.class);
+
+    private final long resolution;
+    private final PersistenceHook hook;
+    private final Cache<Long, Activity> users;
+
+    public UserActivityTracker(long resolution) {
+        this(resolution, TimeUnit.DAYS.toMillis(7), 500_000, null);
+    }
+
+    /**
+     * @param resolution The time in milliseconds activity has to be apart before it is written.
+     * @param expiry     The time in milliseconds to track an inactive user for.
+     * @param maxUsers   The most users to track.
+     * @param hook       Where to save users which are dropped and load users which aren't tracked, may be null.
+     */
+    public UserActivityTracker(long resolution, long expiry, long maxUsers, @Nullable PersistenceHook hook) {
+        this.resolution = resolution;
+        this.hook = hook;
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+                .concurrencyLevel(Math.max(4, Runtime.getRuntime().availableProcessors() * 2))
+                .maximumSize(maxUsers)
+                .expireAfterAccess(expiry, TimeUnit.MILLISECONDS);
+        if (hook != null) {
+            this.users = builder.<Long, Activity>removalListener(notification -> {
+                if (notification.wasEvicted())
+                    hook.save(notification.getKey(), notification.getValue());
+            }).build();
+        } else {
+            this.users = builder.build();
+        }
+    }
+
+    /**
+     * A user sent a message.
+     *
+     * @param userId      The ID of the user.
+     * @param guildId     The guild the message was sent in.
+     * @param messageTime The time the message was sent in epoch millis.
+     */
+    public void onMessage(long userId, long guildId, long messageTime) {
+        Activity activity = getOrCreate(userId);
+        if (activity == null) return;
+        long now = System.currentTimeMillis();
+        if (activity.lastSpokeGuild == guildId && now - activity.lastSeen < resolution) return;
+        activity.lastMessage = messageTime;
+        activity.lastSeen = now;
+        activity.lastSpokeGuild = guildId;
+    }
+
+    /**
+     * A user was seen doing something other than sending a message, for example coming online.
+     *
+     * @param userId The ID of the user.
+     */
+    public void onSeen(long userId) {
+        Activity activity = getOrCreate(userId);
+        if (activity == null) return;
+        long now = System.currentTimeMillis();
+        if (now - activity.lastSeen >= resolution)
+            activity.lastSeen = now;
+    }
+
+    /**
+     * Get the activity of a user without starting to track them.
+     *
+     * @param userId The ID of the user.
+     * @return The activity of the user or null if they aren't tracked.
+     */
+    @Nullable
+    public Activity get(long userId) {
+        Activity activity = users.getIfPresent(userId);
+        if (activity == null && hook != null) {
+            activity = hook.load(userId);
+            if (activity != null)
+                users.asMap().putIfAbsent(userId, activity);
+        }
+        return activity;
+    }
+
+    public long size() {
+        return users.size();
+    }
+
+    private Activity getOrCreate(long userId) {
+        Activity activity = users.getIfPresent(userId);
+        if (activity != null) return activity;
+        try {
+            return users.get(userId, () -> {
+                Activity loaded = hook == null ? null : hook.load(userId);
+                return loaded == null ? new Activity() : loaded;
+            });
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            LOGGER.error("Failed to load the activity of " + userId, e);
+            return null;
+        }
+    }
+
+    /**
+     * The activity of a single user. Every time is in epoch millis, {@code 0} if it isn't known.
+     */
+    public static class Activity {
+
+        private volatile long lastMessage;
+        private volatile long lastSeen;
+        private volatile long lastSpokeGuild;
+
+        public Activity() {
+        }
+
+        public Activity(long lastMessage, long lastSeen, long lastSpokeGuild) {
+            this.lastMessage = lastMessage;
+            this.lastSeen = lastSeen;
+            this.lastSpokeGuild = lastSpokeGuild;
+        }
+
+        public long getLastMessage() {
+            return lastMessage;
+        }
+
+        public long getLastSeen() {
+            return lastSeen;
+        }
+
+        /**
+         * @return The ID of the guild the user last spoke in or {@code 0} if it isn't known.
+         */
+        public long getLastSpokeGuild() {
+            return lastSpokeGuild;
+        }
+    }
+
+    /**
+     * Somewhere to keep activity which is no longer tracked in memory.
+     */
+    public interface PersistenceHook {
+
+        /**
+         * Called when a user is dropped from memory, this runs on whichever thread caused the drop so it should not
+         * block.
+         */
+        void save(long userId, Activity activity);
+
+        /**
+         * Load a user which isn't tracked in memory.
+         *
+         * @return The activity or null if there isn't any.
+         */
+        @Nullable
+        Activity load(long userId);
+    }
+}
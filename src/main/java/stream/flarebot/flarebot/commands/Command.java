@@ -50,6 +50,14 @@ public interface Command {
         return false;
     }
 
+    /**
+     * Commands which wait on Discord, Cassandra or HTTP requests should return true, these are ran on their own lane
+     * of the {@link CommandExecutor} so they can't hold up quick commands.
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+
     default char getPrefix(Guild guild) {
         return FlareBotManager.instance().getGuild(guild.getId()).getPrefix();
     }
@@ -0,0 +1,203 @@
+package stream.flarebot.flarebot.commands;
+
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs commands on two lanes, one for quick commands and one for commands which block (see {@link Command#isBlocking()}).
+ *
+ * Each guild may only have {@link #guildConcurrency} commands running per lane, anything past that waits in a queue
+ * owned by the guild instead of the shared queue of the lane. When a command finishes the next command of that guild
+ * is put at the back of the shared queue, so a guild spamming purges takes turns with every other guild rather than
+ * taking over every thread.
+ */
+public class CommandExecutor {
+
+    private static final Logger LOGGER = FlareBot.getLog(CommandExecutor.class);
+
+    private final ExecutorService cpuLane;
+    private final ExecutorService blockingLane;
+    private final int guildConcurrency;
+    private final int guildQueueSize;
+
+    private final Map<Long, GuildQueue> guilds = new ConcurrentHashMap<>();
+
+    public CommandExecutor(ThreadGroup group, boolean virtualThreads) {
+        this(group, Math.max(2, Runtime.getRuntime().availableProcessors()), 16, 2, 10, virtualThreads);
+    }
+
+    /**
+     * @param group            The thread group the platform threads of both lanes are created in.
+     * @param cpuThreads       The amount of threads for quick commands.
+     * @param blockingThreads  The amount of threads for blocking commands, unused if virtual threads are used.
+     * @param guildConcurrency The amount of commands a single guild can have running on each lane.
+     * @param guildQueueSize   The amount of commands a single guild can have waiting on each lane, more are rejected.
+     * @param virtualThreads   If blocking commands should run on virtual threads when the JVM supports them.
+     */
+    public CommandExecutor(ThreadGroup group, int cpuThreads, int blockingThreads, int guildConcurrency,
+                           int guildQueueSize, boolean virtualThreads) {
+        this.guildConcurrency = guildConcurrency;
+        this.guildQueueSize = guildQueueSize;
+        this.cpuLane = Executors.newFixedThreadPool(cpuThreads, threadFactory(group, Lane.CPU));
+
+        ExecutorService virtual = virtualThreads ? newVirtualThreadExecutor() : null;
+        if (virtualThreads && virtual == null)
+            LOGGER.warn("Virtual threads are not supported by this JVM, blocking commands will use platform threads");
+        this.blockingLane = virtual != null ? virtual
+                : Executors.newFixedThreadPool(blockingThreads, threadFactory(group, Lane.BLOCKING));
+    }
+
+    /**
+     * Queue a command to be ran.
+     *
+     * @param guildId The guild the command was ran in.
+     * @param command The command, this decides which lane it runs on.
+     * @param task    What to run.
+     * @return If the command was queued, false if the guild already has too many commands waiting.
+     */
+    public boolean submit(long guildId, Command command, Runnable task) {
+        QueuedCommand queued = new QueuedCommand(guildId, command, task);
+        int lane = queued.lane.ordinal();
+        while (true) {
+            GuildQueue queue = guilds.computeIfAbsent(guildId, id -> new GuildQueue());
+            synchronized (queue) {
+                // This queue was emptied and removed after we got it, get the new one.
+                if (queue.removed) continue;
+                if (queue.running[lane] >= guildConcurrency) {
+                    if (queue.pending[lane].size() >= guildQueueSize) {
+                        Metrics.commandsRejected.labels(command.getClass().getSimpleName()).inc();
+                        return false;
+                    }
+                    queue.pending[lane].add(queued);
+                    return true;
+                }
+                queue.running[lane]++;
+            }
+            execute(queue, queued);
+            return true;
+        }
+    }
+
+    public void shutdown() {
+        cpuLane.shutdown();
+        blockingLane.shutdown();
+    }
+
+    private void execute(GuildQueue queue, QueuedCommand command) {
+        try {
+            (command.lane == Lane.BLOCKING ? blockingLane : cpuLane).execute(() -> run(queue, command));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Command executor is shutting down, dropping " + command.command.getCommand());
+            QueuedCommand dropped = command;
+            while ((dropped = next(queue, dropped)) != null)
+                LOGGER.warn("Command executor is shutting down, dropping " + dropped.command.getCommand());
+        }
+    }
+
+    private void run(GuildQueue queue, QueuedCommand command) {
+        Metrics.commandQueueTime.labels(command.lane.getName()).observe((System.nanoTime() - command.queuedAt) / 1e9);
+        Metrics.commandsRunning.labels(command.lane.getName()).inc();
+        try {
+            command.task.run();
+        } catch (Throwable t) {
+            LOGGER.error("Uncaught exception running " + command.command.getCommand(), t);
+        } finally {
+            Metrics.commandsRunning.labels(command.lane.getName()).dec();
+            QueuedCommand next = next(queue, command);
+            if (next != null)
+                execute(queue, next);
+        }
+    }
+
+    /**
+     * Take the next waiting command of a guild once one finishes, if there is none the slot it held is given up.
+     */
+    private QueuedCommand next(GuildQueue queue, QueuedCommand finished) {
+        int lane = finished.lane.ordinal();
+        synchronized (queue) {
+            QueuedCommand next = queue.pending[lane].poll();
+            if (next != null) return next;
+            queue.running[lane]--;
+            if (queue.isIdle()) {
+                queue.removed = true;
+                guilds.remove(finished.guildId, queue);
+            }
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ThreadFactory threadFactory(ThreadGroup group, Lane lane) {
+        AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(group, r, "Command Pool-" + lane.getName() + "-" + count.incrementAndGet());
+    }
+
+    public enum Lane {
+        CPU("cpu"),
+        BLOCKING("blocking");
+
+        private final String name;
+
+        Lane(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private static class GuildQueue {
+
+        // Both indexed by lane ordinal, guarded by this.
+        private final int[] running = new int[Lane.values().length];
+        @SuppressWarnings("unchecked")
+        private final Queue<QueuedCommand>[] pending = new Queue[Lane.values().length];
+        private boolean removed;
+
+        GuildQueue() {
+            for (int i = 0; i < pending.length; i++)
+                pending[i] = new ArrayDeque<>();
+        }
+
+        boolean isIdle() {
+            for (int i = 0; i < running.length; i++)
+                if (running[i] > 0 || !pending[i].isEmpty()) return false;
+            return true;
+        }
+    }
+
+    private static class QueuedCommand {
+
+        private final long guildId;
+        private final Command command;
+        private final Runnable task;
+        private final Lane lane;
+        private final long queuedAt = System.nanoTime();
+
+        QueuedCommand(long guildId, Command command, Runnable task) {
+            this.guildId = guildId;
+            this.command = command;
+            this.task = task;
+            this.lane = command.isBlocking() ? Lane.BLOCKING : Lane.CPU;
+        }
+    }
+}
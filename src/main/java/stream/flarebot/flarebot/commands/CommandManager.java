@@ -19,12 +19,20 @@ import stream.flarebot.flarebot.commands.useful.*;
 import stream.flarebot.flarebot.permissions.PerGuildPermissions;
 
 import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class CommandManager {
 
     private final Set<Command> commands = new ConcurrentHashSet<>();
+    private final Set<Command> internalCommands = new ConcurrentHashSet<>();
+    // Lower cased name or alias -> command, internal commands are kept apart so they can only be found by staff.
+    private final Map<String, Command> commandIndex = new ConcurrentHashMap<>();
+    private final Map<String, Command> internalIndex = new ConcurrentHashMap<>();
     private final Logger LOGGER = FlareBot.getLog(CommandManager.class);
 
     public CommandManager() {
@@ -50,26 +58,22 @@ public class CommandManager {
 
     }
 
-    // https://bots.are-pretty.sexy/214501.png
-    // New way to process commands, this way has been proven to be quicker overall.
+    /**
+     * Get a command by its name or one of its aliases, ignoring case. This is a single map lookup, the index is built
+     * when commands are registered.
+     *
+     * @param s    The name or alias of the command.
+     * @param user The user running the command, internal commands are only returned for staff.
+     * @return The command or null if there is no command with this name.
+     */
     @Nullable
     public Command getCommand(String s, User user) {
-        if (PerGuildPermissions.isCreator(user) || PerGuildPermissions.isContributor(user) || PerGuildPermissions.isAdmin(user)) {
-            for (Command cmd : getInternalCommands()) {
-                if (cmd.getCommand().equalsIgnoreCase(s))
-                    return cmd;
-                for (String alias : cmd.getAliases())
-                    if (alias.equalsIgnoreCase(s)) return cmd;
-            }
-        }
-        for (Command cmd : getCommands()) {
-            if (cmd.getType().isInternal()) continue;
-            if (cmd.getCommand().equalsIgnoreCase(s))
-                return cmd;
-            for (String alias : cmd.getAliases())
-                if (alias.equalsIgnoreCase(s)) return cmd;
-        }
-        return null;
+        String name = s.toLowerCase(Locale.ROOT);
+        Command internal = internalIndex.get(name);
+        if (internal != null && (PerGuildPermissions.isCreator(user) || PerGuildPermissions.isContributor(user)
+                || PerGuildPermissions.isAdmin(user)))
+            return internal;
+        return commandIndex.get(name);
     }
 
     private void registerGeneralCommands() {
@@ -170,6 +174,21 @@ public class CommandManager {
 
     private void registerCommand(Command command) {
         commands.add(command);
+        Map<String, Command> index = commandIndex;
+        if (command.getType().isInternal()) {
+            internalCommands.add(command);
+            index = internalIndex;
+        }
+        index(index, command.getCommand(), command);
+        for (String alias : command.getAliases())
+            index(index, alias, command);
+    }
+
+    private void index(Map<String, Command> index, String name, Command command) {
+        Command existing = index.putIfAbsent(name.toLowerCase(Locale.ROOT), command);
+        if (existing != null && existing != command)
+            LOGGER.warn("[Command Manager] '" + name + "' of " + command.getClass().getSimpleName()
+                    + " is already used by " + existing.getClass().getSimpleName() + "!");
     }
 
     public Set<Command> getCommands() {
@@ -181,7 +200,7 @@ public class CommandManager {
     }
 
     public Set<Command> getInternalCommands() {
-        return commands.stream().filter(command -> command.getType().isInternal()).collect(Collectors.toSet());
+        return Collections.unmodifiableSet(internalCommands);
     }
 
     public int count() {
@@ -0,0 +1,56 @@
+package stream.flarebot.flarebot.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a command message into the command name and its arguments, runs of spaces count as a single separator.
+ *
+ * Only the command name is cut out up front, the arguments are split the first time they are asked for so a message
+ * which starts with the prefix but isn't a command never pays for it.
+ */
+public class CommandTokenizer {
+
+    private static final String[] EMPTY = new String[0];
+
+    private final String content;
+    private final int commandEnd;
+    private String[] args;
+
+    /**
+     * @param content The raw content of the message, the first character must be the prefix.
+     */
+    public CommandTokenizer(String content) {
+        this.content = content;
+        int space = content.indexOf(' ', 1);
+        this.commandEnd = space == -1 ? content.length() : space;
+    }
+
+    /**
+     * @return The command name or alias the message used, without the prefix.
+     */
+    public String getCommand() {
+        return content.substring(1, commandEnd);
+    }
+
+    public String[] getArgs() {
+        if (args == null)
+            args = tokenize(content, commandEnd);
+        return args;
+    }
+
+    private static String[] tokenize(String content, int from) {
+        List<String> tokens = null;
+        int length = content.length();
+        int i = from;
+        while (i < length) {
+            while (i < length && content.charAt(i) == ' ') i++;
+            if (i == length) break;
+            int start = i;
+            while (i < length && content.charAt(i) != ' ') i++;
+            if (tokens == null) tokens = new ArrayList<>();
+            tokens.add(content.substring(start, i));
+        }
+        return tokens == null ? EMPTY : tokens.toArray(new String[tokens.size()]);
+    }
+}
@@ -0,0 +1,104 @@
+package stream.flarebot.flarebot.commands;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits how often something can happen per key, this is what detects command spam.
+ *
+ * Each key has a bucket which lets {@code limit} things happen in any {@link #window} and refills smoothly, so there's
+ * no edge where a burst can sneak through by straddling a reset. A bucket is a single timestamp changed with
+ * compare-and-set, nothing is locked when checking. Buckets which haven't been used for a window are full again and are
+ * dropped lazily by the cache rather than everything being cleared on a timer.
+ *
+ * The limit of a key is asked for the first time the key is seen and kept until {@link #invalidate(long)} is called,
+ * for guilds this is when their member count changes or the bot leaves. Limits are kept apart from the buckets so
+ * they outlive them, only the buckets expire.
+ */
+public class SpamDetector {
+
+    private final long window;
+    private final LongSupplier clock;
+
+    // The time each bucket is full again, each token taken moves this on by the interval of the key.
+    private final Cache<Long, AtomicLong> buckets;
+    // The time in nanoseconds a token of each key takes to come back.
+    private final Map<Long, Long> intervals = new ConcurrentHashMap<>();
+
+    /**
+     * @param window The time in milliseconds the limit of a key is over.
+     */
+    public SpamDetector(long window) {
+        this(window, System::nanoTime);
+    }
+
+    /**
+     * @param window The time in milliseconds the limit of a key is over.
+     * @param clock  Gives the current time in nanoseconds, buckets expire by this clock too.
+     */
+    public SpamDetector(long window, LongSupplier clock) {
+        this.window = TimeUnit.MILLISECONDS.toNanos(window);
+        this.clock = clock;
+        this.buckets = CacheBuilder.newBuilder()
+                .expireAfterAccess(window, TimeUnit.MILLISECONDS)
+                .ticker(new Ticker() {
+                    @Override
+                    public long read() {
+                        return clock.getAsLong();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * The amount of commands a guild can run in the window, this grows with the amount of users in the guild.
+     *
+     * @param userCount The amount of users in the guild, not counting bots.
+     */
+    public static int getGuildLimit(int userCount) {
+        // The first command past the threshold is let through.
+        return Math.max(1, (int) Math.sqrt(userCount / 2.5)) + 1;
+    }
+
+    /**
+     * Take a token from the bucket of a key.
+     *
+     * @param key   The key, this is a guild, channel or user ID.
+     * @param limit Gives the amount of tokens the key has per window, only used if the key has no limit yet.
+     * @return True if there was a token, false if the key is over its limit.
+     */
+    public boolean tryAcquire(long key, IntSupplier limit) {
+        long interval = intervals.computeIfAbsent(key, k -> window / Math.max(1, limit.getAsInt()));
+        AtomicLong fullAt;
+        try {
+            fullAt = buckets.get(key, () -> new AtomicLong(Long.MIN_VALUE));
+        } catch (ExecutionException e) {
+            // Creating a bucket can't fail.
+            throw new IllegalStateException(e);
+        }
+
+        long now = clock.getAsLong();
+        while (true) {
+            long full = fullAt.get();
+            long next = Math.max(full, now) + interval;
+            if (next - now > window) return false;
+            if (fullAt.compareAndSet(full, next)) return true;
+        }
+    }
+
+    /**
+     * Make a key ask for its limit again next time it is checked, the tokens already taken are kept.
+     */
+    public void invalidate(long key) {
+        intervals.remove(key);
+    }
+}
@@ -71,4 +71,8 @@ public class PinCommand implements Command {
         return CommandType.MODERATION;
     }
 
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -86,4 +86,9 @@ public class ReportCommand implements Command {
     public CommandType getType() {
         return CommandType.GENERAL;
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -10,7 +10,7 @@ import stream.flarebot.flarebot.FlareBotManager;
 import stream.flarebot.flarebot.Getters;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.commands.CommandType;
-import stream.flarebot.flarebot.music.VideoThread;
+import stream.flarebot.flarebot.music.MusicLoader;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.permissions.Permission;
 import stream.flarebot.flarebot.util.MessageUtils;
@@ -77,7 +77,7 @@ public class StatsCommand implements Command {
         UPTIME("Uptime", () -> FlareBot.instance().getUptime()),
         MEM_USAGE("Memory Usage", () -> getMb(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory())),
         MEM_FREE("Memory Free", () -> getMb(Runtime.getRuntime().freeMemory())),
-        VIDEO_THREADS("Video Threads", VideoThread.VIDEO_THREADS::activeCount),
+        VIDEO_THREADS("Video Threads", MusicLoader.VIDEO_THREADS::activeCount),
         TOTAL_THREADS("Total Threads", () -> Thread.getAllStackTraces().size());
 
         private String name;
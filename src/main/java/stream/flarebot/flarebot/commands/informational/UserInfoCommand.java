@@ -3,16 +3,18 @@ package stream.flarebot.flarebot.commands.informational;
 import net.dv8tion.jda.core.entities.*;
 import stream.flarebot.flarebot.FlareBot;
 import stream.flarebot.flarebot.Getters;
+import stream.flarebot.flarebot.cache.UserActivityTracker;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.commands.CommandType;
 import stream.flarebot.flarebot.objects.GuildWrapper;
-import stream.flarebot.flarebot.objects.PlayerCache;
 import stream.flarebot.flarebot.permissions.Permission;
 import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.general.FormatUtils;
 import stream.flarebot.flarebot.util.general.GuildUtils;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.util.stream.Collectors;
 
 public class UserInfoCommand implements Command {
@@ -43,7 +45,7 @@ public class UserInfoCommand implements Command {
         if (channel.getGuild().getMember(user) != null)
             targetMember = channel.getGuild().getMember(user);
 
-        PlayerCache cache = flareBot.getPlayerCache(id);
+        UserActivityTracker.Activity activity = flareBot.getActivityTracker().get(user.getIdLong());
         channel.sendMessage(MessageUtils.getEmbed(sender)
                 .addField("User Info", "User: " + user.getName() + "#" + user.getDiscriminator()
                         + "\nID: " + user.getId() + "\n" +
@@ -71,13 +73,16 @@ public class UserInfoCommand implements Command {
                         "Joined: " + (targetMember == null ? "The user is not in this server."
                         : FormatUtils.formatTime(LocalDateTime
                         .from(channel.getGuild().getMember(user).getJoinDate()))) + "\n" +
-                        "Last Seen: " + (cache.getLastSeen() == null ? "Unknown" : FormatUtils
-                        .formatTime(cache.getLastSeen())) + "\n" +
-                        "Last Spoke: " + (cache.getLastMessage() == null ? "Unknown" : FormatUtils
-                        .formatTime(cache.getLastMessage())), false)
+                        "Last Seen: " + formatActivity(activity == null ? 0 : activity.getLastSeen()) + "\n" +
+                        "Last Spoke: " + formatActivity(activity == null ? 0 : activity.getLastMessage()), false)
                 .setThumbnail(MessageUtils.getAvatar(user)).build()).queue();
     }
 
+    private String formatActivity(long time) {
+        if (time == 0) return "Unknown";
+        return FormatUtils.formatTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneOffset.UTC));
+    }
+
     @Override
     public String getCommand() {
         return "userinfo";
@@ -151,7 +151,7 @@ public class PermissionsCommand implements Command {
 
                         }
                     } else if (args[2].equalsIgnoreCase("clear")) {
-                        group.getPermissions().clear();
+                        group.clearPermissions();
                         MessageUtils.sendSuccessMessage("Cleared all permissions from the group: " + group.getName(), channel);
                         return;
                     } else if (args[2].equalsIgnoreCase("move") && args.length >= 4) {
@@ -311,7 +311,7 @@ public class PermissionsCommand implements Command {
                             return;
                         }
                     } else if (args[2].equalsIgnoreCase("clear")) {
-                        permUser.getPermissions().clear();
+                        permUser.clearPermissions();
                         MessageUtils.sendSuccessMessage("Cleared all permissions from: " + MessageUtils.getTag(user), channel);
                         return;
                     }
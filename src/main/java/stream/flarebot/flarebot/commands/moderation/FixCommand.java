@@ -19,9 +19,9 @@ public class FixCommand implements Command {
     @Override
     public void onCommand(User sender, GuildWrapper guild, TextChannel channel, Message message, String[] args, Member member) {
         if (args.length == 1 && args[0].equalsIgnoreCase("confirm")) {
-            if (ConfirmUtil.checkExists(sender.getId(), this.getClass())) {
-                ConfirmUtil.run(sender.getId(), this.getClass());
-                ConfirmUtil.remove(sender.getId(), this.getClass());
+            if (ConfirmUtil.checkExists(sender.getIdLong(), this.getClass())) {
+                ConfirmUtil.run(sender.getIdLong(), this.getClass());
+                ConfirmUtil.remove(sender.getIdLong(), this.getClass());
             } else {
                 MessageUtils.sendErrorMessage("You haven't got any action to confirm!", channel);
             }
@@ -33,7 +33,7 @@ public class FixCommand implements Command {
                 + "the removal of your autoassign roles they may be added back to users."
                 + "\n\nDo `{%}fix confirm` to confirm you want to do this command!", channel, sender);
 
-        ConfirmUtil.pushAction(sender.getId(),
+        ConfirmUtil.pushAction(sender.getIdLong(),
                 new RunnableWrapper(() -> fix(guild, sender, channel), this.getClass()));
     }
 
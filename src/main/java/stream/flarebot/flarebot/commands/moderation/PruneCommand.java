@@ -42,16 +42,16 @@ public class PruneCommand implements Command {
                 MessageUtils.sendErrorMessage(FormatUtils.formatCommandPrefix(guild, "Are you sure you want to prune " + userSize + " members?\n" +
                         "To confirm type `{%}prune confirm` within 1 minute!"), channel);
 
-                ConfirmUtil.pushAction(sender.getId(),
+                ConfirmUtil.pushAction(sender.getIdLong(),
                         new RunnableWrapper(
                                 new RestActionRunnable(guild.getGuild().getController()
                                         .prune(amount)
                                         .reason("Pruned by user: " + MessageUtils.getTag(sender))), this.getClass()));
                 return;
             } else if (args[0].equalsIgnoreCase("confirm")) {
-                if (ConfirmUtil.checkExists(sender.getId(), this.getClass())) {
-                    ConfirmUtil.run(sender.getId(), this.getClass());
-                    ConfirmUtil.remove(sender.getId(), this.getClass());
+                if (ConfirmUtil.checkExists(sender.getIdLong(), this.getClass())) {
+                    ConfirmUtil.run(sender.getIdLong(), this.getClass());
+                    ConfirmUtil.remove(sender.getIdLong(), this.getClass());
                 } else {
                     MessageUtils.sendErrorMessage("You haven't got any action to confirm!", channel);
                 }
@@ -87,4 +87,9 @@ public class PruneCommand implements Command {
     public CommandType getType() {
         return CommandType.MODERATION;
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -155,4 +155,8 @@ public class PurgeCommand implements Command {
         return false;
     }
 
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -49,11 +49,12 @@ public class ModlogCommand implements Command {
                 tb.setRowCount(10);
 
                 for (ModlogAction modlogAction : events) {
-                    if (guild.getModeration().isEventEnabled(guild, modlogAction.getEvent())) {
+                    TextChannel modlogChannel = modlogAction.getModlogChannel(guild.getGuild());
+                    if (modlogChannel != null) {
                         List<String> part = new ArrayList<>();
                         part.add(modlogAction.getEvent().getName());
                         part.add(String.valueOf(modlogAction.isCompacted()));
-                        part.add(modlogAction.getModlogChannel(guild.getGuild()).getName());
+                        part.add(modlogChannel.getName());
                         tb.addRow(part);
                     }
                 }
@@ -67,4 +67,8 @@ public class DeleteCommand implements Command {
         return CommandType.MUSIC;
     }
 
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
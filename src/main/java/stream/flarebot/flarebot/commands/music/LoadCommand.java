@@ -4,16 +4,15 @@ import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.TextChannel;
 import net.dv8tion.jda.core.entities.User;
+import stream.flarebot.flarebot.FlareBot;
 import stream.flarebot.flarebot.FlareBotManager;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.commands.CommandType;
-import stream.flarebot.flarebot.music.VideoThread;
+import stream.flarebot.flarebot.music.MusicLoader;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.permissions.Permission;
 import stream.flarebot.flarebot.util.MessageUtils;
 
-import java.util.List;
-
 public class LoadCommand implements Command {
 
     @Override
@@ -24,10 +23,14 @@ public class LoadCommand implements Command {
         }
         String name = MessageUtils.getMessage(args, 0);
 
-        List<String> playlist = FlareBotManager.instance().loadPlaylist(channel, sender, name);
-        if (!playlist.isEmpty())
-            VideoThread.getThread(name + '\u200B' + playlist.toString(), channel, sender).start();
-
+        FlareBotManager.instance().loadPlaylist(channel, sender, name).thenAccept(playlist -> {
+            if (!playlist.isEmpty())
+                MusicLoader.load(name + '\u200B' + playlist.toString(), channel, sender);
+        }).exceptionally(t -> {
+            FlareBot.LOGGER.error("Failed to load playlist " + name + " in guild " + guild.getGuildId(), t);
+            MessageUtils.sendErrorMessage("Failed to load the playlist! Please try again later.", channel, sender);
+            return null;
+        });
 
     }
 
@@ -8,7 +8,7 @@ import net.dv8tion.jda.core.entities.TextChannel;
 import net.dv8tion.jda.core.entities.User;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.commands.CommandType;
-import stream.flarebot.flarebot.music.VideoThread;
+import stream.flarebot.flarebot.music.MusicLoader;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.permissions.Permission;
 import stream.flarebot.flarebot.util.Constants;
@@ -44,10 +44,10 @@ public class PlayCommand implements Command {
                 GuildUtils.joinChannel(channel, member);
             }
             if (args[0].startsWith("http") || args[0].startsWith("www.")) {
-                VideoThread.getThread(args[0], channel, sender).start();
+                MusicLoader.load(args[0], channel, sender);
             } else {
                 String term = MessageUtils.getMessage(args, 0);
-                VideoThread.getSearchThread(term, channel, sender).start();
+                MusicLoader.search(term, channel, sender);
             }
         } else
             MessageUtils.sendUsage(this, channel, sender, args);
@@ -133,4 +133,9 @@ public class PlaylistsCommand implements Command {
     public CommandType getType() {
         return CommandType.MUSIC;
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
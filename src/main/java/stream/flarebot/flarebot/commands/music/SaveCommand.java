@@ -87,4 +87,9 @@ public class SaveCommand implements Command {
     public CommandType getType() {
         return CommandType.MUSIC;
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
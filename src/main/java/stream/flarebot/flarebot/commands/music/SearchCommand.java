@@ -43,4 +43,8 @@ public class SearchCommand implements Command {
         return CommandType.MUSIC;
     }
 
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -62,4 +62,9 @@ public class ChangeAvatarCommand implements InternalCommand {
     public String[] getAliases() {
         return new String[]{"cavatar"};
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
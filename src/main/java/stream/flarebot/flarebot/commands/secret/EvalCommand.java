@@ -219,4 +219,9 @@ public class EvalCommand implements InternalCommand {
         }
         return code;
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -162,4 +162,9 @@ public class GuildCommand implements InternalCommand {
         FlareBotManager.instance().getGuild(guild1.getId()).revokeBlock();
         MessageUtils.sendMessage(MessageType.SUCCESS, "Guild has been unblocked!", channel, 5000);
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -75,4 +75,8 @@ public class QueryCommand implements InternalCommand {
         return CommandType.SECRET;
     }
 
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -17,7 +17,7 @@ import stream.flarebot.flarebot.FlareBotManager;
 import stream.flarebot.flarebot.Getters;
 import stream.flarebot.flarebot.commands.CommandType;
 import stream.flarebot.flarebot.commands.InternalCommand;
-import stream.flarebot.flarebot.music.VideoThread;
+import stream.flarebot.flarebot.music.MusicLoader;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.tasks.VoiceChannelCleanup;
 import stream.flarebot.flarebot.util.MessageUtils;
@@ -55,7 +55,7 @@ public class DebugCommand implements InternalCommand {
                     fb.getUptime(),
                     getMB(Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()),
                     getMB(Runtime.getRuntime().freeMemory()),
-                    VideoThread.VIDEO_THREADS.activeCount(),
+                    MusicLoader.VIDEO_THREADS.activeCount(),
                     Events.COMMAND_THREADS.activeCount(),
                     Thread.getAllStackTraces().size(),
                     fb.getShardManager().getGuildCache().size(),
@@ -77,7 +77,7 @@ public class DebugCommand implements InternalCommand {
                             + "\nTotal Threads: %d"
                             + "\nThread list: %s",
 
-                    VideoThread.VIDEO_THREADS.activeCount(),
+                    MusicLoader.VIDEO_THREADS.activeCount(),
                     Events.COMMAND_THREADS.activeCount(),
                     Thread.getAllStackTraces().size(),
                     MessageUtils.paste(Thread.getAllStackTraces().keySet().stream()
@@ -62,4 +62,9 @@ public class PostUpdateCommand implements InternalCommand {
     public CommandType getType() {
         return CommandType.INTERNAL;
     }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
 }
@@ -4,10 +4,12 @@ import net.dv8tion.jda.core.entities.Member;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.TextChannel;
 import net.dv8tion.jda.core.entities.User;
+import com.datastax.driver.core.Row;
 import org.joda.time.Period;
-import stream.flarebot.flarebot.FlareBot;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.commands.CommandType;
+import stream.flarebot.flarebot.database.CassandraController;
+import stream.flarebot.flarebot.database.CassandraStatement;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.permissions.Permission;
 import stream.flarebot.flarebot.scheduler.FutureAction;
@@ -21,22 +23,26 @@ import stream.flarebot.flarebot.util.pagination.PagedEmbedBuilder;
 import stream.flarebot.flarebot.util.pagination.PaginationUtil;
 
 import java.time.LocalDateTime;
-import java.util.Set;
 import java.util.TimeZone;
 
 public class RemindCommand implements Command {
 
+    // Only reminders due soon are held by the scheduler, the rest are only in the database.
+    private static final CassandraStatement selectReminders = CassandraController.register(new CassandraStatement(
+            "future_tasks_select_responsible",
+            "SELECT * FROM flarebot.future_tasks WHERE guild_id = ? AND responsible = ? ALLOW FILTERING")
+            .setIdempotent(true));
+
     @Override
     public void onCommand(User sender, GuildWrapper guild, TextChannel channel, Message message, String[] args, Member member) {
         if (args.length < 2) {
             if (args.length == 1) {
                 if (args[0].equalsIgnoreCase("list")) {
-                    Set<FutureAction> futureActions = FlareBot.instance().getFutureActions();
-                    StringBuilder actionBuilder = new StringBuilder();
-                    for (FutureAction action : futureActions) {
-                        if ((action.getAction().equals(FutureAction.Action.REMINDER)
-                                || action.getAction().equals(FutureAction.Action.DM_REMINDER))
-                                && action.getResponsible() == sender.getIdLong()) {
+                    CassandraController.query(selectReminders, guild.getGuildIdLong(), sender.getIdLong()).thenAccept(set -> {
+                        StringBuilder actionBuilder = new StringBuilder();
+                        for (Row row : set) {
+                            FutureAction action = FutureAction.fromRow(row);
+                            if (!isReminder(action)) continue;
                             LocalDateTime time = LocalDateTime.ofInstant(action.getExpires().toDate().toInstant(),
                                     TimeZone.getTimeZone("UTC").toZoneId());
                             actionBuilder.append("`").append(FormatUtils.truncate(100, action.getContent()))
@@ -45,21 +51,21 @@ public class RemindCommand implements Command {
                                             GuildUtils.getChannel(String.valueOf(action.getChannelId())).getAsMention()
                                             : "Direct Messages").append("\n\n");
                         }
-                    }
-                    PagedEmbedBuilder<String> pagedEmbedBuilder = new PagedEmbedBuilder<>(PaginationUtil
-                            .splitStringToList(actionBuilder.toString(), PaginationUtil.SplitMethod.CHAR_COUNT, 1000));
-                    pagedEmbedBuilder.setTitle("Reminders for " + MessageUtils.getTag(sender));
-                    PaginationUtil.sendEmbedPagedMessage(pagedEmbedBuilder.build(), 0, channel, sender,
-                            ButtonGroupConstants.REMIND_LIST);
+                        PagedEmbedBuilder<String> pagedEmbedBuilder = new PagedEmbedBuilder<>(PaginationUtil
+                                .splitStringToList(actionBuilder.toString(), PaginationUtil.SplitMethod.CHAR_COUNT, 1000));
+                        pagedEmbedBuilder.setTitle("Reminders for " + MessageUtils.getTag(sender));
+                        PaginationUtil.sendEmbedPagedMessage(pagedEmbedBuilder.build(), 0, channel, sender,
+                                ButtonGroupConstants.REMIND_LIST);
+                    });
                 } else if (args[0].equalsIgnoreCase("clear")) {
-                    Set<FutureAction> futureActions = FlareBot.instance().getFutureActions();
-                    for (FutureAction action : futureActions) {
-                        if ((action.getAction().equals(FutureAction.Action.REMINDER)
-                                || action.getAction().equals(FutureAction.Action.DM_REMINDER))
-                                && action.getResponsible() == sender.getIdLong())
+                    CassandraController.query(selectReminders, guild.getGuildIdLong(), sender.getIdLong()).thenAccept(set -> {
+                        for (Row row : set) {
+                            FutureAction action = FutureAction.fromRow(row);
+                            if (isReminder(action))
                                 action.delete();
-                    }
-                    MessageUtils.sendSuccessMessage("Cleared your reminders successfully", channel, sender);
+                        }
+                        MessageUtils.sendSuccessMessage("Cleared your reminders successfully", channel, sender);
+                    });
                 } else {
                     MessageUtils.sendUsage(this, channel, sender, args);
                 }
@@ -93,6 +99,11 @@ public class RemindCommand implements Command {
         }
     }
 
+    private boolean isReminder(FutureAction action) {
+        return action.getAction().equals(FutureAction.Action.REMINDER)
+                || action.getAction().equals(FutureAction.Action.DM_REMINDER);
+    }
+
     @Override
     public String getCommand() {
         return "remind";
@@ -107,8 +118,8 @@ public class RemindCommand implements Command {
     public String getUsage() {
         return "`{%}remind <duration> <reminder>` - Reminds a user about something after a duration.\n" +
                 "`{%}remind <duration> dm <reminder>` - Reminds a user about something after a duration via Direct Messages.\n" +
-                "`{%}remind list` - Lists your current reminders.\n" +
-                "`{%}remind clear` - Clears your current reminders.";
+                "`{%}remind list` - Lists your current reminders in this server.\n" +
+                "`{%}remind clear` - Clears your current reminders in this server.";
     }
 
     @Override
@@ -2,13 +2,12 @@ package stream.flarebot.flarebot.commands.useful;
 
 import net.dv8tion.jda.core.entities.*;
 import org.apache.commons.lang3.StringUtils;
-import stream.flarebot.flarebot.FlareBotManager;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.commands.CommandType;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.permissions.Permission;
 import stream.flarebot.flarebot.util.MessageUtils;
-import stream.flarebot.flarebot.util.general.VariableUtils;
+import stream.flarebot.flarebot.util.general.VariableTemplate;
 
 import java.awt.Color;
 import java.util.Arrays;
@@ -108,28 +107,15 @@ public class TagsCommand implements Command {
     }
 
     private void sendTag(GuildWrapper wrapper, String tag, User user, TextChannel channel, String[] args) {
-        String msg = parseTag(wrapper.getGuild(), tag, wrapper.getTags().get(tag), user, channel, args);
-        channel.sendMessage(msg).queue();
-    }
-
-    private String parseTag(Guild guild, String tag, String message, User user, TextChannel channel, String[] args) {
-        String parsed = VariableUtils.parseVariables(message, FlareBotManager.instance().getGuild(guild.getId()),
-                channel, user, args);
-        if (message.contains("%user%") || message.contains("%mention%") || message.contains("{%}")
-                || message.contains("%prefix%") || message.contains("%tag%")) {
-            MessageUtils.sendPM(guild.getOwner().getUser(),
+        VariableTemplate template = wrapper.getTagTemplate(tag);
+        if (template == null) return;
+        if (template.hasDeprecatedVariables()) {
+            MessageUtils.sendPM(wrapper.getGuild().getOwner().getUser(),
                     "Your tag '" + tag + "' contains deprecated variables! Please check the docs at the link below " +
                             "for a list of all the variables you can use!\n" +
                             "https://docs.flarebot.stream/variables");
         }
-        // Deprecated values
-        parsed = parsed
-                .replace("%user%", user.getName())
-                .replace("%mention%", user.getAsMention())
-                .replace("{%}", String.valueOf(getPrefix(guild)))
-                .replace("%prefix%", String.valueOf(getPrefix(guild)))
-                .replace("%tag%", tag);
-        return parsed;
+        channel.sendMessage(template.render(wrapper, channel, user, args, tag)).queue();
     }
 
     @Override
@@ -8,11 +8,24 @@ import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Session;
+import com.datastax.driver.core.Statement;
 import com.datastax.driver.core.exceptions.QueryExecutionException;
 import com.datastax.driver.core.exceptions.QueryValidationException;
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.github.binaryoverload.JSONConfig;
+import io.prometheus.client.Histogram;
 import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.metrics.Metrics;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class CassandraController {
 
@@ -20,6 +33,13 @@ public class CassandraController {
     // Cassandra sessions should be kept open, these handle the pooling per node internally.
     private static Session session;
 
+    // Statement name -> statement, every statement in here is prepared once at startup.
+    private static final Map<String, CassandraStatement> statements = new ConcurrentHashMap<>();
+    private static volatile boolean prepared = false;
+    // Futures returned by query are completed on here so callers never run on (or block) the driver's I/O threads.
+    private static final ExecutorService CALLBACK_POOL = Executors.newFixedThreadPool(4, r ->
+            new Thread(r, "Cassandra-Callback"));
+
     private CassandraController() {
     }
 
@@ -28,6 +48,10 @@ public class CassandraController {
                 .withCredentials(config.getString("cassandra.username").get(), config.getString("cassandra.password").get())
                 .withPoolingOptions(new PoolingOptions().setConnectionsPerHost(HostDistance.LOCAL, 2, 4).setConnectionsPerHost(HostDistance.REMOTE, 2, 4));
         config.getArray("cassandra.nodes").ifPresent(array -> array.forEach(ip -> builder.addContactPoint(ip.getAsString())));
+        // Speculative executions are only ever sent for statements marked as idempotent.
+        if (config.getLong("cassandra.speculativeDelay").isPresent())
+            builder.withSpeculativeExecutionPolicy(new ConstantSpeculativeExecutionPolicy(
+                    config.getLong("cassandra.speculativeDelay").getAsLong(), 2));
         cluster = builder.build();
         session = cluster.connect();
     }
@@ -53,6 +77,15 @@ public class CassandraController {
         }
     }
 
+    public static ResultSet execute(Statement statement) {
+        try {
+            return session.execute(statement);
+        } catch (QueryExecutionException | QueryValidationException e) {
+            FlareBot.LOGGER.error("Failed to execute Cassandra query", e);
+            return null;
+        }
+    }
+
     public static ResultSetFuture executeAsync(String query) {
         return session.executeAsync(query);
     }
@@ -61,6 +94,10 @@ public class CassandraController {
         return session.executeAsync(statement);
     }
 
+    public static ResultSetFuture executeAsync(Statement statement) {
+        return session.executeAsync(statement);
+    }
+
     public static PreparedStatement prepare(String query) {
         return session.prepare(query);
     }
@@ -70,6 +107,96 @@ public class CassandraController {
     }
 
 
+    /**
+     * Register a statement, if the registry has already been prepared the statement will be prepared straight away.
+     * Registering a statement with a name which already exists will return the existing statement.
+     *
+     * @param statement The statement to register.
+     * @return The registered statement.
+     */
+    public static CassandraStatement register(CassandraStatement statement) {
+        CassandraStatement existing = statements.putIfAbsent(statement.getName(), statement);
+        if (existing != null)
+            return existing;
+        if (prepared)
+            statement.prepare();
+        return statement;
+    }
+
+    /**
+     * Prepare every registered statement, this should be ran once at startup after the tables have been created.
+     */
+    public static void prepareAll() {
+        for (CassandraStatement statement : statements.values()) {
+            try {
+                statement.prepare();
+            } catch (QueryExecutionException | QueryValidationException e) {
+                FlareBot.LOGGER.error("Failed to prepare statement " + statement.getName(), e);
+            }
+        }
+        prepared = true;
+        FlareBot.LOGGER.info("Prepared " + statements.size() + " Cassandra statements");
+    }
+
+    @Nullable
+    public static CassandraStatement getStatement(String name) {
+        return statements.get(name);
+    }
+
+    /**
+     * Execute a registered statement.
+     *
+     * @param statement The statement to execute.
+     * @param values    The values to bind to the statement.
+     * @return The result set or null if the query failed.
+     */
+    public static ResultSet execute(CassandraStatement statement, Object... values) {
+        Histogram.Timer timer = Metrics.cassandraQueryTime.labels(statement.getName()).startTimer();
+        try {
+            return session.execute(statement.bind(values));
+        } catch (QueryExecutionException | QueryValidationException e) {
+            FlareBot.LOGGER.error("Failed to execute Cassandra query " + statement.getName(), e);
+            return null;
+        } finally {
+            timer.observeDuration();
+        }
+    }
+
+    /**
+     * Execute a registered statement asynchronously.
+     *
+     * @param statement The statement to execute.
+     * @param values    The values to bind to the statement.
+     * @return A future which will complete with the result set or exceptionally if the query failed.
+     */
+    public static CompletableFuture<ResultSet> query(CassandraStatement statement, Object... values) {
+        CompletableFuture<ResultSet> future = new CompletableFuture<>();
+        Histogram.Timer timer = Metrics.cassandraQueryTime.labels(statement.getName()).startTimer();
+        ResultSetFuture resultSetFuture;
+        try {
+            resultSetFuture = session.executeAsync(statement.bind(values));
+        } catch (Exception e) {
+            timer.observeDuration();
+            future.completeExceptionally(e);
+            return future;
+        }
+        Futures.addCallback(resultSetFuture, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(@Nullable ResultSet result) {
+                timer.observeDuration();
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                timer.observeDuration();
+                FlareBot.LOGGER.error("Failed to execute Cassandra query " + statement.getName(), t);
+                future.completeExceptionally(t);
+            }
+        }, CALLBACK_POOL);
+        return future;
+    }
+
     public void close() {
         session.close();
         cluster.close();
@@ -0,0 +1,103 @@
+package stream.flarebot.flarebot.database;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.policies.RetryPolicy;
+
+import java.util.Objects;
+
+/**
+ * A CQL statement registered with {@link CassandraController}. These are prepared once when the controller prepares
+ * its registry and are then bound for every query, the CQL itself is never parsed again.
+ *
+ * Only statements marked as idempotent will be retried by the driver or have speculative executions sent for them.
+ */
+public class CassandraStatement {
+
+    private final String name;
+    private final String query;
+    private int timeout = -1;
+    private boolean idempotent = false;
+    private RetryPolicy retryPolicy;
+
+    private volatile PreparedStatement prepared;
+
+    /**
+     * @param name  The name of the statement, this is used as the label of its latency histogram so keep it short and
+     *              unique, for example "guild_load".
+     * @param query The CQL of this statement.
+     */
+    public CassandraStatement(String name, String query) {
+        Objects.requireNonNull(name, "Name cannot be null!");
+        Objects.requireNonNull(query, "Query cannot be null!");
+        this.name = name;
+        this.query = query;
+    }
+
+    /**
+     * Set the read timeout of this statement, -1 will use the default of the cluster.
+     *
+     * @param timeout The timeout in milliseconds.
+     * @return This statement.
+     */
+    public CassandraStatement setTimeout(int timeout) {
+        this.timeout = timeout;
+        return this;
+    }
+
+    public CassandraStatement setIdempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+        return this;
+    }
+
+    /**
+     * Set the retry policy of this statement, null will use the default of the cluster.
+     *
+     * @param retryPolicy The retry policy to use.
+     * @return This statement.
+     */
+    public CassandraStatement setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public boolean isPrepared() {
+        return prepared != null;
+    }
+
+    /**
+     * Bind values to this statement, this will prepare the statement if it somehow wasn't prepared at startup.
+     *
+     * @param values The values to bind.
+     * @return The bound statement with the options of this statement applied.
+     */
+    public BoundStatement bind(Object... values) {
+        BoundStatement statement = prepare().bind(values);
+        if (timeout != -1)
+            statement.setReadTimeoutMillis(timeout);
+        return statement;
+    }
+
+    PreparedStatement prepare() {
+        if (prepared == null) {
+            synchronized (this) {
+                if (prepared == null) {
+                    PreparedStatement statement = CassandraController.prepare(query);
+                    statement.setIdempotent(idempotent);
+                    if (retryPolicy != null)
+                        statement.setRetryPolicy(retryPolicy);
+                    prepared = statement;
+                }
+            }
+        }
+        return prepared;
+    }
+}
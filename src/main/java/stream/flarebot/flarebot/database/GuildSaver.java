@@ -0,0 +1,279 @@
+package stream.flarebot.flarebot.database;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.objects.GuildWrapper;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind saving for {@link GuildWrapper}s.
+ *
+ * Saves are not written when they are requested, instead the guild is marked as dirty and a single flush thread will
+ * write all dirty guilds every {@link #flushInterval} milliseconds. Saving a guild which is already dirty only replaces
+ * the pending snapshot so a guild being edited in bursts is only written once per flush. What is written for each guild
+ * is decided by {@link GuildStorage}, each guild is written as its own batch so one large guild can't push a batch past
+ * the size Cassandra rejects.
+ *
+ * A guild is only ever being written once at a time. {@link GuildStorage} only writes the sections which changed since
+ * the last write, so a save made while the guild is being written is held back until that write has finished. A write
+ * which fails is made dirty again and retried with a backoff, unless the guild has been saved again since.
+ */
+public class GuildSaver {
+
+    private static final Logger LOGGER = FlareBot.getLog(GuildSaver.class);
+
+    private static final long MAX_BACKOFF = TimeUnit.MINUTES.toMillis(5);
+    private static final int SHUTDOWN_RETRIES = 2;
+
+    private final GuildStorage storage;
+    private final long flushInterval;
+    private final int batchSize;
+    private final int maxPending;
+    private final BackpressurePolicy policy;
+
+    // Guild ID -> pending save, this is what coalesces saves.
+    private final Map<Long, PendingSave> dirty = new ConcurrentHashMap<>();
+    // Guild IDs in the order they became dirty, an ID is only in here once unless it was saved while being written.
+    private final BlockingQueue<Long> order;
+    // Guild IDs which are being written right now.
+    private final Set<Long> writing = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r ->
+            new Thread(r, "Guild-Saver"));
+    private final AtomicBoolean shutdown = new AtomicBoolean(false);
+
+    public GuildSaver(GuildStorage storage) {
+        this(storage, TimeUnit.SECONDS.toMillis(5), 25, 10_000, BackpressurePolicy.CALLER_RUNS);
+    }
+
+    public GuildSaver(GuildStorage storage, long flushInterval, int batchSize, int maxPending, BackpressurePolicy policy) {
+        this.storage = storage;
+        this.flushInterval = flushInterval;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.policy = policy;
+        this.order = new LinkedBlockingQueue<>(maxPending);
+
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush(false);
+            } catch (Exception e) {
+                LOGGER.error("Failed to flush guild saves!", e);
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Mark a guild as dirty, it will be written on the next flush.
+     *
+     * @param guildId       The ID of the guild to save.
+     * @param wrapper       The wrapper to save.
+     * @param lastRetrieved The last retrieved time to store or -1 to use the time of the write.
+     */
+    public void save(long guildId, GuildWrapper wrapper, long lastRetrieved) {
+        if (wrapper == null) return;
+        if (dirty.put(guildId, new PendingSave(guildId, wrapper, lastRetrieved)) != null) {
+            Metrics.guildSaves.labels("coalesced").inc();
+            return;
+        }
+        if (shutdown.get()) {
+            writeNow(guildId);
+            return;
+        }
+        if (!order.offer(guildId) && !(policy == BackpressurePolicy.BLOCK && offerBlocking(guildId))) {
+            // Queue is full and we either don't block or blocking timed out, write it ourselves.
+            Metrics.guildSaves.labels("caller_runs").inc();
+            writeNow(guildId);
+            return;
+        }
+        Metrics.guildSaves.labels("queued").inc();
+        Metrics.guildSavesPending.set(order.size());
+    }
+
+    private boolean offerBlocking(long guildId) {
+        try {
+            return order.offer(guildId, flushInterval, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Write every dirty guild, this will block until all writes have finished. This should be ran when shutting down.
+     */
+    public void shutdown() {
+        if (shutdown.getAndSet(true)) return;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+        LOGGER.info("Flushed all pending guild saves");
+    }
+
+    public int getPending() {
+        return order.size();
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    private void flush(boolean waitForWrites) {
+        List<ResultSetFuture> futures = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(batchSize);
+        while (order.drainTo(ids, batchSize) > 0) {
+            int written = 0;
+            for (Long id : ids) {
+                PendingSave save = claim(id);
+                if (save == null) continue;
+                ResultSetFuture future = write(save);
+                written++;
+                if (waitForWrites)
+                    futures.add(future);
+            }
+            ids.clear();
+            if (written > 0)
+                Metrics.guildSaveBatchSize.observe(written);
+        }
+        Metrics.guildSavesPending.set(order.size());
+
+        for (ResultSetFuture future : futures) {
+            try {
+                future.getUninterruptibly(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                LOGGER.error("Failed to write guild on shutdown!", e);
+            }
+        }
+    }
+
+    /**
+     * Take the pending save of a guild to write it, {@link #finished(long)} must be called once the write is done.
+     *
+     * @return The pending save or null if there is none or the guild is already being written, in which case it will be
+     * queued again once that write has finished.
+     */
+    @Nullable
+    private PendingSave claim(long guildId) {
+        if (!writing.add(guildId)) return null;
+        PendingSave save = dirty.remove(guildId);
+        if (save == null)
+            finished(guildId);
+        return save;
+    }
+
+    private void finished(long guildId) {
+        writing.remove(guildId);
+        requeue(guildId);
+    }
+
+    // Queue a guild again if it was saved while it was being written or is waiting to be retried.
+    private void requeue(long guildId) {
+        if (dirty.containsKey(guildId) && (shutdown.get() || !order.offer(guildId)))
+            writeNow(guildId);
+    }
+
+    private void writeNow(long guildId) {
+        PendingSave save = claim(guildId);
+        if (save != null)
+            write(save);
+    }
+
+    // Each guild is written on its own, the sections of a guild are a single partition so its batch stays on one node.
+    private ResultSetFuture write(PendingSave save) {
+        GuildStorage.GuildWrite write = storage.createWrite(save.wrapper, save.lastRetrieved);
+        ResultSetFuture future = CassandraController.executeAsync(write.getStatement());
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(@Nullable ResultSet result) {
+                write.commit();
+                finished(save.guildId);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                LOGGER.error("Failed to write guild " + save.guildId + " (attempt " + (save.attempts + 1) + ")!", t);
+                Metrics.guildSaves.labels("failed").inc();
+                retry(save);
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    private void retry(PendingSave save) {
+        PendingSave retry = new PendingSave(save.guildId, save.wrapper, save.lastRetrieved, save.attempts + 1);
+        // If the guild was saved again while it was being written that save is newer, it replaces this one.
+        dirty.putIfAbsent(save.guildId, retry);
+        writing.remove(save.guildId);
+
+        if (!shutdown.get()) {
+            long backoff = Math.min(flushInterval << Math.min(retry.attempts - 1, 6), MAX_BACKOFF);
+            try {
+                flusher.schedule(() -> requeue(save.guildId), backoff, TimeUnit.MILLISECONDS);
+                return;
+            } catch (RejectedExecutionException ignored) {
+                // Shut down since we checked.
+            }
+        }
+        // There's no time to back off when shutting down.
+        if (retry.attempts <= SHUTDOWN_RETRIES) {
+            requeue(save.guildId);
+        } else if (dirty.remove(save.guildId, retry)) {
+            LOGGER.error("Gave up writing guild " + save.guildId + " on shutdown after " + retry.attempts
+                    + " attempts!");
+        }
+    }
+
+    public enum BackpressurePolicy {
+        /**
+         * When the queue is full the thread saving the guild will write it directly.
+         */
+        CALLER_RUNS,
+        /**
+         * When the queue is full wait up to one flush interval for space before falling back to {@link #CALLER_RUNS}.
+         */
+        BLOCK
+    }
+
+    private static class PendingSave {
+
+        private final long guildId;
+        private final GuildWrapper wrapper;
+        private final long lastRetrieved;
+        // How many times writing this has failed.
+        private final int attempts;
+
+        PendingSave(long guildId, GuildWrapper wrapper, long lastRetrieved) {
+            this(guildId, wrapper, lastRetrieved, 0);
+        }
+
+        PendingSave(long guildId, GuildWrapper wrapper, long lastRetrieved, int attempts) {
+            this.guildId = guildId;
+            this.wrapper = wrapper;
+            this.lastRetrieved = lastRetrieved;
+            this.attempts = attempts;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package stream.flarebot.flarebot.database;
+
+import com.datastax.driver.core.BatchStatement;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.objects.GuildWrapper;
+
+import javax.annotation.Nullable;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Stores a {@link GuildWrapper} as a set of sections instead of one big JSON blob.
+ *
+ * Each section is its own row in a single partition per guild so a guild can still be loaded with one query. When a
+ * guild is saved each section is hashed and only the sections which have changed since they were last loaded or
+ * written are sent to Cassandra. Changing the prefix of a guild with thousands of warnings will now only rewrite the
+ * core section. Loading reads each section straight into its field rather than joining them back into one blob.
+ *
+ * Guilds which only exist in the old blob table are read from there and migrated on their first save.
+ */
+public class GuildStorage {
+
+    public static final int STORAGE_VERSION = 2;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final String sectionTable;
+
+    private final CassandraStatement loadStatement;
+    private final CassandraStatement loadLegacyStatement;
+    private final CassandraStatement writeStatement;
+    private final CassandraStatement touchStatement;
+
+    public GuildStorage(String legacyTable) {
+        this.sectionTable = legacyTable + "_sections";
+
+        loadStatement = CassandraController.register(new CassandraStatement("guild_load",
+                "SELECT section, data FROM " + sectionTable + " WHERE guild_id = ?")
+                .setIdempotent(true));
+        loadLegacyStatement = CassandraController.register(new CassandraStatement("guild_load_legacy",
+                "SELECT data FROM " + legacyTable + " WHERE guild_id = ?")
+                .setIdempotent(true));
+        writeStatement = CassandraController.register(new CassandraStatement("guild_section_write",
+                "INSERT INTO " + sectionTable + " (guild_id, section, data, version, last_retrieved) VALUES (?, ?, ?, ?, ?)"));
+        touchStatement = CassandraController.register(new CassandraStatement("guild_touch",
+                "UPDATE " + sectionTable + " SET version = ?, last_retrieved = ? WHERE guild_id = ?"));
+    }
+
+    public void executeCreations() {
+        CassandraController.execute("CREATE TABLE IF NOT EXISTS " + sectionTable + " (" +
+                "guild_id varchar, " +
+                "section varchar, " +
+                "data text, " +
+                "version int static, " +
+                "last_retrieved timestamp static, " +
+                "PRIMARY KEY(guild_id, section))");
+    }
+
+    /**
+     * Load the sections of a guild from the section table.
+     *
+     * @param guildId The ID of the guild to load.
+     * @return The loaded sections or null if this guild has not been migrated to sections yet.
+     */
+    @Nullable
+    public StoredGuild load(String guildId) {
+        ResultSet set = CassandraController.execute(loadStatement, guildId);
+        if (set == null) return null;
+
+        String[] data = new String[Section.values().length];
+        long[] hashes = new long[data.length];
+        boolean found = false;
+        for (Row row : set) {
+            Section section = Section.getSection(row.getString("section"));
+            String sectionData = row.getString("data");
+            if (section == null || sectionData == null) continue;
+            found = true;
+            data[section.ordinal()] = sectionData;
+            hashes[section.ordinal()] = hash(sectionData);
+        }
+        return found ? new StoredGuild(guildId, data, hashes) : null;
+    }
+
+    /**
+     * Load the JSON blob of a guild which has not been migrated to sections yet.
+     *
+     * @param guildId The ID of the guild to load.
+     * @return The JSON of the guild or null if the guild has never been saved.
+     */
+    @Nullable
+    public String loadLegacy(String guildId) {
+        ResultSet set = CassandraController.execute(loadLegacyStatement, guildId);
+        Row row = set != null ? set.one() : null;
+        return row != null ? row.getString("data") : null;
+    }
+
+    /**
+     * Create the writes needed to save a guild, only sections which have changed will be written.
+     * {@link GuildWrite#commit()} should be called once the write has succeeded so these sections aren't written again.
+     * The changes are worked out from the last committed write, so a guild must not be written again until its last
+     * write has finished.
+     *
+     * @param wrapper       The guild to save.
+     * @param lastRetrieved The last retrieved time to store or -1 to use the current time.
+     * @return The writes for this guild.
+     */
+    public GuildWrite createWrite(GuildWrapper wrapper, long lastRetrieved) {
+        Date retrieved = new Date(lastRetrieved == -1 ? System.currentTimeMillis() : lastRetrieved);
+        long[] previous = wrapper.getSectionHashes();
+        long[] hashes = new long[Section.values().length];
+
+        JsonObject core = FlareBot.GSON.toJsonTree(wrapper).getAsJsonObject();
+        String[] data = new String[hashes.length];
+        for (Section section : Section.values()) {
+            if (section == Section.CORE) continue;
+            JsonElement element = core.remove(section.getField());
+            data[section.ordinal()] = element == null ? "null" : element.toString();
+        }
+        data[Section.CORE.ordinal()] = core.toString();
+
+        BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+        for (Section section : Section.values()) {
+            hashes[section.ordinal()] = hash(data[section.ordinal()]);
+            if (previous != null && previous[section.ordinal()] == hashes[section.ordinal()]) continue;
+            batch.add(writeStatement.bind(wrapper.getGuildId(), section.getName(), data[section.ordinal()],
+                    STORAGE_VERSION, retrieved));
+        }
+        if (batch.size() == 0)
+            batch.add(touchStatement.bind(STORAGE_VERSION, retrieved, wrapper.getGuildId()));
+        return new GuildWrite(wrapper, batch, hashes);
+    }
+
+    private static long hash(String data) {
+        return HASH.hashString(data, StandardCharsets.UTF_8).asLong();
+    }
+
+    public enum Section {
+        CORE("core", null),
+        SETTINGS("settings", "settings"),
+        PERMISSIONS("permissions", "permissions"),
+        TAGS("tags", "tags"),
+        WARNINGS("warnings", "warnings"),
+        REPORTS("reports", "reportManager"),
+        NINO("nino", "nino"),
+        MODERATION("moderation", "moderation");
+
+        private final String name;
+        private final String field;
+
+        Section(String name, String field) {
+            this.name = name;
+            this.field = field;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return The name of the {@link GuildWrapper} field this section holds, null for the core section.
+         */
+        public String getField() {
+            return field;
+        }
+
+        @Nullable
+        public static Section getSection(String name) {
+            for (Section section : values())
+                if (section.name.equals(name))
+                    return section;
+            return null;
+        }
+    }
+
+    public static class StoredGuild {
+
+        // The GuildWrapper field of each section, null for the core section.
+        private static final Field[] FIELDS = new Field[Section.values().length];
+
+        static {
+            for (Section section : Section.values()) {
+                if (section == Section.CORE) continue;
+                try {
+                    Field field = GuildWrapper.class.getDeclaredField(section.getField());
+                    field.setAccessible(true);
+                    FIELDS[section.ordinal()] = field;
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalStateException("GuildWrapper has no field for section " + section.getName(), e);
+                }
+            }
+        }
+
+        private final String guildId;
+        private final String[] data;
+        private final long[] hashes;
+
+        StoredGuild(String guildId, String[] data, long[] hashes) {
+            this.guildId = guildId;
+            this.data = data;
+            this.hashes = hashes;
+        }
+
+        /**
+         * Read the guild, each section is read by Gson straight into its field. Sections are always written from a
+         * {@link GuildWrapper} so they never need the migrations of the old blobs.
+         *
+         * @return The guild, a section which is missing or was saved as null leaves its field null.
+         */
+        public GuildWrapper toWrapper() {
+            String core = data[Section.CORE.ordinal()];
+            GuildWrapper wrapper = core == null || core.equals("null") ? new GuildWrapper(guildId)
+                    : FlareBot.GSON.fromJson(core, GuildWrapper.class);
+            for (Section section : Section.values()) {
+                String sectionData = data[section.ordinal()];
+                if (section == Section.CORE || sectionData == null) continue;
+                Field field = FIELDS[section.ordinal()];
+                try {
+                    field.set(wrapper, FlareBot.GSON.fromJson(sectionData, field.getGenericType()));
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            return wrapper;
+        }
+
+        public long[] getHashes() {
+            return hashes;
+        }
+    }
+
+    public static class GuildWrite {
+
+        private final GuildWrapper wrapper;
+        private final BatchStatement statement;
+        private final long[] hashes;
+
+        GuildWrite(GuildWrapper wrapper, BatchStatement statement, long[] hashes) {
+            this.wrapper = wrapper;
+            this.statement = statement;
+            this.hashes = hashes;
+        }
+
+        public BatchStatement getStatement() {
+            return statement;
+        }
+
+        public void commit() {
+            wrapper.setSectionHashes(hashes);
+        }
+    }
+}
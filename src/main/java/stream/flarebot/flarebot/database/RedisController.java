@@ -5,18 +5,16 @@ import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisMonitor;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.util.SafeEncoder;
 import stream.flarebot.flarebot.FlareBot;
 
 import java.io.IOException;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 
 public class RedisController {
 
     private static JedisPool jedisPool;
 
-    public static BlockingQueue<RedisSetData> setQueue = new LinkedBlockingQueue<>();
+    private static RedisWriter writer;
 
     private RedisController() {
     }
@@ -47,29 +45,18 @@ public class RedisController {
                 });
             }
         }, "Redis-Monitor").start();
-        Thread setThread = new Thread(() -> {
-            while (!FlareBot.EXITING.get()) {
-                try {
-                    RedisSetData data = RedisController.setQueue.poll(2, TimeUnit.SECONDS);
-                    if (data != null) {
-                        try (Jedis jedis = RedisController.getJedisPool().getResource()) {
-                            data.set(jedis);
-                            FlareBot.LOGGER.debug("Saving redis value with key: " + data.getKey());
-                        }
-                    }
-
-                } catch (Exception e) {
-                    FlareBot.LOGGER.error("Error in set thread!", e);
-                }
-            }
-        }, "Redis-SetThread");
-        setThread.start();
+        int writers = config.getLong("redis.writers").isPresent() ? (int) config.getLong("redis.writers").getAsLong() : 2;
+        writer = new RedisWriter(jedisPool, writers);
     }
 
     public static JedisPool getJedisPool() {
         return jedisPool;
     }
 
+    public static RedisWriter getWriter() {
+        return writer;
+    }
+
     /**
      * Expires a key after a certain amount of time
      *
@@ -163,7 +150,7 @@ public class RedisController {
      * @param value The value to set at the key
      */
     public static void set(String key, String value) {
-        setQueue.add(new RedisSetData(key, value));
+        queue(new RedisSetData(key, value));
     }
 
     /**
@@ -176,7 +163,7 @@ public class RedisController {
      *              Otherwise use {@link RedisController#set(String, String)}
      */
     public static void set(String key, String value, String nxxx) {
-        setQueue.add(new RedisSetData(key, value, nxxx));
+        queue(new RedisSetData(key, value, nxxx));
     }
 
     /**
@@ -193,7 +180,30 @@ public class RedisController {
      * @param time  The expiry time to set
      */
     public static void set(String key, String value, String nxxx, String pxex, long time) {
-        setQueue.add(new RedisSetData(key, value, nxxx, pxex, time));
+        queue(new RedisSetData(key, value, nxxx, pxex, time));
+    }
+
+    /**
+     * Sets a binary value with a specific key in the datebase
+     *
+     * @param key   The key to set
+     * @param value The value to set at the key
+     * @param nxxx  {@code NX} to set the key only if doesn't exist <br>
+     *              {@code XX} to set the key only if it exists <br>
+     *              Otherwise use empty value
+     * @param pxex  {@code PX} to set the expiry in milliseconds <br>
+     *              {@code EX} to set the expiry in seconds <br>
+     *              Otherwise use empty value
+     * @param time  The expiry time to set
+     */
+    public static void set(String key, byte[] value, String nxxx, String pxex, long time) {
+        queue(new RedisSetData(key, value, nxxx, pxex, time));
+    }
+
+    private static void queue(RedisSetData data) {
+        // The writer is only missing if we failed to connect, there is nothing to write to then.
+        if (writer != null)
+            writer.add(data);
     }
 
     /**
@@ -208,6 +218,18 @@ public class RedisController {
         }
     }
 
+    /**
+     * Gets a binary value from the database
+     *
+     * @param key The key to get from redis
+     * @return The value of the key or {@code null} if the key doesn't exist
+     */
+    public static byte[] getBytes(String key) {
+        try (Jedis jedis = jedisPool.getResource()) {
+            return jedis.get(SafeEncoder.encode(key));
+        }
+    }
+
     /**
      * Deletes one or more keys from Eedis
      *
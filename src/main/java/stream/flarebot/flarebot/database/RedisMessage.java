@@ -2,14 +2,19 @@ package stream.flarebot.flarebot.database;
 
 public class RedisMessage {
 
-    private final String messageID;
-    private final String authorID;
-    private final String channelID;
-    private final String guildID;
+    private final long messageID;
+    private final long authorID;
+    private final long channelID;
+    private final long guildID;
     private final String content;
     private final long timestamp;
 
     public RedisMessage(String messageID, String authorID, String channelID, String guildID, String content, long timestamp) {
+        this(Long.parseLong(messageID), Long.parseLong(authorID), Long.parseLong(channelID), Long.parseLong(guildID),
+                content, timestamp);
+    }
+
+    public RedisMessage(long messageID, long authorID, long channelID, long guildID, String content, long timestamp) {
         this.messageID = messageID;
         this.authorID = authorID;
         this.channelID = channelID;
@@ -19,18 +24,34 @@ public class RedisMessage {
     }
 
     public String getMessageID() {
+        return Long.toString(messageID);
+    }
+
+    public long getMessageIDLong() {
         return messageID;
     }
 
     public String getAuthorID() {
+        return Long.toString(authorID);
+    }
+
+    public long getAuthorIDLong() {
         return authorID;
     }
 
     public String getChannelID() {
+        return Long.toString(channelID);
+    }
+
+    public long getChannelIDLong() {
         return channelID;
     }
 
     public String getGuildID() {
+        return Long.toString(guildID);
+    }
+
+    public long getGuildIDLong() {
         return guildID;
     }
 
@@ -0,0 +1,171 @@
+package stream.flarebot.flarebot.database;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Encodes {@link RedisMessage}s for the message cache.
+ *
+ * Layout (big endian):
+ * <pre>
+ * byte    version
+ * byte    flags, {@link #FLAG_COMPRESSED} if the content is deflated
+ * long    message ID
+ * long    author ID
+ * long    channel ID
+ * long    guild ID
+ * long    timestamp (epoch millis)
+ * int     content length in bytes, before compression
+ * [int]   compressed length, only if compressed
+ * byte[]  content as UTF-8
+ * </pre>
+ *
+ * Messages used to be stored as JSON, those are still read until they expire. JSON always starts with '{' which is
+ * never a version byte.
+ */
+public final class RedisMessageCodec {
+
+    private static final byte VERSION = 1;
+    private static final byte FLAG_COMPRESSED = 1;
+
+    private static final int HEADER_SIZE = 2 + Long.BYTES * 5 + Integer.BYTES;
+    // Content smaller than this rarely gets smaller from deflating.
+    private static final int COMPRESS_THRESHOLD = 256;
+
+    private RedisMessageCodec() {
+    }
+
+    public static byte[] encode(RedisMessage message) {
+        byte[] content = message.getContent().getBytes(StandardCharsets.UTF_8);
+        byte[] compressed = content.length >= COMPRESS_THRESHOLD ? deflate(content) : null;
+
+        ByteBuffer buffer;
+        if (compressed != null) {
+            buffer = header(message, FLAG_COMPRESSED, content.length, Integer.BYTES + compressed.length);
+            buffer.putInt(compressed.length);
+            buffer.put(compressed);
+        } else {
+            buffer = header(message, (byte) 0, content.length, content.length);
+            buffer.put(content);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decode a cached message, this reads both the binary and the old JSON format.
+     *
+     * @param data The value from redis.
+     * @return The message.
+     * @throws IllegalArgumentException If the value is not a message in either format.
+     */
+    public static RedisMessage decode(byte[] data) throws IllegalArgumentException {
+        if (data.length > 0 && data[0] == '{')
+            return decodeJson(new String(data, StandardCharsets.UTF_8));
+        if (data.length < HEADER_SIZE)
+            throw new IllegalArgumentException("Cached message is too short! Length: " + data.length);
+
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        byte version = buffer.get();
+        if (version != VERSION)
+            throw new IllegalArgumentException("Unknown cached message version: " + version);
+        byte flags = buffer.get();
+        long messageId = buffer.getLong();
+        long authorId = buffer.getLong();
+        long channelId = buffer.getLong();
+        long guildId = buffer.getLong();
+        long timestamp = buffer.getLong();
+        int length = buffer.getInt();
+
+        String content;
+        if ((flags & FLAG_COMPRESSED) != 0) {
+            int compressedLength = buffer.getInt();
+            content = new String(inflate(data, buffer.position(), compressedLength, length), StandardCharsets.UTF_8);
+        } else {
+            if (buffer.remaining() < length)
+                throw new IllegalArgumentException("Cached message is truncated!");
+            content = new String(data, buffer.position(), length, StandardCharsets.UTF_8);
+        }
+        return new RedisMessage(messageId, authorId, channelId, guildId, content, timestamp);
+    }
+
+    private static ByteBuffer header(RedisMessage message, byte flags, int length, int bodySize) {
+        return ByteBuffer.allocate(HEADER_SIZE + bodySize)
+                .put(VERSION)
+                .put(flags)
+                .putLong(message.getMessageIDLong())
+                .putLong(message.getAuthorIDLong())
+                .putLong(message.getChannelIDLong())
+                .putLong(message.getGuildIDLong())
+                .putLong(message.getTimestamp())
+                .putInt(length);
+    }
+
+    /**
+     * @return The deflated bytes or null if deflating didn't make them smaller.
+     */
+    private static byte[] deflate(byte[] content) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            // If it doesn't fit in less than the input it isn't worth compressing.
+            byte[] out = new byte[content.length];
+            int size = deflater.deflate(out);
+            if (!deflater.finished() || size >= content.length - Integer.BYTES) return null;
+            byte[] result = new byte[size];
+            System.arraycopy(out, 0, result, 0, size);
+            return result;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data, int offset, int length, int originalLength) {
+        if (data.length - offset < length)
+            throw new IllegalArgumentException("Cached message is truncated!");
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data, offset, length);
+            byte[] out = new byte[originalLength];
+            int size = inflater.inflate(out);
+            if (size != originalLength)
+                throw new IllegalArgumentException("Cached message content is corrupt!");
+            return out;
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Cached message content is corrupt!", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static RedisMessage decodeJson(String json) {
+        try {
+            JsonObject object = new JsonParser().parse(json).getAsJsonObject();
+            return new RedisMessage(
+                    get(object, "messageID").getAsString(),
+                    get(object, "authorID").getAsString(),
+                    get(object, "channelID").getAsString(),
+                    get(object, "guildID").getAsString(),
+                    get(object, "content").getAsString(),
+                    get(object, "timestamp").getAsLong()
+            );
+        } catch (JsonParseException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed JSON! " + e.getMessage(), e);
+        }
+    }
+
+    private static JsonElement get(JsonObject object, String path) {
+        JsonElement element = object.get(path);
+        if (element == null || element.isJsonNull())
+            throw new IllegalArgumentException("Malformed JSON! Missing path: " + path);
+        return element;
+    }
+}
@@ -1,11 +1,13 @@
 package stream.flarebot.flarebot.database;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.util.SafeEncoder;
 
 public class RedisSetData {
 
     private String key;
-    private String value;
+    private byte[] value;
     private String nxxx;
     private String pxex;
     private Long time = 0L;
@@ -19,8 +21,12 @@ public class RedisSetData {
     }
 
     public RedisSetData(String key, String value, String nxxx, String pxex, Long time) {
+        this(key, SafeEncoder.encode(value == null ? "" : value), nxxx, pxex, time);
+    }
+
+    public RedisSetData(String key, byte[] value, String nxxx, String pxex, Long time) {
         this.key = key;
-        this.value = (value == null ? "" : value);
+        this.value = (value == null ? new byte[0] : value);
         this.nxxx = (nxxx == null ? "" : nxxx);
         this.pxex = (pxex == null ? "" : pxex);
         this.time = (time == null ? 0L : time);
@@ -30,7 +36,7 @@ public class RedisSetData {
         return nxxx;
     }
 
-    public String getValue() {
+    public byte[] getValue() {
         return value;
     }
 
@@ -47,12 +53,24 @@ public class RedisSetData {
     }
 
     public void set(Jedis jedis) {
-        if ((getNxxx() != null && getPxex() != null) || (getNxxx() == null && getPxex() != null)) {
-            jedis.set(getKey(), getValue(), getNxxx(), getPxex(), getTime());
-        } else if (getNxxx() != null) {
-            jedis.set(getKey(), getValue(), getNxxx());
+        byte[] key = SafeEncoder.encode(getKey());
+        if (!getPxex().isEmpty()) {
+            jedis.set(key, getValue(), SafeEncoder.encode(getNxxx()), SafeEncoder.encode(getPxex()), getTime());
+        } else if (!getNxxx().isEmpty()) {
+            jedis.set(key, getValue(), SafeEncoder.encode(getNxxx()));
+        } else {
+            jedis.set(key, getValue());
+        }
+    }
+
+    public void set(Pipeline pipeline) {
+        byte[] key = SafeEncoder.encode(getKey());
+        if (!getPxex().isEmpty()) {
+            pipeline.set(key, getValue(), SafeEncoder.encode(getNxxx()), SafeEncoder.encode(getPxex()), getTime());
+        } else if (!getNxxx().isEmpty()) {
+            pipeline.set(key, getValue(), SafeEncoder.encode(getNxxx()));
         } else {
-            jedis.set(getKey(), getValue());
+            pipeline.set(key, getValue());
         }
     }
 }
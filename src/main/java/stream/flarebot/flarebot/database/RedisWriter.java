@@ -0,0 +1,167 @@
+package stream.flarebot.flarebot.database;
+
+import org.slf4j.Logger;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes queued sets to Redis in pipelines.
+ *
+ * Each writer thread waits for a set and then keeps taking sets until it has {@link #batchSize} of them or
+ * {@link #maxDelay} milliseconds have passed since the first one, the whole batch is then sent as one pipeline. This
+ * turns one round trip per message into one round trip per batch.
+ *
+ * Every writer has its own queue and a set always goes to the writer its key hashes to, so the sets of a key are written
+ * in the order they were added. This matters for conditional sets, an XX set written before the NX set of the same key
+ * would do nothing.
+ *
+ * The queues are bounded, what happens when one is full is decided by the {@link ShedPolicy}. Everything written through
+ * here is a cache so losing a set is preferred over running out of memory.
+ */
+public class RedisWriter {
+
+    private static final Logger LOGGER = FlareBot.getLog(RedisWriter.class);
+
+    private final JedisPool pool;
+    private final int batchSize;
+    private final long maxDelay;
+    private final ShedPolicy policy;
+    private final List<BlockingQueue<RedisSetData>> queues;
+    private final Thread[] writers;
+    private volatile boolean running = true;
+
+    public RedisWriter(JedisPool pool, int writers) {
+        this(pool, writers, 500, 50, 100_000, ShedPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * @param pool       The pool to take connections from, each writer holds one connection while sending a batch.
+     * @param writers    The amount of writer threads.
+     * @param batchSize  The most sets to send in a single pipeline.
+     * @param maxDelay   The most time in milliseconds a writer waits to fill a batch.
+     * @param maxPending The most sets which can be waiting to be written, this is split evenly between the writers.
+     * @param policy     What to do with a set when the queue is full.
+     */
+    public RedisWriter(JedisPool pool, int writers, int batchSize, long maxDelay, int maxPending, ShedPolicy policy) {
+        this.pool = pool;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.policy = policy;
+        this.queues = new ArrayList<>(writers);
+        this.writers = new Thread[writers];
+        for (int i = 0; i < writers; i++) {
+            BlockingQueue<RedisSetData> queue = new ArrayBlockingQueue<>(Math.max(1, maxPending / writers));
+            queues.add(queue);
+            this.writers[i] = new Thread(() -> run(queue), "Redis-Writer-" + i);
+            this.writers[i].start();
+        }
+    }
+
+    /**
+     * Queue a set to be written.
+     *
+     * @return False if the set, or an older one if the policy is {@link ShedPolicy#DROP_OLDEST}, was dropped.
+     */
+    public boolean add(RedisSetData data) {
+        BlockingQueue<RedisSetData> queue = queues.get(Math.floorMod(data.getKey().hashCode(), queues.size()));
+        if (queue.offer(data)) return true;
+        if (policy == ShedPolicy.DROP_OLDEST) {
+            // Someone else may take the space we free up, in that case this set is dropped as well.
+            queue.poll();
+            Metrics.redisSetsDropped.inc();
+            if (queue.offer(data)) return false;
+        }
+        Metrics.redisSetsDropped.inc();
+        return false;
+    }
+
+    public int getPending() {
+        int pending = 0;
+        for (BlockingQueue<RedisSetData> queue : queues)
+            pending += queue.size();
+        return pending;
+    }
+
+    /**
+     * Stop the writers, every set which is still queued is written before they stop.
+     */
+    public void shutdown() {
+        running = false;
+        for (Thread writer : writers) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void run(BlockingQueue<RedisSetData> queue) {
+        List<RedisSetData> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                RedisSetData first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                fill(queue, batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                LOGGER.error("Failed to write " + batch.size() + " sets to redis!", e);
+            } finally {
+                batch.clear();
+                Metrics.redisSetsPending.set(getPending());
+            }
+        }
+    }
+
+    private void fill(BlockingQueue<RedisSetData> queue, List<RedisSetData> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxDelay);
+        while (batch.size() < batchSize) {
+            // Take everything that is already waiting before waiting on anything else.
+            if (queue.drainTo(batch, batchSize - batch.size()) > 0) continue;
+            long wait = deadline - System.nanoTime();
+            if (wait <= 0 || !running) return;
+            RedisSetData next = queue.poll(wait, TimeUnit.NANOSECONDS);
+            if (next == null) return;
+            batch.add(next);
+        }
+    }
+
+    private void write(List<RedisSetData> batch) {
+        long start = System.nanoTime();
+        try (Jedis jedis = pool.getResource()) {
+            Pipeline pipeline = jedis.pipelined();
+            for (RedisSetData data : batch)
+                data.set(pipeline);
+            pipeline.sync();
+        }
+        Metrics.redisFlushTime.observe((System.nanoTime() - start) / 1e9);
+        Metrics.redisBatchSize.observe(batch.size());
+        LOGGER.debug("Wrote {} sets to redis", batch.size());
+    }
+
+    public enum ShedPolicy {
+        /**
+         * When the queue is full the new set is dropped.
+         */
+        DROP_NEWEST,
+        /**
+         * When the queue is full the oldest waiting set is dropped to make space. For the message cache the newest
+         * messages are the most likely to be edited or deleted so this is usually what should be used.
+         */
+        DROP_OLDEST
+    }
+}
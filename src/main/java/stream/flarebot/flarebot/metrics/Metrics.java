@@ -67,6 +67,24 @@ public class Metrics {
             .labelNames("op_code", "event_name", "type")
             .register();
 
+    public static final Counter websocketBytes = Counter.build()
+            .name("flarebot_websocket_bytes_total")
+            .help("Total number of WebSocket payload bytes sent and received")
+            .labelNames("shard", "type", "direction") // type is web or voice, direction is sent or received
+            .register();
+
+    public static final Counter websocketFrames = Counter.build()
+            .name("flarebot_websocket_frames_total")
+            .help("Total number of WebSocket frames sent and received")
+            .labelNames("shard", "type", "direction")
+            .register();
+
+    public static final Gauge gatewayRateLimitHeadroom = Gauge.build()
+            .name("flarebot_gateway_ratelimit_headroom")
+            .help("Payloads a shard can still send to the gateway in the current minute")
+            .labelNames("shard")
+            .register();
+
     public static final Counter failedRestActions = Counter.build()
             .name("flarebot_rest_actions_total")
             .help("Total number of failed restactions executed by FlareBot")
@@ -80,15 +98,92 @@ public class Metrics {
     public static final Counter blocksGivenOut = Counter.build()
             .name("flarebot_guild_blocked_total")
             .help("Total number of times we've blocked guilds")
-            .labelNames("guild_id")
             .register();
 
+    // The guilds blocked the most, exported by BotCollector.
+    public static final TopK blockedGuilds = new TopK(100);
+
     public static final Counter buttonsPressed = Counter.build()
             .name("flarebot_buttons_pressed_total")
             .help("Total number of times a button was pressed")
             .labelNames("button", "button_group")
             .register();
 
+    public static final Gauge interactiveComponents = Gauge.build()
+            .name("flarebot_interactive_components")
+            .help("Live interactive components")
+            .labelNames("type") // buttons, votes or confirmations
+            .register();
+
+    // Modlog
+    public static final Gauge modlogBacklog = Gauge.build()
+            .name("flarebot_modlog_backlog")
+            .help("Modlog entries waiting to be sent, the guilds with the most are exported by BotCollector")
+            .register();
+
+    public static final Counter modlogMessagesSent = Counter.build()
+            .name("flarebot_modlog_messages_total")
+            .help("Total modlog messages sent")
+            .labelNames("type") // embed, digest or text
+            .register();
+
+    public static final Counter modlogEntriesDropped = Counter.build()
+            .name("flarebot_modlog_entries_dropped_total")
+            .help("Total modlog entries dropped because their channel had too many waiting")
+            .register();
+
+    public static final Counter auditLogFetches = Counter.build()
+            .name("flarebot_audit_log_fetches_total")
+            .help("Total audit log pages fetched to find the entries of modlog events")
+            .register();
+
+    public static final Counter auditLogLookups = Counter.build()
+            .name("flarebot_audit_log_lookups_total")
+            .help("Total audit log entry lookups for modlog events")
+            .labelNames("result") // cached, fetched, timeout or failed
+            .register();
+
+    // Guild cache
+    public static final Counter guildCacheRequests = Counter.build()
+            .name("flarebot_guild_cache_requests_total")
+            .help("Total amount of guild cache lookups")
+            .labelNames("result") // hit or miss
+            .register();
+
+    public static final Histogram guildLoadTime = Histogram.build()
+            .name("flarebot_guild_load_duration_seconds")
+            .help("Time taken to load a guild into the cache in seconds")
+            .register();
+
+    public static final Counter guildSaves = Counter.build()
+            .name("flarebot_guild_saves_total")
+            .help("Total amount of guild saves requested")
+            .labelNames("result") // queued, coalesced, caller_runs or failed
+            .register();
+
+    public static final Gauge guildSavesPending = Gauge.build()
+            .name("flarebot_guild_saves_pending")
+            .help("Amount of dirty guilds waiting to be written")
+            .register();
+
+    public static final Histogram guildSaveBatchSize = Histogram.build()
+            .name("flarebot_guild_save_batch_size")
+            .help("Amount of guilds written at once by a flush")
+            .buckets(1, 5, 10, 25, 50, 100)
+            .register();
+
+    // Scheduler
+    public static final Gauge scheduledTasks = Gauge.build()
+            .name("flarebot_scheduled_tasks")
+            .help("Tasks waiting in the scheduler")
+            .register();
+
+    public static final Histogram schedulerLag = Histogram.build()
+            .name("flarebot_scheduler_lag_seconds")
+            .help("Time between when a task was due and when it started running in seconds")
+            .buckets(.01, .05, .1, .25, .5, 1, 2.5, 5, 10, 30)
+            .register();
+
     // Commands
     public static final Counter commandsReceived = Counter.build()
             .name("flarebot_commands_received_total")
@@ -105,6 +200,24 @@ public class Metrics {
     public static final Histogram commandExecutionTime = Histogram.build()
             .name("flarebot_command_execution_duration_seconds")
             .help("Command execution time in seconds")
+            .labelNames("type") // The lower cased CommandType, histograms per command would be a series per bucket
+            .register();
+
+    public static final Histogram commandQueueTime = Histogram.build()
+            .name("flarebot_command_queue_duration_seconds")
+            .help("Time commands spent waiting to be executed in seconds")
+            .labelNames("lane")
+            .register();
+
+    public static final Gauge commandsRunning = Gauge.build()
+            .name("flarebot_commands_running")
+            .help("Commands currently running on each lane of the command executor")
+            .labelNames("lane")
+            .register();
+
+    public static final Counter commandsRejected = Counter.build()
+            .name("flarebot_commands_rejected_total")
+            .help("Commands which were rejected because their guild had too many queued")
             .labelNames("class")
             .register();
 
@@ -115,7 +228,27 @@ public class Metrics {
             .register();
 
     // Music
-    // TODO
+    public static final Counter trackCacheRequests = Counter.build()
+            .name("flarebot_track_cache_requests_total")
+            .help("Total amount of track cache lookups")
+            .labelNames("cache", "result") // cache is items or searches, result is hit or miss
+            .register();
+
+    public static final Gauge musicLoadsPending = Gauge.build()
+            .name("flarebot_music_loads_pending")
+            .help("Music loads waiting to be ran")
+            .register();
+
+    public static final Counter musicLoadsSuperseded = Counter.build()
+            .name("flarebot_music_loads_superseded_total")
+            .help("Total waiting music loads replaced by a newer request")
+            .register();
+
+    public static final Histogram musicTimeToFirstTrack = Histogram.build()
+            .name("flarebot_music_time_to_first_track_seconds")
+            .help("Time from a music load being requested to its first track being queued in seconds")
+            .buckets(0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30)
+            .register();
 
     public static final Counter voiceChannelsCleanedUp = Counter.build()
             .name("flarebot_music_voicechannels_cleanedup_total")
@@ -127,6 +260,45 @@ public class Metrics {
             .help("Total inactive players that were cleaned up")
             .register();
 
+    /*
+     * Cassandra
+     */
+    public static final Histogram cassandraQueryTime = Histogram.build()
+            .name("flarebot_cassandra_query_duration_seconds")
+            .help("Cassandra query time in seconds")
+            .labelNames("statement") // The name of the registered statement
+            .register();
+
+    /*
+     * Redis
+     */
+    public static final Counter messageCacheRequests = Counter.build()
+            .name("flarebot_message_cache_requests_total")
+            .help("Total amount of message cache lookups")
+            .labelNames("tier") // local, redis or miss
+            .register();
+
+    public static final Gauge redisSetsPending = Gauge.build()
+            .name("flarebot_redis_sets_pending")
+            .help("Sets waiting to be written to redis")
+            .register();
+
+    public static final Counter redisSetsDropped = Counter.build()
+            .name("flarebot_redis_sets_dropped_total")
+            .help("Total sets dropped because the redis write queue was full")
+            .register();
+
+    public static final Histogram redisFlushTime = Histogram.build()
+            .name("flarebot_redis_flush_duration_seconds")
+            .help("Time taken to write a pipeline of sets to redis in seconds")
+            .register();
+
+    public static final Histogram redisBatchSize = Histogram.build()
+            .name("flarebot_redis_batch_size")
+            .help("Amount of sets written in a single pipeline")
+            .buckets(1, 10, 50, 100, 250, 500)
+            .register();
+
     /*
      * HTTP
      */
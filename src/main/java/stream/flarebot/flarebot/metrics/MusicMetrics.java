@@ -0,0 +1,105 @@
+package stream.flarebot.flarebot.metrics;
+
+import com.arsenarsen.lavaplayerbridge.player.Player;
+import net.dv8tion.jda.core.entities.Guild;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.Getters;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Voice connection and queue counts kept up to date by events, so reading them doesn't mean walking every guild.
+ *
+ * Connections are tracked from our own voice join and leave events and players from their track and pause events.
+ * The music bridge doesn't have an event for songs being queued so the queue size of a guild is taken whenever one of
+ * its tracks starts or ends. {@link #reconcile()} rebuilds everything from the real state and should be ran now and
+ * then to correct anything the events missed.
+ */
+public class MusicMetrics {
+
+    private static final Set<Long> connected = ConcurrentHashMap.newKeySet();
+    private static final Set<Long> playing = ConcurrentHashMap.newKeySet();
+    private static final Map<Long, Integer> queued = new ConcurrentHashMap<>();
+    private static final AtomicLong queuedTotal = new AtomicLong();
+
+    private MusicMetrics() {
+    }
+
+    public static void onConnected(long guildId) {
+        connected.add(guildId);
+    }
+
+    public static void onDisconnected(long guildId) {
+        connected.remove(guildId);
+        playing.remove(guildId);
+    }
+
+    /**
+     * Take the current state of a player, this should be called from its events.
+     */
+    public static void onPlayerUpdate(long guildId, boolean isPlaying, int queueSize) {
+        if (isPlaying)
+            playing.add(guildId);
+        else
+            playing.remove(guildId);
+        setQueued(guildId, queueSize);
+    }
+
+    public static void onPlayerRemoved(long guildId) {
+        playing.remove(guildId);
+        setQueued(guildId, 0);
+    }
+
+    /**
+     * @return The amount of guilds we are connected to voice in.
+     */
+    public static long getConnected() {
+        return connected.size();
+    }
+
+    /**
+     * @return The amount of guilds we are playing music in.
+     */
+    public static long getPlaying() {
+        return playing.size();
+    }
+
+    public static long getQueued() {
+        return queuedTotal.get();
+    }
+
+    /**
+     * Rebuild the counts from the guilds and players, this walks every guild so should not be ran often.
+     */
+    public static void reconcile() {
+        if (FlareBot.instance().getShardManager() == null) return;
+        Set<Long> nowConnected = ConcurrentHashMap.newKeySet();
+        for (Guild guild : Getters.getGuildCache()) {
+            if (guild.getAudioManager().getConnectedChannel() != null)
+                nowConnected.add(guild.getIdLong());
+        }
+        connected.retainAll(nowConnected);
+        connected.addAll(nowConnected);
+
+        Set<Long> players = ConcurrentHashMap.newKeySet();
+        for (Player player : FlareBot.instance().getMusicManager().getPlayers()) {
+            long guildId = Long.parseLong(player.getGuildId());
+            players.add(guildId);
+            onPlayerUpdate(guildId, nowConnected.contains(guildId) && player.getPlayingTrack() != null
+                    && !player.getPaused(), player.getPlaylist().size());
+        }
+        for (Long guildId : queued.keySet()) {
+            if (!players.contains(guildId))
+                onPlayerRemoved(guildId);
+        }
+    }
+
+    private static void setQueued(long guildId, int size) {
+        // Every put returns the value it replaced so the deltas always add up to the sum of the map.
+        Integer old = size == 0 ? queued.remove(guildId) : queued.put(guildId, size);
+        queuedTotal.addAndGet(size - (old == null ? 0 : old));
+    }
+}
@@ -0,0 +1,61 @@
+package stream.flarebot.flarebot.metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the most frequent IDs in a stream using a fixed amount of memory, this is used instead of labelling a metric
+ * by guild ID which would create a series for every guild.
+ *
+ * This is the space saving algorithm, {@link #capacity} counters are kept and when a new ID is seen while they are all
+ * in use the smallest counter is taken over by the new ID. The counts of the IDs at the top are exact as long as they
+ * are seen more than the IDs which come and go at the bottom, which is what matters for finding the guilds causing
+ * the most blocks.
+ */
+public class TopK {
+
+    private final int capacity;
+    // Guarded by this.
+    private final Map<Long, long[]> counters;
+
+    public TopK(int capacity) {
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public synchronized void offer(long id) {
+        long[] counter = counters.get(id);
+        if (counter != null) {
+            counter[0]++;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(id, new long[]{1});
+            return;
+        }
+        Long minId = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<Long, long[]> entry : counters.entrySet()) {
+            if (entry.getValue()[0] < min) {
+                min = entry.getValue()[0];
+                minId = entry.getKey();
+            }
+        }
+        counters.remove(minId);
+        counters.put(id, new long[]{min + 1});
+    }
+
+    /**
+     * @param k The amount of IDs to get, at most the capacity.
+     * @return The top IDs, highest count first. Each entry is the ID and its count.
+     */
+    public synchronized List<long[]> top(int k) {
+        List<long[]> top = new ArrayList<>(counters.size());
+        for (Map.Entry<Long, long[]> entry : counters.entrySet())
+            top.add(new long[]{entry.getKey(), entry.getValue()[0]});
+        top.sort((a, b) -> Long.compare(b[1], a[1]));
+        return top.size() > k ? top.subList(0, k) : top;
+    }
+}
@@ -2,24 +2,61 @@ package stream.flarebot.flarebot.metrics.collectors;
 
 import io.prometheus.client.Collector;
 import io.prometheus.client.GaugeMetricFamily;
-import stream.flarebot.flarebot.Getters;
 import stream.flarebot.flarebot.metrics.BotMetrics;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.metrics.MusicMetrics;
+import stream.flarebot.flarebot.mod.modlog.ModlogHandler;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Collects the bot wide gauges.
+ *
+ * Collecting has a budget, the samples are reused for at least {@link #minInterval} and if a collection took a long
+ * time they are reused for {@link #COST_FACTOR} times as long as it took. A slow collection can then never take more
+ * than a small share of the time between scrapes no matter how often we are scraped.
+ */
 public class BotCollector extends Collector {
 
+    private static final int COST_FACTOR = 20;
+    private static final int TOP_BLOCKED_GUILDS = 10;
+    private static final int TOP_MODLOG_BACKLOG = 10;
+
     private final BotMetrics botMetrics;
+    private final long minInterval;
+
+    // Guarded by this.
+    private List<MetricFamilySamples> cached = Collections.emptyList();
+    private long nextCollect;
+    private long lastCost;
 
     public BotCollector(BotMetrics botMetrics) {
+        this(botMetrics, TimeUnit.SECONDS.toMillis(10));
+    }
+
+    public BotCollector(BotMetrics botMetrics, long minInterval) {
         this.botMetrics = botMetrics;
+        this.minInterval = minInterval;
+        this.nextCollect = System.nanoTime();
     }
 
     @Override
-    public List<MetricFamilySamples> collect() {
+    public synchronized List<MetricFamilySamples> collect() {
+        long now = System.nanoTime();
+        if (now - nextCollect < 0)
+            return withCost(cached);
+
+        cached = collectSamples();
+        lastCost = System.nanoTime() - now;
+        nextCollect = now + Math.max(TimeUnit.MILLISECONDS.toNanos(minInterval), lastCost * COST_FACTOR);
+        return withCost(cached);
+    }
 
+    private List<MetricFamilySamples> collectSamples() {
         List<MetricFamilySamples> familySamples = new ArrayList<>();
 
         GaugeMetricFamily jdaEntities = new GaugeMetricFamily("flarebot_jda_entities_total", "Amount of JDA entities",
@@ -35,12 +72,36 @@ public class BotCollector extends Collector {
             jdaEntities.addMetric(Collections.singletonList("users"), botMetrics.getUserCount());
             jdaEntities.addMetric(Collections.singletonList("text_channels"), botMetrics.getTextChannelCount());
             jdaEntities.addMetric(Collections.singletonList("voice_channels"), botMetrics.getVoiceChannelCount());
-
-            playerInfo.addMetric(Collections.singletonList("connected_voice_channels"), Getters.getConnectedVoiceChannels());
-            playerInfo.addMetric(Collections.singletonList("active_voice_channels"), Getters.getActiveVoiceChannels());
-            playerInfo.addMetric(Collections.singletonList("songs_queued"), Getters.getSongsQueued());
         }
 
+        playerInfo.addMetric(Collections.singletonList("connected_voice_channels"), MusicMetrics.getConnected());
+        playerInfo.addMetric(Collections.singletonList("active_voice_channels"), MusicMetrics.getPlaying());
+        playerInfo.addMetric(Collections.singletonList("songs_queued"), MusicMetrics.getQueued());
+
+        // Only the top guilds are labelled so the amount of series stays bounded.
+        GaugeMetricFamily topBlocked = new GaugeMetricFamily("flarebot_guild_blocked_top",
+                "Guilds which have been blocked the most since startup", Arrays.asList("rank", "guild_id"));
+        List<long[]> top = Metrics.blockedGuilds.top(TOP_BLOCKED_GUILDS);
+        for (int i = 0; i < top.size(); i++)
+            topBlocked.addMetric(Arrays.asList(String.valueOf(i + 1), String.valueOf(top.get(i)[0])), top.get(i)[1]);
+        familySamples.add(topBlocked);
+
+        GaugeMetricFamily topBacklog = new GaugeMetricFamily("flarebot_modlog_backlog_top",
+                "Guilds with the most modlog entries waiting to be sent", Arrays.asList("rank", "guild_id"));
+        List<long[]> backlog = ModlogHandler.getInstance().getDelivery().getTopBacklog(TOP_MODLOG_BACKLOG);
+        for (int i = 0; i < backlog.size(); i++)
+            topBacklog.addMetric(Arrays.asList(String.valueOf(i + 1), String.valueOf(backlog.get(i)[0])),
+                    backlog.get(i)[1]);
+        familySamples.add(topBacklog);
+
         return familySamples;
     }
+
+    private List<MetricFamilySamples> withCost(List<MetricFamilySamples> samples) {
+        List<MetricFamilySamples> result = new ArrayList<>(samples.size() + 1);
+        result.addAll(samples);
+        result.add(new GaugeMetricFamily("flarebot_collector_duration_seconds",
+                "Time the last collection of the bot gauges took in seconds", lastCost / 1e9));
+        return result;
+    }
 }
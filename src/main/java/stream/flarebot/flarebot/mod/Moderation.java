@@ -13,6 +13,8 @@ public class Moderation {
     // Having this as something like a Map<Long, Set<ModlogAction>> and having that as the channel ID would make a
     // little more sense memory wise but efficiency wise it is much better to get the channel from the action itself.
     private Set<ModlogAction> enabledActions;
+    // The enabled action of each event indexed by ordinal for lookups, rebuilt when enabledActions is changed.
+    private transient volatile ModlogAction[] routes;
 
     /**
      * Check if the passed channel ID is a "valid", this means that the channel ID belongs to that guild and that it
@@ -38,18 +40,32 @@ public class Moderation {
         return enabledActions;
     }
 
+    /**
+     * Get the action of an event, this holds the channel it posts to and if it is compacted. Channels are not checked
+     * here, they are removed when deleted with {@link #onChannelDelete(long)}.
+     *
+     * @param event The event to get the action of.
+     * @return The action of the event or null if it isn't enabled.
+     */
+    public ModlogAction getAction(ModlogEvent event) {
+        ModlogAction[] lookup = routes;
+        if (lookup == null)
+            lookup = buildRoutes();
+        return lookup[event.ordinal()];
+    }
+
+    // Synchronized with the changes to enabledActions so a change can't be missed by a rebuild running at the time.
+    private synchronized ModlogAction[] buildRoutes() {
+        if (routes != null) return routes;
+        ModlogAction[] lookup = new ModlogAction[ModlogEvent.values.length];
+        for (ModlogAction action : getEnabledActions())
+            lookup[action.getEvent().ordinal()] = action;
+        routes = lookup;
+        return lookup;
+    }
+
     public boolean isEventEnabled(GuildWrapper wrapper, ModlogEvent event) {
-        for (ModlogAction action : getEnabledActions()) {
-            if (action.getEvent() == event) {
-                if (isValidChannelId(wrapper, action.getModlogChannelId()))
-                    return true;
-                else {
-                    getEnabledActions().remove(action);
-                    return false;
-                }
-            }
-        }
-        return false;
+        return getAction(event) != null;
     }
 
     /**
@@ -62,9 +78,12 @@ public class Moderation {
      * @param event     The Event to be enabled and set in a certain channel.
      * @return This will either return true or false which indicated if it was successful.
      */
-    public boolean enableEvent(GuildWrapper wrapper, long channelId, ModlogEvent event) {
+    public synchronized boolean enableEvent(GuildWrapper wrapper, long channelId, ModlogEvent event) {
         disableEvent(event);
-        return channelId != -1 && isValidChannelId(wrapper, channelId) && getEnabledActions().add(event.getAction(channelId));
+        boolean enabled = channelId != -1 && isValidChannelId(wrapper, channelId)
+                && getEnabledActions().add(event.getAction(channelId));
+        this.routes = null;
+        return enabled;
     }
 
     public void enableAllEvents(GuildWrapper wrapper, long channelId) {
@@ -79,12 +98,24 @@ public class Moderation {
         }
     }
 
-    public void disableEvent(ModlogEvent event) {
+    public synchronized void disableEvent(ModlogEvent event) {
         getEnabledActions().removeIf(action -> action.getEvent() == event);
+        this.routes = null;
     }
 
-    public void disableAllEvents() {
+    public synchronized void disableAllEvents() {
         this.enabledActions = new ConcurrentSet<>();
+        this.routes = null;
+    }
+
+    /**
+     * Disable every event posting to a channel, this is called when a channel of the guild is deleted.
+     *
+     * @param channelId The ID of the deleted channel.
+     */
+    public synchronized void onChannelDelete(long channelId) {
+        if (getEnabledActions().removeIf(action -> action.getModlogChannelId() == channelId))
+            this.routes = null;
     }
 
     public void disableDefaultEvents() {
@@ -95,17 +126,14 @@ public class Moderation {
     }
 
     public boolean isEventCompacted(ModlogEvent modlogEvent) {
-        for (ModlogAction action : getEnabledActions()) {
-            if (action.getEvent() == modlogEvent)
-                return action.isCompacted();
-        }
-        return false;
+        ModlogAction action = getAction(modlogEvent);
+        return action != null && action.isCompacted();
     }
 
     public boolean setEventCompact(ModlogEvent modlogEvent, boolean b) {
-        for (ModlogAction action : getEnabledActions())
-            if (action.getEvent() == modlogEvent)
-                action.setCompacted(b);
+        ModlogAction action = getAction(modlogEvent);
+        if (action != null)
+            action.setCompacted(b);
         return b;
     }
 
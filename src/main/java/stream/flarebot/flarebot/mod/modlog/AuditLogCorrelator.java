@@ -0,0 +1,251 @@
+package stream.flarebot.flarebot.mod.modlog;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import net.dv8tion.jda.core.audit.ActionType;
+import net.dv8tion.jda.core.audit.AuditLogEntry;
+import net.dv8tion.jda.core.entities.Guild;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.util.general.GeneralUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the audit log entry behind an event, used by the modlog to find out who did something and why.
+ *
+ * The recent entries of a guild are kept by action type and target so events which happen together, like a lot of
+ * channels being deleted, are all matched from the same page of entries. When an event has no entry yet it waits for
+ * the next fetch of its guild, a guild is only fetched once every {@link #fetchInterval} no matter how many events are
+ * waiting. If nothing matched within {@link #maxWait} the event is given null.
+ *
+ * An event only matches an entry made at most {@link #SKEW} before it and each entry is only given to one event, so
+ * an entry isn't credited for a later change to the same target. Several events can come from one entry (a role edit
+ * fires an event per change), only the first gets the entry and the rest are given null.
+ *
+ * Discord adds to the count of a recent message delete entry rather than making a new one. An entry with a higher
+ * count than when it was last seen is matched again, as long as that was seen since the event, otherwise it can't be
+ * told apart from older deletes.
+ */
+public class AuditLogCorrelator {
+
+    private static final AuditLogCorrelator instance = new AuditLogCorrelator(1000, 3000);
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r ->
+            new Thread(r, "Audit-Log-Correlator"));
+
+    private static final int PAGE_SIZE = 100;
+    private static final int ENTRIES_PER_TYPE = 100;
+    // How much older than its event an entry can be, this covers the time taken to get the event and clock drift.
+    private static final long SKEW = TimeUnit.SECONDS.toMillis(3);
+
+    private final long fetchInterval;
+    private final long maxWait;
+
+    private final Cache<Long, GuildAudit> guilds = CacheBuilder.newBuilder()
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .build();
+
+    /**
+     * @param fetchInterval The least time in milliseconds between fetches of a guild.
+     * @param maxWait       The most time in milliseconds an event waits for its entry.
+     */
+    public AuditLogCorrelator(long fetchInterval, long maxWait) {
+        this.fetchInterval = fetchInterval;
+        this.maxWait = maxWait;
+    }
+
+    public static AuditLogCorrelator getInstance() {
+        return instance;
+    }
+
+    /**
+     * Find the entry of something which just happened.
+     *
+     * @param guild    The guild the event happened in.
+     * @param type     The type of entry.
+     * @param targetId The ID of the target of the entry, this is the user, role, channel or guild acted on.
+     * @return A future which is given the entry or null if there wasn't one in time, it is never failed.
+     */
+    public CompletableFuture<AuditLogEntry> find(Guild guild, ActionType type, long targetId) {
+        Waiter waiter = new Waiter(type, targetId, System.currentTimeMillis() - SKEW);
+        GuildAudit audit = guilds.asMap().computeIfAbsent(guild.getIdLong(), id -> new GuildAudit());
+        synchronized (audit) {
+            AuditLogEntry entry = audit.match(waiter);
+            if (entry != null) {
+                Metrics.auditLogLookups.labels("cached").inc();
+                return CompletableFuture.completedFuture(entry);
+            }
+            audit.waiters.add(waiter);
+            TIMER.schedule(() -> expire(audit, waiter), maxWait, TimeUnit.MILLISECONDS);
+            requestFetch(guild, audit);
+        }
+        return waiter.future;
+    }
+
+    // Guarded by the audit.
+    private void requestFetch(Guild guild, GuildAudit audit) {
+        if (audit.fetching || audit.fetchScheduled) return;
+        long wait = audit.lastFetch + fetchInterval - System.currentTimeMillis();
+        if (wait <= 0) {
+            fetch(guild, audit);
+            return;
+        }
+        audit.fetchScheduled = true;
+        TIMER.schedule(() -> {
+            synchronized (audit) {
+                audit.fetchScheduled = false;
+                if (!audit.waiters.isEmpty())
+                    fetch(guild, audit);
+            }
+        }, wait, TimeUnit.MILLISECONDS);
+    }
+
+    // Guarded by the audit.
+    private void fetch(Guild guild, GuildAudit audit) {
+        audit.fetching = true;
+        audit.lastFetch = System.currentTimeMillis();
+        Metrics.auditLogFetches.inc();
+        try {
+            long fetchedAt = audit.lastFetch;
+            guild.getAuditLogs().limit(PAGE_SIZE).queue(entries -> onFetched(guild, audit, entries, fetchedAt),
+                    failure -> onFetched(guild, audit, Collections.emptyList(), fetchedAt));
+        } catch (RuntimeException e) {
+            // Most likely the permission to view the audit log was taken away, nothing waiting can be found.
+            audit.fetching = false;
+            List<Waiter> failed = new ArrayList<>(audit.waiters);
+            audit.waiters.clear();
+            TIMER.execute(() -> {
+                for (Waiter waiter : failed) {
+                    Metrics.auditLogLookups.labels("failed").inc();
+                    waiter.future.complete(null);
+                }
+            });
+        }
+    }
+
+    private void onFetched(Guild guild, GuildAudit audit, List<AuditLogEntry> entries, long fetchedAt) {
+        List<Waiter> matched = new ArrayList<>();
+        synchronized (audit) {
+            audit.fetching = false;
+            // Pages are newest first, add them oldest first so the newest entry of a target wins.
+            for (int i = entries.size() - 1; i >= 0; i--)
+                audit.add(entries.get(i), fetchedAt);
+            Iterator<Waiter> waiters = audit.waiters.iterator();
+            while (waiters.hasNext()) {
+                Waiter waiter = waiters.next();
+                waiter.match = audit.match(waiter);
+                if (waiter.match != null) {
+                    waiters.remove();
+                    matched.add(waiter);
+                }
+            }
+            if (!audit.waiters.isEmpty())
+                requestFetch(guild, audit);
+        }
+        // Completed outside of the lock as this runs the modlog handlers.
+        for (Waiter waiter : matched) {
+            Metrics.auditLogLookups.labels("fetched").inc();
+            waiter.future.complete(waiter.match);
+        }
+    }
+
+    private void expire(GuildAudit audit, Waiter waiter) {
+        synchronized (audit) {
+            if (!audit.waiters.remove(waiter)) return;
+        }
+        Metrics.auditLogLookups.labels("timeout").inc();
+        waiter.future.complete(null);
+    }
+
+    private static class GuildAudit {
+
+        // All guarded by this.
+        private final Map<ActionType, Map<Long, Seen>> entries = new EnumMap<>(ActionType.class);
+        private final List<Waiter> waiters = new ArrayList<>();
+        private long lastFetch;
+        private boolean fetching;
+        private boolean fetchScheduled;
+
+        void add(AuditLogEntry entry, long fetchedAt) {
+            Map<Long, Seen> byTarget = entries.computeIfAbsent(entry.getType(), type ->
+                    new LinkedHashMap<Long, Seen>() {
+                        @Override
+                        protected boolean removeEldestEntry(Map.Entry<Long, Seen> eldest) {
+                            return size() > ENTRIES_PER_TYPE;
+                        }
+                    });
+            Seen existing = byTarget.get(entry.getTargetIdLong());
+            int count = getCount(entry);
+            Seen seen;
+            if (existing == null || existing.entry.getIdLong() < entry.getIdLong()) {
+                seen = new Seen(entry, count, entry.getCreationTime().toInstant().toEpochMilli());
+            } else if (existing.entry.getIdLong() == entry.getIdLong() && count > existing.count) {
+                // Added to since the last fetch which saw it, so that is the earliest this could have happened.
+                seen = new Seen(entry, count, existing.seenAt);
+            } else {
+                existing.seenAt = Math.max(existing.seenAt, fetchedAt);
+                return;
+            }
+            seen.seenAt = fetchedAt;
+            // Removed first so the target moves to the back of the eviction order.
+            byTarget.remove(entry.getTargetIdLong());
+            byTarget.put(entry.getTargetIdLong(), seen);
+        }
+
+        // Gives the entry to the waiter if it is new enough and no one else had it.
+        AuditLogEntry match(Waiter waiter) {
+            Map<Long, Seen> byTarget = entries.get(waiter.type);
+            Seen seen = byTarget == null ? null : byTarget.get(waiter.targetId);
+            if (seen == null || seen.consumed || seen.changedAt < waiter.after) return null;
+            seen.consumed = true;
+            return seen.entry;
+        }
+
+        private static int getCount(AuditLogEntry entry) {
+            Object count = entry.getOptionByName("count");
+            return count == null ? 0 : GeneralUtils.getInt(count.toString(), 0);
+        }
+    }
+
+    private static class Seen {
+
+        private final AuditLogEntry entry;
+        private final int count;
+        // The earliest the entry could have been made or added to.
+        private final long changedAt;
+        // The last fetch which saw the entry at this count.
+        private long seenAt;
+        private boolean consumed;
+
+        Seen(AuditLogEntry entry, int count, long changedAt) {
+            this.entry = entry;
+            this.count = count;
+            this.changedAt = changedAt;
+        }
+    }
+
+    private static class Waiter {
+
+        private final ActionType type;
+        private final long targetId;
+        private final long after;
+        private final CompletableFuture<AuditLogEntry> future = new CompletableFuture<>();
+        private AuditLogEntry match;
+
+        Waiter(ActionType type, long targetId, long after) {
+            this.type = type;
+            this.targetId = targetId;
+            this.after = after;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package stream.flarebot.flarebot.mod.modlog;
+
+import net.dv8tion.jda.core.EmbedBuilder;
+import net.dv8tion.jda.core.MessageBuilder;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageEmbed;
+import net.dv8tion.jda.core.entities.TextChannel;
+import stream.flarebot.flarebot.Getters;
+import stream.flarebot.flarebot.metrics.Metrics;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Delivers modlog entries, merging the entries of a channel which come in close together into as few messages as
+ * possible.
+ *
+ * Entries wait up to {@link #window} milliseconds for others to join them. Compact entries are joined into one message
+ * of up to {@link #MAX_TEXT_LENGTH} characters and if more than one embed is waiting they are merged into a digest embed
+ * with a field per entry. A channel only has one message being sent at a time, JDA holds the message until the rate
+ * limit of the channel allows it and anything which comes in meanwhile is merged into the next message rather than
+ * queueing more requests on the shard.
+ *
+ * {@link #PRIORITY_EVENTS} skip the window and are sent before any other waiting entries of their channel. If a channel
+ * gets more than {@link #MAX_CHANNEL_BACKLOG} other entries behind the oldest are dropped.
+ */
+public class ModlogDelivery {
+
+    static final Set<ModlogEvent> PRIORITY_EVENTS = EnumSet.of(ModlogEvent.USER_BANNED, ModlogEvent.USER_SOFTBANNED,
+            ModlogEvent.USER_TEMP_BANNED, ModlogEvent.USER_KICKED);
+
+    private static final int MAX_TEXT_LENGTH = Message.MAX_CONTENT_LENGTH;
+    private static final int MAX_DIGEST_FIELDS = 25;
+    private static final int MAX_DIGEST_LENGTH = 5000;
+    private static final int MAX_CHANNEL_BACKLOG = 1000;
+
+    /**
+     * Where merged messages go, this is a text channel outside of tests.
+     */
+    public interface Sink {
+
+        /**
+         * @param done Must be ran once the message was sent or failed to send.
+         */
+        void send(long channelId, Message message, Runnable done);
+    }
+
+    private final Sink sink;
+    private final long window;
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r ->
+            new Thread(r, "Modlog-Delivery"));
+
+    private final Map<Long, ChannelBuffer> channels = new ConcurrentHashMap<>();
+    private final Map<Long, AtomicInteger> guildBacklog = new ConcurrentHashMap<>();
+
+    public ModlogDelivery() {
+        this((channelId, message, done) -> {
+            TextChannel channel = Getters.getChannelById(channelId);
+            if (channel == null) {
+                done.run();
+                return;
+            }
+            channel.sendMessage(message).queue(m -> done.run(), t -> done.run());
+        }, 1000);
+    }
+
+    /**
+     * @param sink   Where to send the messages.
+     * @param window The time in milliseconds entries wait for others to be merged with.
+     */
+    public ModlogDelivery(Sink sink, long window) {
+        this.sink = sink;
+        this.window = window;
+    }
+
+    public void post(long guildId, long channelId, ModlogEvent event, MessageEmbed embed) {
+        add(new Entry(guildId, PRIORITY_EVENTS.contains(event), embed, null), channelId);
+    }
+
+    public void post(long guildId, long channelId, ModlogEvent event, String text) {
+        add(new Entry(guildId, PRIORITY_EVENTS.contains(event), null, text), channelId);
+    }
+
+    /**
+     * @param k The amount of guilds to get.
+     * @return The guilds with the most entries waiting, most first. Each entry is the guild ID and its backlog.
+     */
+    public List<long[]> getTopBacklog(int k) {
+        List<long[]> top = new ArrayList<>();
+        for (Map.Entry<Long, AtomicInteger> entry : guildBacklog.entrySet())
+            top.add(new long[]{entry.getKey(), entry.getValue().get()});
+        top.sort((a, b) -> Long.compare(b[1], a[1]));
+        return top.size() > k ? top.subList(0, k) : top;
+    }
+
+    private void add(Entry entry, long channelId) {
+        while (true) {
+            ChannelBuffer buffer = channels.computeIfAbsent(channelId, ChannelBuffer::new);
+            synchronized (buffer) {
+                // This buffer was emptied and removed after we got it, get the new one.
+                if (buffer.removed) continue;
+                (entry.priority ? buffer.priority : buffer.normal).add(entry);
+                backlog(entry.guildId, 1);
+                if (buffer.normal.size() > MAX_CHANNEL_BACKLOG) {
+                    backlog(buffer.normal.poll().guildId, -1);
+                    Metrics.modlogEntriesDropped.inc();
+                }
+                if (!buffer.sending)
+                    schedule(buffer, entry.priority ? 0 : window);
+                return;
+            }
+        }
+    }
+
+    // Guarded by the buffer, a pending flush is only moved sooner.
+    private void schedule(ChannelBuffer buffer, long delay) {
+        if (buffer.flush != null) {
+            if (delay > 0 || buffer.flush.getDelay(TimeUnit.MILLISECONDS) <= 0) return;
+            buffer.flush.cancel(false);
+        }
+        buffer.flush = timer.schedule(() -> flush(buffer), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(ChannelBuffer buffer) {
+        Message message;
+        synchronized (buffer) {
+            buffer.flush = null;
+            if (buffer.sending) return;
+            message = buildMessage(buffer);
+            if (message == null) {
+                buffer.removed = true;
+                channels.remove(buffer.channelId, buffer);
+                return;
+            }
+            buffer.sending = true;
+        }
+        sink.send(buffer.channelId, message, () -> {
+            synchronized (buffer) {
+                buffer.sending = false;
+                if (!buffer.priority.isEmpty())
+                    schedule(buffer, 0);
+                else
+                    schedule(buffer, buffer.normal.isEmpty() ? 0 : window);
+            }
+        });
+    }
+
+    // Guarded by the buffer. Takes entries of the same kind as the first waiting entry, priority entries first.
+    private Message buildMessage(ChannelBuffer buffer) {
+        Entry first = buffer.priority.isEmpty() ? buffer.normal.peek() : buffer.priority.peek();
+        if (first == null) return null;
+
+        List<Entry> taken = new ArrayList<>();
+        Message message;
+        if (first.embed == null) {
+            StringBuilder text = new StringBuilder(MAX_TEXT_LENGTH);
+            take(buffer.priority, taken, text);
+            take(buffer.normal, taken, text);
+            message = new MessageBuilder().append(text).build();
+            Metrics.modlogMessagesSent.labels("text").inc();
+        } else {
+            List<MessageEmbed> embeds = new ArrayList<>();
+            take(buffer.priority, taken, embeds);
+            take(buffer.normal, taken, embeds);
+            message = new MessageBuilder().setEmbed(embeds.size() == 1 ? embeds.get(0) : digest(embeds)).build();
+            Metrics.modlogMessagesSent.labels(embeds.size() == 1 ? "embed" : "digest").inc();
+        }
+        for (Entry entry : taken)
+            backlog(entry.guildId, -1);
+        return message;
+    }
+
+    private void take(Deque<Entry> entries, List<Entry> taken, StringBuilder text) {
+        Entry entry;
+        while ((entry = entries.peek()) != null && entry.text != null) {
+            int length = Math.min(entry.text.length(), MAX_TEXT_LENGTH);
+            if (text.length() > 0 && text.length() + 1 + length > MAX_TEXT_LENGTH) return;
+            if (text.length() > 0) text.append('\n');
+            text.append(entry.text, 0, length);
+            taken.add(entries.poll());
+        }
+    }
+
+    private void take(Deque<Entry> entries, List<Entry> taken, List<MessageEmbed> embeds) {
+        Entry entry;
+        int length = 0;
+        for (MessageEmbed embed : embeds)
+            length += digestLength(embed);
+        while ((entry = entries.peek()) != null && entry.embed != null) {
+            if (!embeds.isEmpty() && (embeds.size() == MAX_DIGEST_FIELDS
+                    || length + digestLength(entry.embed) > MAX_DIGEST_LENGTH)) return;
+            length += digestLength(entry.embed);
+            embeds.add(entry.embed);
+            taken.add(entries.poll());
+        }
+    }
+
+    private MessageEmbed digest(List<MessageEmbed> embeds) {
+        EmbedBuilder digest = new EmbedBuilder()
+                .setColor(embeds.get(0).getColor())
+                .setFooter(embeds.size() + " events", null)
+                .setTimestamp(embeds.get(0).getTimestamp());
+        for (MessageEmbed embed : embeds)
+            digest.addField(digestName(embed), digestValue(embed), false);
+        return digest.build();
+    }
+
+    private int digestLength(MessageEmbed embed) {
+        return digestName(embed).length() + digestValue(embed).length();
+    }
+
+    private String digestName(MessageEmbed embed) {
+        String name = embed.getAuthor() != null ? embed.getAuthor().getName() : embed.getTitle();
+        if (name == null || name.isEmpty()) return "\u200B";
+        return name.length() > MessageEmbed.TITLE_MAX_LENGTH ? name.substring(0, MessageEmbed.TITLE_MAX_LENGTH) : name;
+    }
+
+    private String digestValue(MessageEmbed embed) {
+        StringBuilder value = new StringBuilder();
+        if (embed.getDescription() != null)
+            value.append(embed.getDescription()).append('\n');
+        for (MessageEmbed.Field field : embed.getFields())
+            value.append("**").append(field.getName()).append("**: ").append(field.getValue()).append('\n');
+        if (value.length() > MessageEmbed.VALUE_MAX_LENGTH)
+            return value.substring(0, MessageEmbed.VALUE_MAX_LENGTH - 3) + "...";
+        return value.length() == 0 ? "\u200B" : value.toString().trim();
+    }
+
+    private void backlog(long guildId, int delta) {
+        Metrics.modlogBacklog.inc(delta);
+        guildBacklog.compute(guildId, (id, count) -> {
+            if (count == null) count = new AtomicInteger();
+            return count.addAndGet(delta) <= 0 ? null : count;
+        });
+    }
+
+    private static class ChannelBuffer {
+
+        private final long channelId;
+        // Guarded by this.
+        private final Deque<Entry> priority = new ArrayDeque<>();
+        private final Deque<Entry> normal = new ArrayDeque<>();
+        private ScheduledFuture<?> flush;
+        private boolean sending;
+        private boolean removed;
+
+        ChannelBuffer(long channelId) {
+            this.channelId = channelId;
+        }
+    }
+
+    private static class Entry {
+
+        private final long guildId;
+        private final boolean priority;
+        private final MessageEmbed embed;
+        private final String text;
+
+        Entry(long guildId, boolean priority, MessageEmbed embed, String text) {
+            this.guildId = guildId;
+            this.priority = priority;
+            this.embed = embed;
+            this.text = text;
+        }
+    }
+}
@@ -24,11 +24,17 @@ public class ModlogHandler {
 
     private static ModlogHandler instance;
 
+    private final ModlogDelivery delivery = new ModlogDelivery();
+
     public static ModlogHandler getInstance() {
         if (instance == null) instance = new ModlogHandler();
         return instance;
     }
 
+    public ModlogDelivery getDelivery() {
+        return delivery;
+    }
+
     /**
      * This will get the TextChannel of a certain event, this could also return null in two cases.<br>
      * <ol>
@@ -41,10 +47,13 @@ public class ModlogHandler {
      * @return The TextChannel of the desired event in the desired guild or null in the two cases listed above.
      */
     public TextChannel getModlogChannel(GuildWrapper wrapper, ModlogEvent event) {
-        for (ModlogAction modlogAction : wrapper.getModConfig().getEnabledActions())
-            if (modlogAction.getEvent() == event)
-                return wrapper.getGuild().getTextChannelById(modlogAction.getModlogChannelId());
-        return null;
+        ModlogAction action = wrapper.getModeration().getAction(event);
+        if (action == null) return null;
+        TextChannel channel = wrapper.getGuild().getTextChannelById(action.getModlogChannelId());
+        // The channel was deleted while we weren't there to see it.
+        if (channel == null)
+            wrapper.getModeration().onChannelDelete(action.getModlogChannelId());
+        return channel;
     }
 
     public void postToModlog(GuildWrapper wrapper, ModlogEvent event, User user) {
@@ -66,7 +75,8 @@ public class ModlogHandler {
 
     public void postToModlog(GuildWrapper wrapper, ModlogEvent event, User target, User responsible, String reason,
                              MessageEmbed.Field... extraFields) {
-        if (!wrapper.getModeration().isEventEnabled(wrapper, event)) return;
+        ModlogAction action = wrapper.getModeration().getAction(event);
+        if (action == null) return;
         TextChannel tc = getModlogChannel(wrapper, event);
         // They either don't have a channel or set it to another guild.
         if (tc != null) {
@@ -78,14 +88,14 @@ public class ModlogHandler {
                 });
                 return;
             }
-            if (!wrapper.getModeration().isEventCompacted(event)) {
+            if (!action.isCompacted()) {
                 EmbedBuilder eb = event.getEventEmbed(target, responsible, reason);
                 if (extraFields != null && extraFields.length > 0) {
                     for (MessageEmbed.Field field : extraFields)
                         eb.addField(field);
                 }
 
-                tc.sendMessage(eb.build()).queue();
+                delivery.post(tc.getGuild().getIdLong(), tc.getIdLong(), event, eb.build());
             } else {
                 StringBuilder sb = new StringBuilder(event.getEventText(target, responsible, reason));
                 if (extraFields != null && extraFields.length > 0) {
@@ -96,7 +106,7 @@ public class ModlogHandler {
                     }
                 }
                 sb.append("\n** **");
-                tc.sendMessage(sb.toString().trim()).queue();
+                delivery.post(tc.getGuild().getIdLong(), tc.getIdLong(), event, sb.toString().trim());
             }
         }
     }
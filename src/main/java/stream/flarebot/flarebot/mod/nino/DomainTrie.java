@@ -0,0 +1,125 @@
+package stream.flarebot.flarebot.mod.nino;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Matches a hostname against every NINO domain list at once.
+ *
+ * Domains are stored by their labels in reverse, "i.imger.me" is stored as me -> imger -> i. Looking up a hostname is
+ * a single walk from its TLD down which collects the flags of every domain on the way, so the cost of a lookup depends
+ * on the amount of labels in the hostname and not on how many domains are in the lists.
+ *
+ * A domain matches itself and all of its subdomains but never a hostname which only contains it, "notiplogger.com"
+ * does not match "iplogger.com".
+ */
+public class DomainTrie {
+
+    private final Node root = new Node();
+
+    /**
+     * Flag a domain and all of its subdomains.
+     */
+    public void add(String domain, URLCheckFlag flag) {
+        getNode(domain).flags |= 1 << flag.ordinal();
+    }
+
+    /**
+     * Flag every domain under a suffix, for example a TLD. The suffix itself is not flagged and the reported domain is
+     * the suffix with one more label, "a.b.click" is reported as "b.click".
+     */
+    public void addSuffix(String suffix, URLCheckFlag flag) {
+        getNode(suffix).suffixFlags |= 1 << flag.ordinal();
+    }
+
+    /**
+     * Whitelist a domain and all of its subdomains, these will never be flagged.
+     */
+    public void addWhitelisted(String domain) {
+        getNode(domain).whitelisted = true;
+    }
+
+    /**
+     * Find every list the hostname is in.
+     *
+     * @param host The lower cased hostname, see {@link URLChecker#getHost(String)}.
+     * @return The match, {@link Match#isEmpty()} if the host isn't in any list.
+     */
+    public Match match(String host) {
+        Match match = null;
+        Node node = root;
+        int end = host.length();
+        while (end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.children == null ? null : node.children.get(host.substring(dot + 1, end));
+            if (node == null) break;
+
+            if (node.whitelisted)
+                return Match.WHITELISTED;
+            if (node.flags != 0 || (node.suffixFlags != 0 && dot > 0)) {
+                if (match == null) match = new Match();
+                if (node.flags != 0)
+                    match.add(node.flags, host.substring(dot + 1));
+                if (node.suffixFlags != 0 && dot > 0)
+                    match.add(node.suffixFlags, host.substring(host.lastIndexOf('.', dot - 1) + 1));
+            }
+            end = dot;
+        }
+        return match == null ? Match.EMPTY : match;
+    }
+
+    private Node getNode(String domain) {
+        String lower = domain.trim().toLowerCase(Locale.ROOT);
+        Node node = root;
+        int end = lower.length();
+        while (end > 0) {
+            int dot = lower.lastIndexOf('.', end - 1);
+            if (node.children == null)
+                node.children = new HashMap<>();
+            node = node.children.computeIfAbsent(lower.substring(dot + 1, end), label -> new Node());
+            end = dot;
+        }
+        return node;
+    }
+
+    public static class Match {
+
+        private static final Match EMPTY = new Match();
+        private static final Match WHITELISTED = new Match();
+
+        // Indexed by flag ordinal.
+        private String[] domains;
+
+        private void add(int flags, String domain) {
+            if (domains == null)
+                domains = new String[URLCheckFlag.values.length];
+            for (int i = 0; i < domains.length; i++)
+                if ((flags & (1 << i)) != 0 && domains[i] == null)
+                    domains[i] = domain;
+        }
+
+        public boolean isWhitelisted() {
+            return this == WHITELISTED;
+        }
+
+        public boolean isEmpty() {
+            return domains == null;
+        }
+
+        /**
+         * @return The listed domain the host matched for this flag or null if it didn't match.
+         */
+        public String get(URLCheckFlag flag) {
+            return domains == null ? null : domains[flag.ordinal()];
+        }
+    }
+
+    private static class Node {
+
+        private Map<String, Node> children;
+        private int flags;
+        private int suffixFlags;
+        private boolean whitelisted;
+    }
+}
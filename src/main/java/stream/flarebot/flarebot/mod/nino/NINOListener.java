@@ -41,11 +41,6 @@ public class NINOListener implements EventListener {
                 URLChecker.instance().checkMessage(wrapper, event.getChannel(), msg.get(), (flag, url) -> {
                     if (flag == null || url == null) return;
 
-                    for (String s : wrapper.getNINO().getWhitelist()) {
-                        if (url.equalsIgnoreCase(s))
-                            return;
-                    }
-
                     event.getMessage().delete().queue();
 
                     msg.set(FormatUtils.truncate(500, event.getMessage().getContentDisplay()));
@@ -0,0 +1,258 @@
+package stream.flarebot.flarebot.mod.nino;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.ParametersAreNonnullByDefault;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Follows the redirects of a URL without blocking a thread while waiting on the responses.
+ *
+ * The same shortened links get posted in a lot of guilds so the redirect chain of every URL is cached, resolutions
+ * which failed or hit the deadline are cached for a shorter time so a dead link isn't requested for every message.
+ * If a URL is already being resolved later lookups of it share that resolution. Only the chain is cached, what it
+ * means for a guild is decided by whoever asked as that depends on the flags of the guild.
+ *
+ * Requests to a single host are limited by the dispatcher of the client and every resolution has a deadline which
+ * covers the whole chain, once it is hit the current request is cancelled and the hops found so far are used.
+ */
+public class RedirectResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedirectResolver.class);
+
+    private static final ScheduledExecutorService DEADLINES = Executors.newSingleThreadScheduledExecutor(r ->
+            new Thread(r, "Redirect-Deadlines"));
+
+    private final OkHttpClient client;
+    private final Predicate<HttpUrl> stopAt;
+    private final int maxHops;
+    private final long deadline;
+
+    private final Cache<String, Resolution> resolved;
+    private final Cache<String, Resolution> failed;
+    private final Map<String, CompletableFuture<Resolution>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param client    The client to use, redirects are followed by the resolver so the client should not follow them.
+     * @param stopAt    Stop following once a hop matches this, there's no point following a URL we already know about.
+     * @param maxHops   The most redirects to follow, this also stops redirect loops.
+     * @param deadline  The time in milliseconds a whole chain can take to resolve.
+     * @param cacheTime The time in milliseconds to cache a chain for, failed chains are cached for a tenth of this.
+     */
+    public RedirectResolver(OkHttpClient client, Predicate<HttpUrl> stopAt, int maxHops, long deadline, long cacheTime) {
+        this.client = client;
+        this.stopAt = stopAt;
+        this.maxHops = maxHops;
+        this.deadline = deadline;
+        this.resolved = CacheBuilder.newBuilder()
+                .maximumSize(50_000)
+                .expireAfterWrite(cacheTime, TimeUnit.MILLISECONDS)
+                .build();
+        this.failed = CacheBuilder.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(cacheTime / 10, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Create a client for resolving redirects from an existing one, this shares the connection pool of the given
+     * client.
+     *
+     * @param client          The client to base this on, usually {@link stream.flarebot.flarebot.util.WebUtils#getClient()}.
+     * @param maxPerHost      The most requests which can be made to a single host at once.
+     * @param timeout         The connect and read timeout in milliseconds.
+     */
+    public static OkHttpClient createClient(OkHttpClient client, int maxPerHost, long timeout) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(maxPerHost);
+        return client.newBuilder()
+                .dispatcher(dispatcher)
+                .followRedirects(false)
+                .followSslRedirects(false)
+                .connectTimeout(timeout, TimeUnit.MILLISECONDS)
+                .readTimeout(timeout, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Resolve the redirect chain of a URL, this never completes exceptionally.
+     *
+     * @param url The URL to resolve.
+     * @return The resolution, {@link Resolution#getHops()} is empty if the URL didn't redirect.
+     */
+    public CompletableFuture<Resolution> resolve(String url) {
+        Resolution cached = resolved.getIfPresent(url);
+        if (cached == null)
+            cached = failed.getIfPresent(url);
+        if (cached != null)
+            return CompletableFuture.completedFuture(cached);
+
+        CompletableFuture<Resolution> future = new CompletableFuture<>();
+        CompletableFuture<Resolution> existing = inFlight.putIfAbsent(url, future);
+        if (existing != null)
+            return existing;
+
+        HttpUrl httpUrl = HttpUrl.parse(url);
+        if (httpUrl == null) {
+            finish(url, future, new Resolution(Collections.emptyList(), false));
+            return future;
+        }
+
+        Chain chain = new Chain(url, future);
+        DEADLINES.schedule(chain::expire, deadline, TimeUnit.MILLISECONDS);
+        follow(chain, httpUrl);
+        return future;
+    }
+
+    public long size() {
+        return resolved.size() + failed.size();
+    }
+
+    private void follow(Chain chain, HttpUrl url) {
+        Call call = client.newCall(new Request.Builder().url(url).get().build());
+        if (!chain.setCall(call)) return;
+        call.enqueue(new Callback() {
+            @Override
+            @ParametersAreNonnullByDefault
+            public void onFailure(Call call, IOException e) {
+                if (!call.isCanceled())
+                    logger.warn("Failed to follow URL! URL: " + url + ", Message: " + e.getMessage());
+                chain.finish(false);
+            }
+
+            @Override
+            @ParametersAreNonnullByDefault
+            public void onResponse(Call call, Response response) {
+                HttpUrl next;
+                try {
+                    String location = response.header("Location");
+                    next = response.isRedirect() && location != null ? url.resolve(location) : null;
+                } finally {
+                    response.close();
+                }
+                if (next == null) {
+                    chain.finish(true);
+                    return;
+                }
+                logger.debug("{} ({}) wants to redirect to {}", url, response.code(), next);
+                if (!chain.addHop(next.toString())) {
+                    chain.finish(true);
+                    return;
+                }
+                if (stopAt.test(next) || chain.hopCount() >= maxHops)
+                    chain.finish(true);
+                else
+                    follow(chain, next);
+            }
+        });
+    }
+
+    private void finish(String url, CompletableFuture<Resolution> future, Resolution resolution) {
+        (resolution.isComplete() ? resolved : failed).put(url, resolution);
+        inFlight.remove(url, future);
+        future.complete(resolution);
+    }
+
+    /**
+     * The redirect chain of a URL.
+     */
+    public static class Resolution {
+
+        private final List<String> hops;
+        private final boolean complete;
+
+        Resolution(List<String> hops, boolean complete) {
+            this.hops = hops;
+            this.complete = complete;
+        }
+
+        /**
+         * @return Every URL redirected to in order, the last one is where the chain ended up.
+         */
+        public List<String> getHops() {
+            return hops;
+        }
+
+        /**
+         * @return False if a request failed or the deadline was hit before the end of the chain.
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    private class Chain {
+
+        private final String url;
+        private final CompletableFuture<Resolution> future;
+        private final List<String> hops = new ArrayList<>();
+        private Call call;
+        private boolean done;
+
+        Chain(String url, CompletableFuture<Resolution> future) {
+            this.url = url;
+            this.future = future;
+        }
+
+        synchronized boolean setCall(Call call) {
+            this.call = call;
+            return !done;
+        }
+
+        /**
+         * @return False if the chain has already finished or this hop has been seen before (a redirect loop).
+         */
+        synchronized boolean addHop(String hop) {
+            if (done || hop.equals(url) || hops.contains(hop)) return false;
+            hops.add(hop);
+            return true;
+        }
+
+        synchronized int hopCount() {
+            return hops.size();
+        }
+
+        void expire() {
+            Call current;
+            synchronized (this) {
+                if (done) return;
+                logger.debug("Hit the deadline resolving {} after {} hops", url, hops.size());
+                current = call;
+            }
+            if (current != null)
+                current.cancel();
+            finish(false);
+        }
+
+        void finish(boolean complete) {
+            Resolution resolution;
+            synchronized (this) {
+                if (done) return;
+                done = true;
+                resolution = new Resolution(Collections.unmodifiableList(new ArrayList<>(hops)), complete);
+            }
+            // Complete outside of the lock, whatever is waiting on this runs on this thread.
+            RedirectResolver.this.finish(url, future, resolution);
+        }
+    }
+}
@@ -8,18 +8,17 @@ import stream.flarebot.flarebot.FlareBotManager;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.objects.NINO;
 import stream.flarebot.flarebot.util.Pair;
+import stream.flarebot.flarebot.util.WebUtils;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.net.IDN;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.regex.Matcher;
 
@@ -27,11 +26,18 @@ public class URLChecker {
 
     private static final Logger logger = LoggerFactory.getLogger(URLChecker.class);
 
-    private static final ThreadGroup GROUP = new ThreadGroup("URLChecker");
-    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(4, r ->
-            new Thread(GROUP, r, "Checker-" + GROUP.activeCount()));
+    // The order flags are checked in when a URL is in more than one list, the URL flag is always checked last.
+    private static final URLCheckFlag[] FLAG_ORDER = {URLCheckFlag.IP_GRABBER, URLCheckFlag.DISCORD_INVITE,
+            URLCheckFlag.PHISHING, URLCheckFlag.SUSPICIOUS, URLCheckFlag.SCREAMERS, URLCheckFlag.NSFW};
 
-    private static final ConcurrentHashMap<UUID, Byte> redirects = new ConcurrentHashMap<>();
+    // Stops following at any URL which is in one of our lists, we already know what to do with it.
+    private static final RedirectResolver RESOLVER = new RedirectResolver(
+            RedirectResolver.createClient(WebUtils.getClient(), 2, 3000),
+            url -> {
+                DomainTrie.Match match = URLConstants.DOMAINS.match(getHost(url.toString()));
+                return match.isWhitelisted() || !match.isEmpty();
+            },
+            10, 5000, TimeUnit.HOURS.toMillis(1));
 
     private static URLChecker instance;
 
@@ -46,134 +52,119 @@ public class URLChecker {
         NINO nino = wrapper.getNINO();
         Matcher m = nino.getNINOMode() == NINOMode.AGGRESSIVE ? URLConstants.URL_PATTERN_NO_PROTOCOL.matcher(message)
                 : URLConstants.URL_PATTERN.matcher(message);
-        if (!m.find()) return;
-
-        String url = normalizeUrl(m.group(0));
-
-        EXECUTOR.submit(() -> {
-            Set<URLCheckFlag> flags = wrapper.getNINO().getURLFlags();
-
-            Pair<URLCheckFlag, String> pair = checkURL(url, flags, channel);
-
-            if (pair != null) {
-                // Returned if it's a whitelisted URL
-                if (pair.getKey() == null && pair.getValue() != null) {
-                    callback.accept(null, null);
-                    return;
-                }
+        List<String> urls = null;
+        while (m.find()) {
+            if (urls == null) urls = new ArrayList<>();
+            urls.add(normalizeUrl(m.group(0)));
+        }
+        if (urls == null) return;
+
+        // Checking is only a few lookups per URL so it's done right here, only following redirects is asynchronous.
+        Set<URLCheckFlag> flags = nino.getURLFlags();
+        List<String> unflagged = new ArrayList<>();
+        for (String url : urls) {
+            Pair<URLCheckFlag, String> pair = checkURL(url, flags, channel, nino);
+            if (pair == null) {
+                unflagged.add(url);
+            } else if (pair.getKey() != null) {
                 logger.debug("{} was found to be under the flag {} ({})", url, pair.getKey(), pair.getValue());
                 callback.accept(pair.getKey(), pair.getValue());
                 return;
-            } else {
-                if (nino.getNINOMode() == NINOMode.RELAXED) return; // Shouldn't follow.
-                logger.debug("{} was not flagged, going to try and follow the URL.", url);
-                if ((pair = followURL(url, channel, flags, null)) != null) {
-                    logger.debug("{} was found to be under the flag {} ({}) after following it", url, pair.getKey(), pair.getValue());
-                    callback.accept(pair.getKey(), pair.getValue());
-                    return;
-                }
-            }
-
-            callback.accept(null, null);
-        });
-    }
-
-    private Pair<URLCheckFlag, String> checkURL(String url, Set<URLCheckFlag> flags, TextChannel channel) {
-        Matcher matcher;
-        logger.debug("Checking {} with flags: {}", url, Arrays.toString(flags.toArray()));
-        // Check whitelisted domains
-        if ((matcher = URLConstants.WHITELISTED_DOMAINS_PATTERN.matcher(url)).find()) {
-            return new Pair<>(null, matcher.group());
-        }
-
-        // Blacklist
-        // I may want to implement this in the future but right now I don't think it's needed.
-
-        // IP Grabber
-        if (flags.contains(URLCheckFlag.IP_GRABBER)) {
-            logger.debug(URLConstants.IP_GRABBER_PATTERN.toString());
-            if ((matcher = URLConstants.IP_GRABBER_PATTERN.matcher(url)).find()) {
-                return new Pair<>(URLCheckFlag.IP_GRABBER, matcher.group());
-            }
-        }
-
-        // Discord Invite
-        if (flags.contains(URLCheckFlag.DISCORD_INVITE)) {
-            if ((matcher = URLConstants.DISCORD_INVITE_PATTERN.matcher(url)).find()) {
-                return new Pair<>(URLCheckFlag.DISCORD_INVITE, matcher.group());
             }
+            // Otherwise it's a whitelisted URL
         }
 
-        // Phishing
-        if (flags.contains(URLCheckFlag.PHISHING)) {
-            if ((matcher = URLConstants.PHISHING_PATTERN.matcher(url)).find()) {
-                return new Pair<>(URLCheckFlag.PHISHING, matcher.group());
-            }
+        if (unflagged.isEmpty() || nino.getNINOMode() == NINOMode.RELAXED) { // Shouldn't follow.
+            callback.accept(null, null);
+            return;
         }
 
-        // Suspicious TLDs
-        if (flags.contains(URLCheckFlag.SUSPICIOUS)) {
-            if ((matcher = URLConstants.SUSPICIOUS_TLDS_PATTERN.matcher(url)).find()) {
-                return new Pair<>(URLCheckFlag.SUSPICIOUS, matcher.group());
-            }
+        List<CompletableFuture<RedirectResolver.Resolution>> resolutions = new ArrayList<>(unflagged.size());
+        for (String url : unflagged) {
+            logger.debug("{} was not flagged, going to try and follow the URL.", url);
+            resolutions.add(RESOLVER.resolve(url));
         }
-
-        // Screamers
-        if (flags.contains(URLCheckFlag.SCREAMERS)) {
-            if ((matcher = URLConstants.SCREAMERS_PATTERN.matcher(url)).find()) {
-                return new Pair<>(URLCheckFlag.SCREAMERS, matcher.group());
+        CompletableFuture.allOf(resolutions.toArray(new CompletableFuture[0])).thenRun(() -> {
+            for (int i = 0; i < resolutions.size(); i++) {
+                for (String hop : resolutions.get(i).join().getHops()) {
+                    Pair<URLCheckFlag, String> pair = checkURL(hop, flags, channel, nino);
+                    if (pair == null) continue;
+                    if (pair.getKey() != null) {
+                        logger.debug("{} was found to be under the flag {} ({}) after following it",
+                                unflagged.get(i), pair.getKey(), pair.getValue());
+                        callback.accept(pair.getKey(), pair.getValue());
+                        return;
+                    }
+                    break; // Redirected to a whitelisted URL
+                }
             }
-        }
+            callback.accept(null, null);
+        });
+    }
 
-        // NSFW
-        if (flags.contains(URLCheckFlag.NSFW) && channel != null && !channel.isNSFW() && !URLConstants.NSFW.isEmpty()) {
-            if ((matcher = URLConstants.NSFW_PATTERN.matcher(url)).find()) {
-                return new Pair<>(URLCheckFlag.NSFW, matcher.group());
+    /**
+     * Check a URL against the domain lists.
+     *
+     * @return The flag and what matched it, a null flag if the URL is whitelisted or null if the URL wasn't flagged.
+     */
+    private Pair<URLCheckFlag, String> checkURL(String url, Set<URLCheckFlag> flags, TextChannel channel, NINO nino) {
+        logger.debug("Checking {} with flags: {}", url, Arrays.toString(flags.toArray()));
+        DomainTrie.Match match = URLConstants.DOMAINS.match(getHost(url));
+        if (match.isWhitelisted())
+            return new Pair<>(null, url);
+
+        for (URLCheckFlag flag : FLAG_ORDER) {
+            if (!flags.contains(flag)) continue;
+            String found = match.get(flag);
+            if (found == null) continue;
+
+            if (flag == URLCheckFlag.DISCORD_INVITE) {
+                // The host only tells us it's Discord, make sure it's an invite.
+                Matcher matcher = URLConstants.DISCORD_INVITE_PATTERN.matcher(url);
+                if (!matcher.find()) continue;
+                found = matcher.group();
+            } else if (flag == URLCheckFlag.NSFW && (channel == null || channel.isNSFW())) {
+                continue;
             }
+            if (nino.isWhitelisted(found))
+                return new Pair<>(null, found);
+            return new Pair<>(flag, found);
         }
 
         // URL
         if (flags.contains(URLCheckFlag.URL)) {
+            if (nino.isWhitelisted(url))
+                return new Pair<>(null, url);
             return new Pair<>(URLCheckFlag.URL, url);
         }
 
         return null;
     }
 
-    private Pair<URLCheckFlag, String> followURL(String url, TextChannel channel, Set<URLCheckFlag> flags, UUID uuid) {
-        UUID redirectUUID = uuid;
-        // Have a fallback so we don't follow a redirect loop forever.
-        if (uuid != null) {
-            if (redirects.containsKey(uuid) && redirects.get(uuid) == 10)
-                return null;
-            else // Something weird happened, let's just handle it as it should be handled.
-                redirects.put(uuid, (byte) 1);
-        } else
-            redirectUUID = UUID.randomUUID();
-
-        try {
-            HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
-            connection.setInstanceFollowRedirects(false);
-            connection.connect();
-
-            int resp = connection.getResponseCode();
-            String location = connection.getHeaderField("Location");
-
-            if (location != null) {
-                logger.info("{} ({}) wants to redirect to {}", url, resp, location);
-
-                Pair<URLCheckFlag, String> pair = checkURL(location, flags, channel);
-                if (pair != null)
-                    return pair;
-
-                redirects.put(redirectUUID, (byte) (uuid != null ? redirects.get(uuid) + 1 : 1));
-                return followURL(location, channel, flags, redirectUUID);
-            } else
-                return null;
-        } catch (IOException e) {
-            logger.warn("Failed to follow URL! URL: " + url + ", Message: " + e.getMessage());
-            return null;
+    /**
+     * Get the lower cased host of a URL without any user info, port or trailing dot.
+     */
+    static String getHost(String url) {
+        int start = url.indexOf("://");
+        start = start == -1 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == '?' || c == '#') break;
+            end++;
         }
+        String host = url.substring(start, end);
+        host = host.substring(host.lastIndexOf('@') + 1);
+        int port = host.indexOf(':');
+        if (port != -1)
+            host = host.substring(0, port);
+        if (host.endsWith("."))
+            host = host.substring(0, host.length() - 1);
+        host = host.toLowerCase(Locale.ROOT);
+        // Our lists have the unicode form of domains, OkHttp gives us punycode.
+        if (host.contains("xn--"))
+            host = IDN.toUnicode(host);
+        return host;
     }
 
     private String normalizeUrl(String url) {
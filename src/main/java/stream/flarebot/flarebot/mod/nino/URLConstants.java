@@ -31,12 +31,6 @@ public class URLConstants {
             "grabify.link"
     );
 
-    /**
-     * Catch the nasty IP Grabbers which are listed above,
-     */
-    public static final Pattern IP_GRABBER_PATTERN = Pattern.compile(String.format("(%s)",
-            IP_GRABBERS.stream().collect(Collectors.joining("|"))), Pattern.CASE_INSENSITIVE);
-
     public static final Pattern DISCORD_INVITE_PATTERN = Pattern
             .compile("(discord\\.gg|discordapp\\.com/invite)/[\\w-._]{2,32}", Pattern.CASE_INSENSITIVE);
 
@@ -46,9 +40,6 @@ public class URLConstants {
             "fortnitegiveaways.com"
     );
 
-    public static Pattern PHISHING_PATTERN = Pattern.compile(String.format("(%s)",
-            PHISHING.stream().collect(Collectors.joining("|"))), Pattern.CASE_INSENSITIVE);
-
     private static final Set<String> SUSPICIOUS_TLDS = ImmutableSet.of(
             "click",
             "men",
@@ -62,9 +53,6 @@ public class URLConstants {
             "stream"
     );
 
-    public static final Pattern SUSPICIOUS_TLDS_PATTERN = Pattern.compile("[\\w-]{1,256}\\.("
-            + SUSPICIOUS_TLDS.stream().collect(Collectors.joining("|")) + ")", Pattern.CASE_INSENSITIVE);
-
     private static final Set<String> SCREAMERS = ImmutableSet.of(
             "akk.li",
             "dvorak.org",
@@ -72,14 +60,8 @@ public class URLConstants {
             "soulsphere.org"
     );
 
-    public static final Pattern SCREAMERS_PATTERN = Pattern.compile(String.format("(%s)",
-            SCREAMERS.stream().collect(Collectors.joining("|"))), Pattern.CASE_INSENSITIVE);
-
     public static final Set<String> NSFW = fetchNSFWSites();
 
-    public static final Pattern NSFW_PATTERN = Pattern.compile(String.format("(%s)",
-            NSFW.stream().collect(Collectors.joining("|"))), Pattern.CASE_INSENSITIVE);
-
     /**
      * These are domains which may be caught by our blacklisted TLDs or other such methods. These have been confirmed
      * safe and are all good to go to <3
@@ -100,12 +82,29 @@ public class URLConstants {
             "spies-on-my.webcam" // Image Server - https://ratelimited.me/
     );
 
-    public static final Pattern WHITELISTED_DOMAINS_PATTERN = Pattern.compile(String.format("(%s)",
-            WHITELISTED_DOMAINS.stream().collect(Collectors.joining("|"))), Pattern.CASE_INSENSITIVE);
+    /**
+     * Every domain list above in one trie, this is what {@link URLChecker} checks hosts against.
+     */
+    public static final DomainTrie DOMAINS = buildDomains();
+
+    private static DomainTrie buildDomains() {
+        DomainTrie trie = new DomainTrie();
+        IP_GRABBERS.forEach(domain -> trie.add(domain, URLCheckFlag.IP_GRABBER));
+        PHISHING.forEach(domain -> trie.add(domain, URLCheckFlag.PHISHING));
+        SCREAMERS.forEach(domain -> trie.add(domain, URLCheckFlag.SCREAMERS));
+        NSFW.forEach(domain -> trie.add(domain, URLCheckFlag.NSFW));
+        SUSPICIOUS_TLDS.forEach(tld -> trie.addSuffix(tld, URLCheckFlag.SUSPICIOUS));
+        // The path is checked with DISCORD_INVITE_PATTERN once the host matches.
+        trie.add("discord.gg", URLCheckFlag.DISCORD_INVITE);
+        trie.add("discordapp.com", URLCheckFlag.DISCORD_INVITE);
+        WHITELISTED_DOMAINS.forEach(trie::addWhitelisted);
+        return trie;
+    }
 
     private static Set<String> fetchNSFWSites() {
         try (BufferedReader br = new BufferedReader(new FileReader("nino/nsfw.txt"))) {
-            return ImmutableSet.copyOf(br.lines().collect(Collectors.toSet()));
+            return ImmutableSet.copyOf(br.lines().map(String::trim).filter(line -> !line.isEmpty())
+                    .collect(Collectors.toSet()));
         } catch (IOException e) {
             LoggerFactory.getLogger(URLConstants.class).error("Failed to load NSFW!");
             return ImmutableSet.of();
@@ -0,0 +1,227 @@
+package stream.flarebot.flarebot.music;
+
+import com.arsenarsen.lavaplayerbridge.PlayerManager;
+import com.arsenarsen.lavaplayerbridge.player.Player;
+import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.music.extractors.Extractor;
+import stream.flarebot.flarebot.music.extractors.RandomExtractor;
+import stream.flarebot.flarebot.music.extractors.SavedPlaylistExtractor;
+import stream.flarebot.flarebot.music.extractors.YouTubeExtractor;
+import stream.flarebot.flarebot.music.extractors.YouTubeSearchExtractor;
+import stream.flarebot.flarebot.util.MessageUtils;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads songs into the players of guilds, this is what play, search and load requests go through.
+ *
+ * Loads run on a fixed pool of {@link #THREADS} threads and a guild only has one load running at a time, the rest wait
+ * in a queue owned by the guild of at most {@link #GUILD_QUEUE_SIZE} loads. Songs are then queued in the order they
+ * were asked for and one guild can't take every thread. A waiting search or saved playlist load is replaced when the
+ * same user asks for another one, as is a waiting load of the same input.
+ *
+ * The extractors are shared by every load and the source managers they need are registered the first time anything is
+ * loaded.
+ */
+public class MusicLoader {
+
+    private static final Logger LOGGER = FlareBot.getLog(MusicLoader.class);
+
+    public static final ThreadGroup VIDEO_THREADS = new ThreadGroup("Video Threads");
+
+    private static final int THREADS = 8;
+    private static final int GUILD_QUEUE_SIZE = 5;
+
+    private static final YouTubeSearchExtractor SEARCH = new YouTubeSearchExtractor();
+    private static final SavedPlaylistExtractor SAVED_PLAYLIST = new SavedPlaylistExtractor();
+    private static final List<Extractor> extractors = Arrays.asList(new YouTubeExtractor(), SAVED_PLAYLIST,
+            new RandomExtractor());
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, r ->
+            new Thread(VIDEO_THREADS, r, "Video Thread-" + threadCount.incrementAndGet()));
+
+    private static final Map<Long, GuildLoads> guilds = new ConcurrentHashMap<>();
+    private static volatile boolean registered;
+
+    private MusicLoader() {
+    }
+
+    /**
+     * Load a URL, or a saved playlist in the format {@link SavedPlaylistExtractor} takes.
+     */
+    public static void load(String input, TextChannel channel, User user) {
+        for (Extractor extractor : extractors) {
+            if (extractor.valid(input)) {
+                submit(new Load(input, extractor, channel, user));
+                return;
+            }
+        }
+        MessageUtils.sendErrorMessage("Could not find a way to process that..", channel);
+    }
+
+    /**
+     * Search YouTube for a term and load the first result.
+     */
+    public static void search(String term, TextChannel channel, User user) {
+        submit(new Load(term, SEARCH, channel, user));
+    }
+
+    /**
+     * Called when something is queued to a player, this records the time to the first track of the current load.
+     */
+    public static void onQueued(Player player) {
+        GuildLoads queue = guilds.get(Long.parseLong(player.getGuildId()));
+        Load current = queue == null ? null : queue.current;
+        if (current != null && !current.firstQueued) {
+            current.firstQueued = true;
+            Metrics.musicTimeToFirstTrack.observe((System.nanoTime() - current.submittedAt) / 1e9);
+        }
+    }
+
+    private static void submit(Load load) {
+        while (true) {
+            GuildLoads queue = guilds.computeIfAbsent(load.guildId, GuildLoads::new);
+            synchronized (queue) {
+                // This queue was emptied and removed after we got it, get the new one.
+                if (queue.removed) continue;
+                Iterator<Load> pending = queue.pending.iterator();
+                while (pending.hasNext()) {
+                    if (load.supersedes(pending.next())) {
+                        pending.remove();
+                        Metrics.musicLoadsPending.dec();
+                        Metrics.musicLoadsSuperseded.inc();
+                    }
+                }
+                if (queue.current != null) {
+                    if (queue.pending.size() >= GUILD_QUEUE_SIZE) {
+                        MessageUtils.sendErrorMessage("There are too many songs being loaded! Try again soon!",
+                                load.channel);
+                        return;
+                    }
+                    queue.pending.add(load);
+                    Metrics.musicLoadsPending.inc();
+                    return;
+                }
+                queue.current = load;
+            }
+            Metrics.musicLoadsPending.inc();
+            execute(queue, load);
+            return;
+        }
+    }
+
+    private static void execute(GuildLoads queue, Load load) {
+        try {
+            POOL.execute(() -> run(queue, load));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Music loader is shutting down, dropping a load for " + load.guildId);
+            Metrics.musicLoadsPending.dec();
+            while (next(queue) != null)
+                Metrics.musicLoadsPending.dec();
+        }
+    }
+
+    private static void run(GuildLoads queue, Load load) {
+        Metrics.musicLoadsPending.dec();
+        try {
+            PlayerManager manager = FlareBot.instance().getMusicManager();
+            registerSourceManagers(manager);
+            Message message = load.channel.sendMessage("Processing..").complete();
+            load.extractor.process(load.input, manager.getPlayer(String.valueOf(load.guildId)), message, load.user);
+        } catch (Exception e) {
+            FlareBot.LOGGER.warn(("Could not init extractor for '{}'. Guild ID: " + load.guildId)
+                    .replace("{}", load.input), e);
+            FlareBot.reportError(load.channel, "Something went wrong while searching for the video!", e);
+        } finally {
+            Load next = next(queue);
+            if (next != null)
+                execute(queue, next);
+        }
+    }
+
+    /**
+     * Take the next waiting load of a guild once one finishes, if there is none the queue is removed.
+     */
+    private static Load next(GuildLoads queue) {
+        synchronized (queue) {
+            Load next = queue.pending.poll();
+            queue.current = next;
+            if (next == null) {
+                queue.removed = true;
+                guilds.remove(queue.guildId, queue);
+            }
+            return next;
+        }
+    }
+
+    private static void registerSourceManagers(PlayerManager manager) throws Exception {
+        if (registered) return;
+        synchronized (MusicLoader.class) {
+            if (registered) return;
+            Set<Class<? extends AudioSourceManager>> managers = new HashSet<>();
+            managers.add(SEARCH.getSourceManagerClass());
+            manager.getManager().registerSourceManager(SEARCH.newSourceManagerInstance());
+            for (Extractor extractor : extractors) {
+                if (managers.add(extractor.getSourceManagerClass()))
+                    manager.getManager().registerSourceManager(extractor.newSourceManagerInstance());
+            }
+            registered = true;
+        }
+    }
+
+    private static class GuildLoads {
+
+        private final long guildId;
+        // Guarded by this, current is volatile so onQueued can read it without locking.
+        private final Queue<Load> pending = new ArrayDeque<>();
+        private volatile Load current;
+        private boolean removed;
+
+        GuildLoads(long guildId) {
+            this.guildId = guildId;
+        }
+    }
+
+    private static class Load {
+
+        private final String input;
+        private final Extractor extractor;
+        private final TextChannel channel;
+        private final User user;
+        private final long guildId;
+        private final long submittedAt = System.nanoTime();
+        private volatile boolean firstQueued;
+
+        Load(String input, Extractor extractor, TextChannel channel, User user) {
+            this.input = input;
+            this.extractor = extractor;
+            this.channel = channel;
+            this.user = user;
+            this.guildId = channel.getGuild().getIdLong();
+        }
+
+        boolean supersedes(Load older) {
+            if (older.user.getIdLong() != user.getIdLong() || older.extractor != extractor) return false;
+            return extractor == SEARCH || extractor == SAVED_PLAYLIST || older.input.equals(input);
+        }
+    }
+}
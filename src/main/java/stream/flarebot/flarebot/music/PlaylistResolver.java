@@ -0,0 +1,137 @@
+package stream.flarebot.flarebot.music;
+
+import com.arsenarsen.lavaplayerbridge.player.Player;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.music.extractors.YouTubeExtractor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Resolves lists of YouTube video IDs into tracks, this is what loads saved playlists.
+ *
+ * Up to {@link #PARALLELISM} videos of a playlist are resolved at once on a shared pool, the size of the pool limits
+ * how many are resolved across every playlist being loaded. Tracks are handed back in playlist order as soon as they
+ * and everything before them have resolved, so the first songs can play while the rest of the playlist loads.
+ *
+ * Tracks are resolved through the {@link TrackCache} so loading a playlist again doesn't need the network. Videos which
+ * don't exist anymore are remembered for a shorter time so they aren't looked up every load.
+ */
+public class PlaylistResolver {
+
+    private static final Logger LOGGER = FlareBot.getLog(PlaylistResolver.class);
+
+    private static final int THREADS = 8;
+    private static final int PARALLELISM = 4;
+
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(THREADS, r ->
+            new Thread(r, "Playlist-Resolver"));
+
+    private static final Cache<String, Boolean> unavailable = CacheBuilder.newBuilder()
+            .maximumSize(5_000)
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+
+    private PlaylistResolver() {
+    }
+
+    /**
+     * Resolve the videos, this blocks until every video has been resolved or skipped.
+     *
+     * @param player The player to resolve the videos with.
+     * @param ids    The video IDs in playlist order.
+     * @param sink   Given the tracks in playlist order, each call has every track which was ready at the time.
+     * @return The amount of tracks given to the sink, videos which couldn't be resolved are skipped.
+     * @throws InterruptedException If the thread was interrupted, anything still resolving is cancelled.
+     */
+    public static int resolve(Player player, List<String> ids, Consumer<List<AudioTrack>> sink)
+            throws InterruptedException {
+        return resolve(input -> TrackCache.resolve(player, input), ids, sink);
+    }
+
+    static int resolve(Loader loader, List<String> ids, Consumer<List<AudioTrack>> sink) throws InterruptedException {
+        Deque<CompletableFuture<AudioTrack>> window = new ArrayDeque<>(PARALLELISM);
+        int next = 0;
+        int count = 0;
+        try {
+            while (next < ids.size() || !window.isEmpty()) {
+                while (window.size() < PARALLELISM && next < ids.size())
+                    window.add(resolve(loader, ids.get(next++)));
+
+                List<AudioTrack> ready = new ArrayList<>();
+                addIfResolved(ready, window.poll());
+                while (!window.isEmpty() && window.peek().isDone())
+                    addIfResolved(ready, window.poll());
+                if (!ready.isEmpty()) {
+                    sink.accept(ready);
+                    count += ready.size();
+                }
+            }
+        } finally {
+            for (CompletableFuture<AudioTrack> future : window)
+                future.cancel(true);
+        }
+        return count;
+    }
+
+    private static void addIfResolved(List<AudioTrack> ready, CompletableFuture<AudioTrack> future)
+            throws InterruptedException {
+        try {
+            AudioTrack track = future.get();
+            if (track != null)
+                ready.add(track);
+        } catch (ExecutionException e) {
+            LOGGER.warn("Failed to resolve a playlist track", e.getCause());
+        }
+    }
+
+    private static CompletableFuture<AudioTrack> resolve(Loader loader, String id) {
+        if (unavailable.getIfPresent(id) != null)
+            return CompletableFuture.completedFuture(null);
+        return CompletableFuture.supplyAsync(() -> load(loader, id), POOL);
+    }
+
+    private static AudioTrack load(Loader loader, String id) {
+        try {
+            AudioItem item = loader.load(YouTubeExtractor.WATCH_URL + id);
+            if (item instanceof AudioTrack)
+                return (AudioTrack) item;
+        } catch (FriendlyException e) {
+            // Anything but a common exception could be YouTube having a problem, it may work next time.
+            if (e.severity != FriendlyException.Severity.COMMON) {
+                LOGGER.debug("Could not resolve " + id, e);
+                return null;
+            }
+        } catch (ExecutionException e) {
+            LOGGER.debug("Could not resolve " + id, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        unavailable.put(id, true);
+        return null;
+    }
+
+    /**
+     * Loads an identifier, this is {@link TrackCache#resolve(Player, String)} outside of tests.
+     */
+    interface Loader {
+
+        AudioItem load(String input) throws FriendlyException, InterruptedException, ExecutionException;
+    }
+}
@@ -15,6 +15,7 @@ public class QueueListener implements QueueHook {
 
     @Override
     public void execute(Player player, Item item) {
+        MusicLoader.onQueued(player);
         List<Track> tracks = new ArrayList<>();
         if (item instanceof Playlist) {
             tracks.addAll(((Playlist) item).getPlaylist());
@@ -0,0 +1,162 @@
+package stream.flarebot.flarebot.music;
+
+import com.arsenarsen.lavaplayerbridge.player.Player;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.music.extractors.YouTubeExtractor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Caches what lavaplayer resolved an identifier to and what a YouTube search found, shared by every guild.
+ *
+ * Identifiers are normalised first so a video is cached once no matter if it was given as an ID, a watch URL or a
+ * short URL. The cached items are never played, everyone gets copies of them as a track can only be played once.
+ * If a key is already being loaded anyone else asking for it waits for that load rather than starting their own.
+ *
+ * Items which weren't found and loads which failed aren't cached, a search without any results is.
+ */
+public class TrackCache {
+
+    private static final Pattern YOUTUBE_URL = Pattern.compile(YouTubeExtractor.ANY_YT_URL);
+    private static final Pattern VIDEO_ID = Pattern.compile("[a-zA-Z0-9_-]{11}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Playlists weigh as much as their tracks.
+    private static final Cache<String, AudioItem> items = CacheBuilder.newBuilder()
+            .maximumWeight(100_000)
+            .weigher((String key, AudioItem item) -> item instanceof AudioPlaylist
+                    ? Math.max(1, ((AudioPlaylist) item).getTracks().size()) : 1)
+            .expireAfterWrite(6, TimeUnit.HOURS)
+            .build();
+
+    private static final Cache<String, Optional<String>> searches = CacheBuilder.newBuilder()
+            .maximumSize(20_000)
+            .expireAfterWrite(1, TimeUnit.DAYS)
+            .build();
+
+    private static final NotFoundException NOT_FOUND = new NotFoundException();
+
+    private TrackCache() {
+    }
+
+    /**
+     * Resolve an identifier through the cache, this is a drop in replacement for {@link Player#resolve(String)}.
+     *
+     * @param player The player to resolve with on a miss.
+     * @param input  The identifier, URL or lavaplayer search.
+     * @return A copy of the item or null if nothing was found.
+     */
+    public static AudioItem resolve(Player player, String input)
+            throws FriendlyException, InterruptedException, ExecutionException {
+        boolean[] loaded = new boolean[1];
+        try {
+            AudioItem item = items.get(normalise(input), () -> {
+                loaded[0] = true;
+                AudioItem resolved = player.resolve(input);
+                if (resolved == null)
+                    throw NOT_FOUND;
+                return resolved;
+            });
+            return copy(item);
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            Throwable cause = e.getCause();
+            if (cause == NOT_FOUND)
+                return null;
+            if (cause instanceof FriendlyException)
+                throw (FriendlyException) cause;
+            if (cause instanceof InterruptedException)
+                throw (InterruptedException) cause;
+            if (cause instanceof ExecutionException)
+                throw (ExecutionException) cause;
+            throw new ExecutionException(cause);
+        } finally {
+            Metrics.trackCacheRequests.labels("items", loaded[0] ? "miss" : "hit").inc();
+        }
+    }
+
+    /**
+     * Look up a search through the cache.
+     *
+     * @param query  The search, case and extra whitespace don't matter.
+     * @param lookup Does the search on a miss, giving the URL of the first result or empty if there wasn't one.
+     * @return The URL of the first result or empty if there wasn't one.
+     * @throws Exception Anything thrown by the lookup, nothing is cached when it throws.
+     */
+    public static Optional<String> search(String query, Callable<Optional<String>> lookup) throws Exception {
+        boolean[] loaded = new boolean[1];
+        try {
+            return searches.get(WHITESPACE.matcher(query.trim()).replaceAll(" ").toLowerCase(Locale.ROOT), () -> {
+                loaded[0] = true;
+                return lookup.call();
+            });
+        } catch (ExecutionException | UncheckedExecutionException | ExecutionError e) {
+            if (e.getCause() instanceof Exception)
+                throw (Exception) e.getCause();
+            throw e;
+        } finally {
+            Metrics.trackCacheRequests.labels("searches", loaded[0] ? "miss" : "hit").inc();
+        }
+    }
+
+    /**
+     * Turn the ways of giving the same YouTube video into one key, anything else is only trimmed. Watch URLs with a
+     * playlist are left alone as they load the playlist.
+     */
+    static String normalise(String input) {
+        String trimmed = input.trim();
+        if (VIDEO_ID.matcher(trimmed).matches())
+            return "yt:" + trimmed;
+        Matcher matcher = YOUTUBE_URL.matcher(trimmed);
+        if (!matcher.matches())
+            return trimmed;
+        if (matcher.group(2) != null)
+            return "ytpl:" + matcher.group(2);
+        String id = matcher.group(1) != null ? matcher.group(1) : matcher.group(3);
+        if (trimmed.contains("list=") || id == null || !VIDEO_ID.matcher(id).matches())
+            return trimmed;
+        return "yt:" + id;
+    }
+
+    private static AudioItem copy(AudioItem item) {
+        if (item instanceof AudioTrack)
+            return ((AudioTrack) item).makeClone();
+        if (item instanceof AudioPlaylist) {
+            AudioPlaylist playlist = (AudioPlaylist) item;
+            List<AudioTrack> tracks = new ArrayList<>(playlist.getTracks().size());
+            AudioTrack selected = null;
+            for (AudioTrack track : playlist.getTracks()) {
+                AudioTrack clone = track.makeClone();
+                if (track == playlist.getSelectedTrack())
+                    selected = clone;
+                tracks.add(clone);
+            }
+            return new BasicAudioPlaylist(playlist.getName(), tracks, selected, playlist.isSearchResult());
+        }
+        return item;
+    }
+
+    // Thrown out of a load when nothing was found so it isn't cached, there's only one so it has no stack trace.
+    private static class NotFoundException extends Exception {
+
+        NotFoundException() {
+            super("Nothing was found", null, false, false);
+        }
+    }
+}
@@ -1,87 +0,0 @@
-package stream.flarebot.flarebot.music;
-
-import com.arsenarsen.lavaplayerbridge.PlayerManager;
-import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
-import net.dv8tion.jda.core.entities.Message;
-import net.dv8tion.jda.core.entities.TextChannel;
-import net.dv8tion.jda.core.entities.User;
-import stream.flarebot.flarebot.FlareBot;
-import stream.flarebot.flarebot.music.extractors.Extractor;
-import stream.flarebot.flarebot.music.extractors.RandomExtractor;
-import stream.flarebot.flarebot.music.extractors.SavedPlaylistExtractor;
-import stream.flarebot.flarebot.music.extractors.YouTubeExtractor;
-import stream.flarebot.flarebot.music.extractors.YouTubeSearchExtractor;
-import stream.flarebot.flarebot.util.MessageUtils;
-
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
-
-public class VideoThread extends Thread {
-
-    private static PlayerManager manager;
-    private static final List<Class<? extends Extractor>> extractors = Arrays.asList(YouTubeExtractor.class,
-            SavedPlaylistExtractor.class, RandomExtractor.class);
-    private static final Set<Class<? extends AudioSourceManager>> managers = new HashSet<>();
-    public static final ThreadGroup VIDEO_THREADS = new ThreadGroup("Video Threads");
-    private User user;
-    private TextChannel channel;
-    private String url;
-    private Extractor extractor;
-
-    private VideoThread() {
-        if (manager == null)
-            manager = FlareBot.instance().getMusicManager();
-        setName("Video Thread " + VIDEO_THREADS.activeCount());
-    }
-
-    @Override
-    public void run() {
-        Message message = channel.sendMessage("Processing..").complete();
-        try {
-            if (extractor == null)
-                for (Class<? extends Extractor> clazz : extractors) {
-                    Extractor extractor = clazz.newInstance();
-                    if (!extractor.valid(url))
-                        continue;
-                    this.extractor = extractor;
-                    break;
-                }
-            if (extractor == null) {
-                MessageUtils.editMessage(message, "Could not find a way to process that..");
-                return;
-            }
-            if (managers.add(extractor.getSourceManagerClass()))
-                manager.getManager().registerSourceManager(extractor.newSourceManagerInstance());
-            extractor.process(url, manager.getPlayer(channel.getGuild().getId()), message, user);
-        } catch (Exception e) {
-            FlareBot.LOGGER.warn(("Could not init extractor for '{}'. Guild ID: " + channel.getGuild().getId()).replace("{}", url), e);
-            FlareBot.reportError(channel, "Something went wrong while searching for the video!", e);
-        }
-    }
-
-    @Override
-    public void start() {
-        if (url == null)
-            throw new IllegalStateException("URL Was not set!");
-        super.start();
-    }
-
-    public static VideoThread getThread(String url, TextChannel channel, User user) {
-        VideoThread thread = new VideoThread();
-        thread.url = url;
-        thread.channel = channel;
-        thread.user = user;
-        return thread;
-    }
-
-    public static VideoThread getSearchThread(String term, TextChannel channel, User user) {
-        VideoThread thread = new VideoThread();
-        thread.url = term;
-        thread.channel = channel;
-        thread.user = user;
-        thread.extractor = new YouTubeSearchExtractor();
-        return thread;
-    }
-}
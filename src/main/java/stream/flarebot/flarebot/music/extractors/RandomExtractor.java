@@ -9,6 +9,7 @@ import com.sedmelluq.discord.lavaplayer.track.AudioItem;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.User;
+import stream.flarebot.flarebot.music.TrackCache;
 import stream.flarebot.flarebot.util.MessageUtils;
 
 public class RandomExtractor implements Extractor {
@@ -23,7 +24,7 @@ public class RandomExtractor implements Extractor {
         int i = 0;
         for (String s : input.split(",")) {
             try {
-                AudioItem probablyATrack = player.resolve(s);
+                AudioItem probablyATrack = TrackCache.resolve(player, s);
                 if (probablyATrack == null)
                     continue;
                 Track track = new Track((AudioTrack) probablyATrack);
@@ -5,15 +5,15 @@ import com.arsenarsen.lavaplayerbridge.player.Playlist;
 import com.arsenarsen.lavaplayerbridge.player.Track;
 import com.sedmelluq.discord.lavaplayer.source.AudioSourceManager;
 import com.sedmelluq.discord.lavaplayer.source.youtube.YoutubeAudioSourceManager;
-import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.User;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
+import stream.flarebot.flarebot.music.PlaylistResolver;
 import stream.flarebot.flarebot.util.MessageUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class SavedPlaylistExtractor implements Extractor {
 
@@ -25,37 +25,21 @@ public class SavedPlaylistExtractor implements Extractor {
     @Override
     public void process(String input, Player player, Message message, User user) throws Exception {
         input = input.substring(input.indexOf('\u200B') + 1).replaceAll("\\[? ?]?", "");
-        int i = 0;
-        ArrayList<Track> playlist = new ArrayList<>();
-        for (String s : input.split(",")) {
-            String url = YouTubeExtractor.WATCH_URL + s;
-            Document doc;
-            try {
-                doc = Jsoup.connect(url).get();
-            } catch (Exception e) {
-                continue;
-            }
-            if (!doc.title().endsWith("YouTube") || doc.title().equals("YouTube")) {
-                continue;
-            }
-            try {
-                Track track = new Track((AudioTrack) player.resolve(url));
+        int loaded = PlaylistResolver.resolve(player, Arrays.asList(input.split(",")), tracks -> {
+            List<Track> playlist = new ArrayList<>(tracks.size());
+            for (AudioTrack audioTrack : tracks) {
+                Track track = new Track(audioTrack);
                 track.getMeta().put("requester", user.getId());
                 track.getMeta().put("guildId", player.getGuildId());
                 playlist.add(track);
-                if (playlist.size() == 10) {
-                    player.queue(new Playlist(playlist));
-                    playlist.clear();
-                }
-                i++;
-            } catch (FriendlyException ignored) {
             }
-        }
-        if (!playlist.isEmpty()) {
-            player.queue(new Playlist(playlist));
-        }
+            if (playlist.size() == 1)
+                player.queue(playlist.get(0));
+            else
+                player.queue(new Playlist(playlist));
+        });
         MessageUtils.editMessage(null, MessageUtils.getEmbed(user)
-                .setDescription(String.format("*Loaded %s songs!*", i)), message);
+                .setDescription(String.format("*Loaded %s songs!*", loaded)), message);
     }
 
     @Override
@@ -10,27 +10,45 @@ import okhttp3.Response;
 import org.json.JSONArray;
 import org.json.JSONObject;
 import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.music.TrackCache;
 import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.WebUtils;
 
 import java.io.IOException;
 import java.net.URLEncoder;
+import java.util.Optional;
 
 public class YouTubeSearchExtractor extends YouTubeExtractor {
 
     @Override
     public void process(String input, Player player, Message message, User user) throws Exception {
+        Optional<String> link;
+        try {
+            link = TrackCache.search(input, () -> search(input));
+        } catch (RateLimitedException e) {
+            // \uD83E\uDD15 = :head_bandage:
+            MessageUtils.editMessage(null, MessageUtils.getEmbed(user)
+                    .setDescription("We seem to have hit the YouTube API ratelimit \uD83E\uDD15 we're sorry about the "
+                            + "inconvenience please try searching again later or using a URL!"), message);
+            return;
+        }
+        if (!link.isPresent()) {
+            MessageUtils.editMessage(null, MessageUtils.getEmbed(user)
+                    .setDescription(String
+                            .format("Could not find any results for `%s`", input)), message);
+            return;
+        }
+        super.process(link.get(), player, message, user);
+    }
+
+    private Optional<String> search(String input) throws IOException {
         Response response = WebUtils.get(new Request.Builder().get().url(String.format("https://www.googleapis.com/youtube/v3/search" +
                         "?q=%s&part=snippet&key=%s&type=video,playlist",
                 URLEncoder.encode(input, "UTF-8"), FlareBot.getYoutubeKey())));
 
         if (response.code() == 403) {
-            // \uD83E\uDD15 = :head_bandage:
-            MessageUtils.editMessage(null, MessageUtils.getEmbed(user)
-                    .setDescription("We seem to have hit the YouTube API ratelimit \uD83E\uDD15 we're sorry about the "
-                            + "inconvenience please try searching again later or using a URL!"), message);
             response.close();
-            return;
+            throw new RateLimitedException();
         }
         if (!response.isSuccessful()) {
             response.close();
@@ -38,7 +56,6 @@ public class YouTubeSearchExtractor extends YouTubeExtractor {
         }
         JSONArray results = new JSONObject(response.body().string()).getJSONArray("items");
         response.close();
-        String link = null;
         for (Object res : results) {
             if (res instanceof JSONObject) {
                 JSONObject result = (JSONObject) res;
@@ -46,20 +63,13 @@ public class YouTubeSearchExtractor extends YouTubeExtractor {
                     continue;
                 JSONObject id = result.getJSONObject("id");
                 if (id.getString("kind").equals("youtube#playlist")) {
-                    link = PLAYLIST_URL + id.getString("playlistId");
+                    return Optional.of(PLAYLIST_URL + id.getString("playlistId"));
                 } else {
-                    link = WATCH_URL + id.getString("videoId");
+                    return Optional.of(WATCH_URL + id.getString("videoId"));
                 }
-                break;
             }
         }
-        if (link == null) {
-            MessageUtils.editMessage(null, MessageUtils.getEmbed(user)
-                    .setDescription(String
-                            .format("Could not find any results for `%s`", input)), message);
-            return;
-        }
-        super.process(link, player, message, user);
+        return Optional.empty();
     }
 
     @Override
@@ -68,4 +78,7 @@ public class YouTubeSearchExtractor extends YouTubeExtractor {
         manager.setPlaylistPageCount(100);
         return manager;
     }
+
+    private static class RateLimitedException extends IOException {
+    }
 }
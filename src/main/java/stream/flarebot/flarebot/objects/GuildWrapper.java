@@ -11,6 +11,7 @@ import stream.flarebot.flarebot.permissions.PerGuildPermissions;
 import stream.flarebot.flarebot.util.Constants;
 import stream.flarebot.flarebot.util.ReportManager;
 import stream.flarebot.flarebot.util.general.GuildUtils;
+import stream.flarebot.flarebot.util.general.VariableTemplate;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -38,6 +39,8 @@ public class GuildWrapper {
     private ReportManager reportManager = new ReportManager();
     private Map<String, List<String>> warnings = new ConcurrentHashMap<>();
     private Map<String, String> tags = new ConcurrentHashMap<>();
+    // Parsed tags, a tag is parsed again when its text no longer matches.
+    private transient volatile Map<String, VariableTemplate> tagTemplates;
     private String musicAnnounceChannelId = null;
     private Moderation moderation;
     private NINO nino = null;
@@ -46,6 +49,9 @@ public class GuildWrapper {
     // oooo special!
     private boolean betaAccess = false;
 
+    // Hashes of each storage section as it was last loaded or written, see GuildStorage.
+    private transient long[] sectionHashes = null;
+
     /**
      * <b>Do not use</b>
      *
@@ -223,6 +229,30 @@ public class GuildWrapper {
         return tags;
     }
 
+    /**
+     * Get a tag parsed into a template, this is kept until the tag is changed.
+     *
+     * @param tag The name of the tag.
+     * @return The template of the tag or null if there is no such tag.
+     */
+    @Nullable
+    public VariableTemplate getTagTemplate(String tag) {
+        Map<String, VariableTemplate> cache = tagTemplates;
+        if (cache == null)
+            tagTemplates = cache = new ConcurrentHashMap<>();
+        String message = getTags().get(tag);
+        if (message == null) {
+            cache.remove(tag);
+            return null;
+        }
+        VariableTemplate template = cache.get(tag);
+        if (template == null || !template.getSource().equals(message)) {
+            template = VariableTemplate.compile(message);
+            cache.put(tag, template);
+        }
+        return template;
+    }
+
     public Moderation getModeration() {
         if (this.moderation == null) this.moderation = new Moderation();
         return this.moderation;
@@ -259,4 +289,12 @@ public class GuildWrapper {
             settings = new GuildSettings();
         return settings;
     }
+
+    public long[] getSectionHashes() {
+        return sectionHashes;
+    }
+
+    public void setSectionHashes(long[] sectionHashes) {
+        this.sectionHashes = sectionHashes;
+    }
 }
@@ -1,7 +1,5 @@
 package stream.flarebot.flarebot.objects;
 
-import com.datastax.driver.core.ResultSet;
-import com.datastax.driver.core.Row;
 import com.google.common.cache.CacheLoader;
 import com.google.gson.JsonParser;
 import io.github.binaryoverload.JSONConfig;
@@ -14,7 +12,7 @@ import java.util.regex.Pattern;
 
 import stream.flarebot.flarebot.FlareBot;
 import stream.flarebot.flarebot.FlareBotManager;
-import stream.flarebot.flarebot.database.CassandraController;
+import stream.flarebot.flarebot.database.GuildStorage;
 import stream.flarebot.flarebot.permissions.Group;
 import stream.flarebot.flarebot.util.Constants;
 import stream.flarebot.flarebot.util.MessageUtils;
@@ -35,16 +33,27 @@ public class GuildWrapperLoader extends CacheLoader<String, GuildWrapper> {
     @ParametersAreNonnullByDefault
     public GuildWrapper load(String id) {
         long start = System.currentTimeMillis();
-        ResultSet set = CassandraController.execute("SELECT data FROM " + FlareBotManager.instance().GUILD_DATA_TABLE
-                + " WHERE guild_id = '"  + id + "'");
+        GuildStorage storage = FlareBotManager.instance().getGuildStorage();
+        GuildStorage.StoredGuild stored = storage.load(id);
         GuildWrapper wrapper;
-        Row row = set != null ? set.one() : null;
         String json = null;
         JSONConfig data;
+        if (stored != null) {
+            try {
+                wrapper = stored.toWrapper();
+            } catch (Exception e) {
+                FlareBot.LOGGER.error(Markers.TAG_DEVELOPER, "Failed to load GuildWrapper!!\n" +
+                        "Guild ID: " + id + "\n" +
+                        "Guild JSON: Stored in sections\n" +
+                        "Error: " + e.getMessage(), e);
+                return null;
+            }
+            wrapper.setSectionHashes(stored.getHashes());
+            return loaded(id, wrapper, start);
+        }
         try {
-            if (row != null) {
-                json = row.getString("data");
-
+            json = storage.loadLegacy(id);
+            if (json != null) {
                 if (json.isEmpty() || json.equalsIgnoreCase("null")) {
                     return new GuildWrapper(id);
                 }
@@ -60,7 +69,7 @@ public class GuildWrapperLoader extends CacheLoader<String, GuildWrapper> {
             if (json == null) {
                 FlareBot.LOGGER.error(Markers.TAG_DEVELOPER, "Failed to load GuildWrapper!!\n" +
                         "Guild ID: " + id + "\n" +
-                        "Guild JSON: " + (row != null ? row.getString("data") : "New guild data!") + "\n" +
+                        "Guild JSON: New guild data!\n" +
                         "Error: " + e.getMessage(), e);
                 return null;
             }
@@ -103,6 +112,12 @@ public class GuildWrapperLoader extends CacheLoader<String, GuildWrapper> {
                 return null;
             }
         }
+        // Not in the section table yet, queue a save so it gets migrated.
+        FlareBotManager.instance().saveGuild(id, wrapper, -1);
+        return loaded(id, wrapper, start);
+    }
+
+    private GuildWrapper loaded(String id, GuildWrapper wrapper, long start) {
         long total = (System.currentTimeMillis() - start);
         loadTimes.add(total);
 
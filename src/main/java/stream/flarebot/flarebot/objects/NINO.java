@@ -9,6 +9,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
@@ -23,6 +24,9 @@ public class NINO {
     private byte mode = 0;
 
     private Set<String> whitelistedUrls;
+    // Lower cased copy of whitelistedUrls for lookups, rebuilt when it's changed. Only built or cleared while holding
+    // this so a rebuild which started before a change can't be published after it.
+    private transient volatile Set<String> whitelistLookup;
     private Set<Long> whitelistedChannels;
     private List<String> removeMessages = new CopyOnWriteArrayList<>();
 
@@ -40,13 +44,31 @@ public class NINO {
         return !urlFlags.isEmpty();
     }
 
-    public void addUrl(String str) {
+    public synchronized void addUrl(String str) {
         this.whitelistedUrls.add(str);
+        this.whitelistLookup = null;
     }
 
-    public void removeUrl(String url) {
+    public synchronized void removeUrl(String url) {
         if (this.whitelistedUrls.contains(url))
             this.whitelistedUrls.remove(url);
+        this.whitelistLookup = null;
+    }
+
+    /**
+     * Check if a URL or domain is whitelisted in this guild, this ignores case.
+     */
+    public boolean isWhitelisted(String url) {
+        Set<String> lookup = whitelistLookup;
+        if (lookup == null)
+            lookup = buildWhitelistLookup();
+        return lookup.contains(url.toLowerCase(Locale.ROOT));
+    }
+
+    private synchronized Set<String> buildWhitelistLookup() {
+        if (whitelistLookup == null)
+            whitelistLookup = whitelistedUrls.stream().map(s -> s.toLowerCase(Locale.ROOT)).collect(Collectors.toSet());
+        return whitelistLookup;
     }
 
     public void addChannel(long channelId) {
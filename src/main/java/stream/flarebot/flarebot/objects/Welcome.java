@@ -1,9 +1,12 @@
 package stream.flarebot.flarebot.objects;
 
 import stream.flarebot.flarebot.util.RandomUtils;
+import stream.flarebot.flarebot.util.general.VariableTemplate;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Welcome {
 
@@ -12,6 +15,8 @@ public class Welcome {
     private boolean dmEnabled = false;
     private boolean guildEnabled = false;
     private String channelId;
+    // Parsed messages by their text, the lists are changed directly so this is cleared once it has more than them.
+    private transient volatile Map<String, VariableTemplate> templates;
 
     public Welcome() {
         dmMessages = new ArrayList<>();
@@ -45,6 +50,23 @@ public class Welcome {
         return RandomUtils.getRandomString(guildMessages);
     }
 
+    public VariableTemplate getRandomDmTemplate() {
+        return getTemplate(getRandomDmMessage());
+    }
+
+    public VariableTemplate getRandomGuildTemplate() {
+        return getTemplate(getRandomGuildMessage());
+    }
+
+    private VariableTemplate getTemplate(String message) {
+        Map<String, VariableTemplate> cache = templates;
+        if (cache == null)
+            templates = cache = new ConcurrentHashMap<>();
+        if (cache.size() > dmMessages.size() + guildMessages.size())
+            cache.clear();
+        return cache.computeIfAbsent(message, VariableTemplate::compile);
+    }
+
     public boolean isDmEnabled() {
         return this.dmEnabled;
     }
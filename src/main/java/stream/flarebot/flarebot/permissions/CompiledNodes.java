@@ -0,0 +1,29 @@
+package stream.flarebot.flarebot.permissions;
+
+/**
+ * A set of permission nodes compiled against every {@link Permission}. Checking a permission is then just an array
+ * lookup instead of matching every node.
+ *
+ * Nodes are evaluated in the order they are given and the first node which matches a permission decides it, the same
+ * as checking the nodes one by one.
+ */
+class CompiledNodes {
+
+    private final Permission.Reply[] replies = new Permission.Reply[Permission.VALUES.length];
+
+    CompiledNodes(Iterable<String> nodes) {
+        for (String s : nodes) {
+            boolean negated = s.startsWith("-");
+            PermissionNode node = new PermissionNode(s.substring(negated ? 1 : 0));
+            for (Permission permission : Permission.VALUES) {
+                if (replies[permission.ordinal()] == null && node.test(permission.getPermission()))
+                    replies[permission.ordinal()] = negated ? Permission.Reply.DENY : Permission.Reply.ALLOW;
+            }
+        }
+    }
+
+    Permission.Reply getReply(Permission permission) {
+        Permission.Reply reply = replies[permission.ordinal()];
+        return reply == null ? Permission.Reply.NEUTRAL : reply;
+    }
+}
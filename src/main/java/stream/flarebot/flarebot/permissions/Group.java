@@ -8,6 +8,7 @@ public class Group {
     private final ConcurrentHashSet<String> permissions = new ConcurrentHashSet<>();
     private String name;
     private String roleId;
+    private transient volatile CompiledNodes compiled;
 
     private Group() {
     }
@@ -26,29 +27,53 @@ public class Group {
 
     public void setName(String name) {
         this.name = name;
+        PermissionCache.invalidateAll();
     }
 
     public boolean addPermission(String permission) {
-        return permissions.add(permission);
+        boolean added = permissions.add(permission);
+        invalidate();
+        return added;
     }
 
     public boolean removePermission(String permission) {
-        return permissions.remove(permission);
+        boolean removed = permissions.remove(permission);
+        invalidate();
+        return removed;
+    }
+
+    public void clearPermissions() {
+        permissions.clear();
+        invalidate();
     }
 
     public Permission.Reply hasPermission(Permission permission) {
-        for (String s : permissions) {
-            if (new PermissionNode(s.substring(s.startsWith("-") ? 1 : 0)).test(permission.getPermission())) {
-                if (s.startsWith("-"))
-                    return Permission.Reply.DENY;
-                return Permission.Reply.ALLOW;
-            }
+        CompiledNodes nodes = compiled;
+        if (nodes == null)
+            nodes = compile();
+        return nodes.getReply(permission);
+    }
+
+    private synchronized CompiledNodes compile() {
+        if (compiled == null)
+            compiled = new CompiledNodes(permissions);
+        return compiled;
+    }
+
+    /**
+     * Recompile the permissions of this group, this needs to be called if {@link #getPermissions()} is modified
+     * directly.
+     */
+    public void invalidate() {
+        synchronized (this) {
+            compiled = null;
         }
-        return Permission.Reply.NEUTRAL;
+        PermissionCache.invalidateAll();
     }
 
     public void linkRole(String roleId) {
         this.roleId = roleId;
+        PermissionCache.invalidateAll();
     }
 
     public String getRoleId() {
@@ -1,13 +1,16 @@
 package stream.flarebot.flarebot.permissions;
 
 import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.Role;
 import stream.flarebot.flarebot.FlareBot;
 import stream.flarebot.flarebot.util.Constants;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 public class PerGuildPermissions {
 
@@ -18,28 +21,47 @@ public class PerGuildPermissions {
         // So we can go into servers and figure out any issues they have.
         if (isCreator(user.getUser()))
             return true;
+        if (isContributor(user.getUser()) && FlareBot.instance().isTestBot())
+            return true;
+        long guildId = user.getGuild().getIdLong();
+        long userId = user.getUser().getIdLong();
+        Permission.Reply cached = PermissionCache.get(guildId, userId, permission);
+        if (cached != Permission.Reply.NEUTRAL)
+            return cached == Permission.Reply.ALLOW;
+
+        long token = PermissionCache.token();
+        boolean allowed = checkPermission(user, permission);
+        PermissionCache.put(guildId, userId, permission, allowed, token);
+        return allowed;
+    }
+
+    private boolean checkPermission(Member user, Permission permission) {
         if (user.isOwner())
             return true;
         if (user.getPermissions().contains(net.dv8tion.jda.core.Permission.ADMINISTRATOR))
             return true;
-        if (isContributor(user.getUser()) && FlareBot.instance().isTestBot())
-            return true;
-        if (getUser(user).hasPermission(permission) == Permission.Reply.ALLOW)
+        User permUser = getUser(user);
+        Permission.Reply userReply = permUser.hasPermission(permission);
+        if (userReply == Permission.Reply.ALLOW)
             return true;
-        if (getUser(user).hasPermission(permission) == Permission.Reply.DENY) {
+        if (userReply == Permission.Reply.DENY) {
             return false;
         }
         Permission.Reply hasPerm = Permission.Reply.NEUTRAL;
+        Set<String> roleIds = null;
         synchronized (groups) {
             for (Group g : groups) {
-                if (g.hasPermission(permission) == Permission.Reply.NEUTRAL) continue;
-                if (g.getRoleId() != null && user.getGuild().getRoleById(g.getRoleId()) != null) {
-                    if (user.getRoles().contains(user.getGuild().getRoleById(g.getRoleId()))) {
-                        hasPerm = g.hasPermission(permission);
+                Permission.Reply groupReply = g.hasPermission(permission);
+                if (groupReply == Permission.Reply.NEUTRAL) continue;
+                if (g.getRoleId() != null) {
+                    if (roleIds == null)
+                        roleIds = user.getRoles().stream().map(Role::getId).collect(Collectors.toSet());
+                    if (roleIds.contains(g.getRoleId())) {
+                        hasPerm = groupReply;
                     }
                 }
-                if (getUser(user).getGroups().contains(g.getName())) {
-                    hasPerm = g.hasPermission(permission);
+                if (permUser.getGroups().contains(g.getName())) {
+                    hasPerm = groupReply;
                 }
             }
         }
@@ -69,12 +91,14 @@ public class PerGuildPermissions {
             return false;
         } else {
             groups.add(new Group(group));
+            PermissionCache.invalidateAll();
             return true;
         }
     }
 
     public void deleteGroup(String group) {
         groups.remove(getGroup(group));
+        PermissionCache.invalidateAll();
     }
 
     public boolean hasGroup(String group) {
@@ -112,6 +136,7 @@ public class PerGuildPermissions {
         int index = groups.indexOf(group);
         groups.remove(index);
         groups.add(pos, group);
+        PermissionCache.invalidateAll();
     }
 
     public boolean cloneGroup(Group group, String newGroupName) {
@@ -122,6 +147,7 @@ public class PerGuildPermissions {
             for(String permission : group.getPermissions())
                 newGroup.addPermission(permission);
             groups.add(newGroup);
+            PermissionCache.invalidateAll();
             return true;
         }
     }
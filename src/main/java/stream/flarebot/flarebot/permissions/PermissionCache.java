@@ -0,0 +1,152 @@
+package stream.flarebot.flarebot.permissions;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Caches the outcome of {@link PerGuildPermissions#hasPermission} per guild, member and permission.
+ *
+ * Every invalidation takes a new stamp from a clock. A check takes a {@link #token()} before it looks at anything and
+ * its decision is stored with that token, a decision is only used while its token is at least the stamp of the last
+ * invalidation which covers it. A check which was running while an invalidation happened may have seen the old
+ * permissions, so its decision is never used.
+ *
+ * Any change to groups or users invalidates everything, permission changes are rare so this is far simpler than
+ * tracking which members a change affects. Role changes only invalidate the member or guild they happened in.
+ */
+public class PermissionCache {
+
+    private static final AtomicLong clock = new AtomicLong();
+    // The stamps of the last invalidations.
+    private static final AtomicLong generation = new AtomicLong();
+    private static final Map<Long, Long> guildVersions = new ConcurrentHashMap<>();
+    // The newest member stamp which was evicted, members with no entry start from this.
+    private static final AtomicLong evicted = new AtomicLong();
+
+    private static final Cache<MemberKey, Decisions> decisions = CacheBuilder.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .<MemberKey, Decisions>removalListener(notification -> {
+                if (notification.wasEvicted())
+                    evicted.accumulateAndGet(notification.getValue().memberVersion, Math::max);
+            })
+            .build();
+
+    private PermissionCache() {
+    }
+
+    /**
+     * Take a token, this must be done before the permissions are looked at for a decision to be stored with
+     * {@link #put(long, long, Permission, boolean, long)}.
+     */
+    static long token() {
+        return clock.get();
+    }
+
+    /**
+     * Get a cached decision.
+     *
+     * @return {@link Permission.Reply#ALLOW} or {@link Permission.Reply#DENY} if this has been decided,
+     * {@link Permission.Reply#NEUTRAL} if it needs to be checked.
+     */
+    static Permission.Reply get(long guildId, long userId, Permission permission) {
+        Decisions entry = decisions.getIfPresent(new MemberKey(guildId, userId));
+        if (entry == null) return Permission.Reply.NEUTRAL;
+        long decision = entry.decisions.get(permission.ordinal());
+        if (decision == 0 || !isCurrent(guildId, entry, (decision >>> 1) - 1))
+            return Permission.Reply.NEUTRAL;
+        return (decision & 1) == 1 ? Permission.Reply.ALLOW : Permission.Reply.DENY;
+    }
+
+    /**
+     * Store a decision.
+     *
+     * @param token The {@link #token()} taken before the decision was made.
+     */
+    static void put(long guildId, long userId, Permission permission, boolean allowed, long token) {
+        MemberKey key = new MemberKey(guildId, userId);
+        Decisions entry = decisions.asMap().computeIfAbsent(key, k -> new Decisions(evicted.get()));
+        if (!isCurrent(guildId, entry, token)) return;
+        entry.decisions.set(permission.ordinal(), ((token + 1) << 1) | (allowed ? 1 : 0));
+    }
+
+    private static boolean isCurrent(long guildId, Decisions entry, long token) {
+        if (token < entry.memberVersion || token < generation.get()) return false;
+        Long guildVersion = guildVersions.get(guildId);
+        return guildVersion == null || token >= guildVersion;
+    }
+
+    // Tokens taken from now on see everything which happened before this.
+    private static long stamp() {
+        return clock.incrementAndGet();
+    }
+
+    /**
+     * Invalidate every decision, this should be called after any group or user is changed.
+     */
+    static void invalidateAll() {
+        long stamp = stamp();
+        generation.accumulateAndGet(stamp, Math::max);
+    }
+
+    /**
+     * Invalidate the decisions of a member, for example when their roles change.
+     */
+    public static void invalidateMember(long guildId, long userId) {
+        // Replaced rather than removed so a check which is still running can't store its decision.
+        decisions.put(new MemberKey(guildId, userId), new Decisions(stamp()));
+    }
+
+    /**
+     * Invalidate the decisions of every member in a guild, for example when a role is changed or deleted.
+     */
+    public static void invalidateGuild(long guildId) {
+        guildVersions.merge(guildId, stamp(), Math::max);
+    }
+
+    public static long size() {
+        return decisions.size();
+    }
+
+    private static class Decisions {
+
+        private final long memberVersion;
+        // The decision of each permission, one more than the token it was made with shifted left and the lowest bit set
+        // if allowed. 0 if there is no decision.
+        private final AtomicLongArray decisions = new AtomicLongArray(Permission.VALUES.length);
+
+        Decisions(long memberVersion) {
+            this.memberVersion = memberVersion;
+        }
+    }
+
+    private static class MemberKey {
+
+        private final long guildId;
+        private final long userId;
+
+        MemberKey(long guildId, long userId) {
+            this.guildId = guildId;
+            this.userId = userId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MemberKey)) return false;
+            MemberKey key = (MemberKey) o;
+            return guildId == key.guildId && userId == key.userId;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(guildId) + Long.hashCode(userId);
+        }
+    }
+}
@@ -8,9 +8,12 @@ import java.util.stream.Collectors;
 public class PermissionNode implements Predicate<String> {
 
     private final String node;
+    // Compiled once, null if this node is `*`.
+    private final Pattern pattern;
 
     public PermissionNode(String node) {
         this.node = node;
+        this.pattern = node.equals("*") ? null : compile(node);
     }
 
     public String getNode() {
@@ -19,15 +22,17 @@ public class PermissionNode implements Predicate<String> {
 
     @Override
     public boolean test(String permission) {
-        if (getNode().equals("*"))
-            return true;
+        return pattern == null || pattern.matcher(permission).matches();
+    }
+
+    private static Pattern compile(String node) {
         // It splits by a `*` that's on a start of a string or has . around them
-        String textNode = Arrays.stream(getNode().split("(?:^\\*(\\.))|(?:(?<=\\.)\\*(?=\\.))|(?:(?<=\\.)\\*$)"))
+        String textNode = Arrays.stream(node.split("(?:^\\*(\\.))|(?:(?<=\\.)\\*(?=\\.))|(?:(?<=\\.)\\*$)"))
                 // Then it escapes all of that so its not regexps
                 .map(Pattern::quote)
                 // And then it joins them with a match all regexp
-                .collect(Collectors.joining(".+")) + (getNode().endsWith("*") ? ".+" : "");
+                .collect(Collectors.joining(".+")) + (node.endsWith("*") ? ".+" : "");
         // And then it lets Java REGEXP compare them. Ty @I-Al-Istannen for making me do this comment
-        return permission.matches(textNode);
+        return Pattern.compile(textNode);
     }
 }
@@ -8,17 +8,22 @@ public class User {
 
     private final Set<String> groups = new ConcurrentHashSet<>();
     private final Set<String> permissions = new ConcurrentHashSet<>();
+    private transient volatile CompiledNodes compiled;
 
     public Set<String> getGroups() {
         return groups;
     }
 
     public boolean addGroup(Group group) {
-        return groups.add(group.getName());
+        boolean added = groups.add(group.getName());
+        PermissionCache.invalidateAll();
+        return added;
     }
 
     public boolean removeGroup(Group group) {
-        return groups.remove(group.getName());
+        boolean removed = groups.remove(group.getName());
+        PermissionCache.invalidateAll();
+        return removed;
     }
 
     public Set<String> getPermissions() {
@@ -26,22 +31,43 @@ public class User {
     }
 
     public Permission.Reply hasPermission(Permission permission) {
-        for (String s : permissions) {
-            boolean hasPermission =
-                    new PermissionNode(s.substring(s.startsWith("-") ? 1 : 0)).test(permission.getPermission());
-            if (s.startsWith("-") && hasPermission)
-                return Permission.Reply.DENY;
-            if (hasPermission)
-                return Permission.Reply.ALLOW;
-        }
-        return Permission.Reply.NEUTRAL;
+        CompiledNodes nodes = compiled;
+        if (nodes == null)
+            nodes = compile();
+        return nodes.getReply(permission);
+    }
+
+    private synchronized CompiledNodes compile() {
+        if (compiled == null)
+            compiled = new CompiledNodes(permissions);
+        return compiled;
     }
 
     public boolean addPermission(String permission) {
-        return permissions.add(permission);
+        boolean added = permissions.add(permission);
+        invalidate();
+        return added;
     }
 
     public boolean removePermission(String permission) {
-        return permissions.remove(permission);
+        boolean removed = permissions.remove(permission);
+        invalidate();
+        return removed;
+    }
+
+    public void clearPermissions() {
+        permissions.clear();
+        invalidate();
+    }
+
+    /**
+     * Recompile the permissions of this user, this needs to be called if {@link #getPermissions()} is modified
+     * directly.
+     */
+    public void invalidate() {
+        synchronized (this) {
+            compiled = null;
+        }
+        PermissionCache.invalidateAll();
     }
 }
@@ -1,6 +1,8 @@
 package stream.flarebot.flarebot.scheduler;
 
-import com.datastax.driver.core.PreparedStatement;
+import com.datastax.driver.core.Row;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Period;
@@ -8,6 +10,7 @@ import stream.flarebot.flarebot.FlareBot;
 import stream.flarebot.flarebot.FlareBotManager;
 import stream.flarebot.flarebot.Getters;
 import stream.flarebot.flarebot.database.CassandraController;
+import stream.flarebot.flarebot.database.CassandraStatement;
 import stream.flarebot.flarebot.mod.modlog.ModAction;
 import stream.flarebot.flarebot.mod.modlog.ModlogHandler;
 import stream.flarebot.flarebot.objects.GuildWrapper;
@@ -15,16 +18,42 @@ import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.general.FormatUtils;
 import stream.flarebot.flarebot.util.general.GuildUtils;
 
+import java.util.concurrent.TimeUnit;
+
 public class FutureAction {
 
-    private static PreparedStatement update;
-    private static PreparedStatement delete;
+    private static final CassandraStatement update = CassandraController.register(new CassandraStatement("future_task_update",
+            "UPDATE flarebot.future_tasks SET responsible = ?, target = ?, content = ?, expires_at = ?, action = ? " +
+                    "WHERE guild_id = ? AND channel_id = ? AND created_at = ?")
+            .setIdempotent(true));
+    private static final CassandraStatement delete = CassandraController.register(new CassandraStatement("future_task_delete",
+            "DELETE FROM flarebot.future_tasks WHERE guild_id = ? AND channel_id = ? AND created_at = ?")
+            .setIdempotent(true));
+    // The same tasks by the hour they are due, this is what FutureActionLoader reads.
+    private static final CassandraStatement updateDue = CassandraController.register(new CassandraStatement(
+            "future_task_due_update",
+            "UPDATE flarebot.future_tasks_due SET responsible = ?, target = ?, content = ?, action = ? " +
+                    "WHERE bucket = ? AND expires_at = ? AND guild_id = ? AND channel_id = ? AND created_at = ?")
+            .setIdempotent(true));
+    private static final CassandraStatement deleteDue = CassandraController.register(new CassandraStatement(
+            "future_task_due_delete",
+            "DELETE FROM flarebot.future_tasks_due " +
+                    "WHERE bucket = ? AND expires_at = ? AND guild_id = ? AND channel_id = ? AND created_at = ?")
+            .setIdempotent(true));
+
+    // Names of recently executed tasks so a load which raced with the execution doesn't run them again.
+    private static final Cache<String, Boolean> executed = CacheBuilder.newBuilder()
+            .expireAfterWrite(FutureActionLoader.HORIZON * 2, TimeUnit.MILLISECONDS)
+            .build();
 
     /*
      * Ok so this will work with a few things, due to this it will have quite a few weird fields.
      *
      * CREATE TABLE future_tasks (guild_id bigint, channel_id bigint, responsible bigint, content text,
      *                            expires_at timestamp, created_at timestamp, action varchar)
+     *
+     * Each task is also written to future_tasks_due, which has the same columns partitioned by the hour the task is
+     * due, see FutureActionLoader.
      */
 
     /**
@@ -142,7 +171,26 @@ public class FutureAction {
         return action;
     }
 
+    /**
+     * @return The name of the scheduler task for this action, this is unique as it is made from the primary key.
+     */
+    public String getTaskName() {
+        return "FutureTask-" + guildId + "-" + channelId + "-" + created.getMillis();
+    }
+
+    public static FutureAction fromRow(Row row) {
+        return new FutureAction(row.getLong("guild_id"), row.getLong("channel_id"), row.getLong("responsible"),
+                row.getLong("target"), row.getString("content"), new DateTime(row.getTimestamp("expires_at")),
+                new DateTime(row.getTimestamp("created_at")),
+                FutureAction.Action.valueOf(row.getString("action").toUpperCase()));
+    }
+
+    static boolean wasExecuted(String taskName) {
+        return executed.getIfPresent(taskName) != null;
+    }
+
     public void execute() {
+        executed.put(getTaskName(), true);
         GuildWrapper gw = FlareBotManager.instance().getGuild(String.valueOf(guildId));
         if (gw == null || gw.getGuild() == null) return;
         switch (action) {
@@ -187,27 +235,37 @@ public class FutureAction {
         delete();
     }
 
+    /**
+     * Save this action and schedule it if it is due within the {@link FutureActionLoader#HORIZON}, otherwise it will
+     * be scheduled by the loader once it is.
+     */
     public void queue() {
+        save();
+        // The test bot doesn't run the loader so it schedules everything itself.
+        if (FlareBot.instance().isTestBot()
+                || getExpires().getMillis() < System.currentTimeMillis() + FutureActionLoader.HORIZON)
+            schedule();
+    }
+
+    void save() {
+        CassandraController.query(update, responsible, target, content, expires.toDate(), action.name(), guildId,
+                channelId, created.toDate());
+        long bucket = FutureActionLoader.getBucket(expires.getMillis());
+        CassandraController.query(updateDue, responsible, target, content, action.name(), bucket, expires.toDate(),
+                guildId, channelId, created.toDate());
+        FutureActionLoader.markBucket(bucket);
+    }
+
+    void schedule() {
         // I have to minus here since this has the complete end time.
-        Scheduler.delayTask(this::execute, "FutureTask-" + action.name() + "-" + expires.toString(),
-                getExpires().minus(System.currentTimeMillis()).getMillis());
-        if (update == null) update = CassandraController.prepare("UPDATE flarebot.future_tasks SET responsible = ?, " +
-                "target = ?, content = ?, expires_at = ?, action = ? WHERE guild_id = ? AND channel_id = ? " +
-                "AND created_at = ?");
-        CassandraController.executeAsync(update.bind().setLong(0, responsible).setLong(1, target).setString(2, content)
-                .setTimestamp(3, expires.toDate()).setString(4, action.name()).setLong(5, guildId).setLong(6, channelId)
-                .setTimestamp(7, created.toDate()));
-        FlareBot.instance().getFutureActions().add(this);
+        Scheduler.delayTask(this::execute, getTaskName(), getExpires().minus(System.currentTimeMillis()).getMillis());
     }
 
     public void delete() {
-        FlareBot.instance().getFutureActions().remove(this);
-        if (delete == null)
-            delete = CassandraController.prepare("DELETE FROM flarebot.future_tasks WHERE guild_id = ? " +
-                    "AND channel_id = ? AND created_at = ?");
-        CassandraController.executeAsync(delete.bind().setLong(0, guildId).setLong(1, channelId)
-                .setTimestamp(2, created.toDate()));
-        Scheduler.cancelTask("FutureTask-" + action.name() + "-" + expires.toString());
+        CassandraController.query(delete, guildId, channelId, created.toDate());
+        CassandraController.query(deleteDue, FutureActionLoader.getBucket(expires.getMillis()), expires.toDate(),
+                guildId, channelId, created.toDate());
+        Scheduler.cancelTask(getTaskName());
     }
 
     public enum Action {
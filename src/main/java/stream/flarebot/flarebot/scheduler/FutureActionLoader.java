@@ -0,0 +1,138 @@
+package stream.flarebot.flarebot.scheduler;
+
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.Row;
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.database.CassandraController;
+import stream.flarebot.flarebot.database.CassandraStatement;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads {@link FutureAction}s into the {@link Scheduler} a window at a time.
+ *
+ * Only actions which are due within the {@link #HORIZON} are ever held in memory. Every half a horizon the actions
+ * due within the next horizon are loaded, so an action is always scheduled at least half a horizon before it is due.
+ * Actions which are already scheduled or have just ran are skipped.
+ *
+ * Actions are stored a second time in future_tasks_due, partitioned by the hour they are due in. The hours which have
+ * actions are listed in future_task_buckets, so a load only reads the partitions of the hours up to the horizon and
+ * any overdue hours rather than scanning every action. An hour is taken off the list once it has passed and is empty.
+ */
+public class FutureActionLoader {
+
+    private static final Logger LOGGER = FlareBot.getLog(FutureActionLoader.class);
+
+    public static final long HORIZON = TimeUnit.HOURS.toMillis(1);
+    private static final long BUCKET_SIZE = TimeUnit.HOURS.toMillis(1);
+    // Stored in the bucket list once the actions from before the buckets existed have been copied over.
+    private static final long BACKFILLED = -1;
+
+    private static final CassandraStatement selectBuckets = CassandraController.register(new CassandraStatement(
+            "future_task_buckets_select", "SELECT bucket FROM flarebot.future_task_buckets WHERE id = 0 AND bucket <= ?")
+            .setIdempotent(true));
+    private static final CassandraStatement insertBucket = CassandraController.register(new CassandraStatement(
+            "future_task_buckets_insert", "INSERT INTO flarebot.future_task_buckets (id, bucket) VALUES (0, ?)")
+            .setIdempotent(true));
+    private static final CassandraStatement deleteBucket = CassandraController.register(new CassandraStatement(
+            "future_task_buckets_delete", "DELETE FROM flarebot.future_task_buckets WHERE id = 0 AND bucket = ?")
+            .setIdempotent(true));
+    private static final CassandraStatement selectDue = CassandraController.register(new CassandraStatement(
+            "future_tasks_due_select", "SELECT * FROM flarebot.future_tasks_due WHERE bucket = ? AND expires_at < ?")
+            .setIdempotent(true));
+    private static final CassandraStatement selectAll = CassandraController.register(new CassandraStatement(
+            "future_tasks_select_all", "SELECT * FROM flarebot.future_tasks")
+            .setIdempotent(true));
+
+    public static void start() {
+        new FlareBotTask("FutureTask-Loader") {
+            @Override
+            public void run() {
+                backfill();
+                load();
+            }
+        }.repeat(0, HORIZON / 2);
+    }
+
+    /**
+     * @return The bucket of the hour an action due at this time is stored in.
+     */
+    static long getBucket(long dueAt) {
+        return dueAt / BUCKET_SIZE;
+    }
+
+    static void markBucket(long bucket) {
+        CassandraController.query(insertBucket, bucket);
+    }
+
+    // Runs on the task thread, the result sets page synchronously as they're read.
+    private static void load() {
+        long now = System.currentTimeMillis();
+        long until = now + HORIZON;
+        ResultSet buckets = CassandraController.execute(selectBuckets, getBucket(until));
+        if (buckets == null) return;
+        List<Long> toLoad = new ArrayList<>();
+        for (Row row : buckets) {
+            if (row.getLong("bucket") != BACKFILLED)
+                toLoad.add(row.getLong("bucket"));
+        }
+
+        int loaded = 0;
+        for (long bucket : toLoad) {
+            ResultSet set = CassandraController.execute(selectDue, bucket, new Date(until));
+            if (set == null) continue;
+            boolean empty = true;
+            for (Row row : set) {
+                empty = false;
+                if (schedule(FutureAction.fromRow(row)))
+                    loaded++;
+            }
+            // Nothing more can be added to an hour which has passed.
+            if (empty && (bucket + 1) * BUCKET_SIZE <= now)
+                CassandraController.query(deleteBucket, bucket);
+        }
+        LOGGER.info("Loaded " + loaded + " future tasks due in the next " + TimeUnit.MILLISECONDS.toMinutes(HORIZON)
+                + " minutes from " + toLoad.size() + " hours");
+    }
+
+    private static boolean schedule(FutureAction fa) {
+        if (Scheduler.isScheduled(fa.getTaskName()) || FutureAction.wasExecuted(fa.getTaskName())) return false;
+        try {
+            if (System.currentTimeMillis() >= fa.getExpires().getMillis()) {
+                fa.execute();
+                return false;
+            }
+            fa.schedule();
+            return true;
+        } catch (NullPointerException e) {
+            LOGGER.error("Failed to execute/queue future task"
+                    + "\nAction: " + fa.getAction() + "\nResponsible: " + fa.getResponsible()
+                    + "\nTarget: " + fa.getTarget() + "\nContent: " + fa.getContent(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Copy the actions saved before they were bucketed, this only scans the table once.
+     */
+    private static void backfill() {
+        ResultSet marker = CassandraController.execute(selectBuckets, BACKFILLED);
+        if (marker == null || marker.one() != null) return;
+        ResultSet set = CassandraController.execute(selectAll);
+        if (set == null) return;
+        int copied = 0;
+        for (Row row : set) {
+            FutureAction fa = FutureAction.fromRow(row);
+            // Deleted when it was made for being too long.
+            if (fa.getExpires().getMillis() - fa.getCreated().getMillis() > Integer.MAX_VALUE) continue;
+            fa.save();
+            copied++;
+        }
+        markBucket(BACKFILLED);
+        LOGGER.info("Copied " + copied + " future tasks into their buckets");
+    }
+}
@@ -3,70 +3,74 @@ package stream.flarebot.flarebot.scheduler;
 import org.joda.time.Period;
 import stream.flarebot.flarebot.FlareBot;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 public class Scheduler {
 
-    private static final ScheduledExecutorService timer = Executors
-            .newScheduledThreadPool(10, r -> new Thread(r, "FlareBot Scheduled Task"));
+    private static final ExecutorService timer = Executors
+            .newFixedThreadPool(10, r -> new Thread(r, "FlareBot Scheduled Task"));
+    private static final TimingWheel wheel = new TimingWheel(100, timer, "FlareBot Scheduler");
 
-    private static final Map<String, ScheduledFuture<?>> tasks = new HashMap<>();
-    private static final Map<String, ScheduledFuture<?>> persistentTasks = new HashMap<>();
+    // Task name -> timeout, one off tasks remove themselves once they have ran.
+    private static final Map<String, TimingWheel.Timeout> tasks = new ConcurrentHashMap<>();
 
     static {
-        Runtime.getRuntime().addShutdownHook(new Thread(timer::shutdownNow));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            wheel.stop();
+            timer.shutdownNow();
+        }));
     }
 
     public static boolean scheduleRepeating(Runnable task, String taskName, long delay, long interval) {
-        if (tasks.containsKey(taskName)) {
-            return false;
-        }
-        tasks.put(taskName,
-                timer.scheduleAtFixedRate(() -> {
-                    try {
-                        task.run();
-                    } catch (Exception e) {
-                        FlareBot.LOGGER.error("Error in " + taskName + " task scheduler!", e);
-                    }
-                }, delay, interval, TimeUnit.MILLISECONDS));
-        return true;
+        boolean[] added = new boolean[1];
+        tasks.computeIfAbsent(taskName, name -> {
+            added[0] = true;
+            return wheel.scheduleRepeating(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    FlareBot.LOGGER.error("Error in " + taskName + " task scheduler!", e);
+                }
+            }, delay, interval);
+        });
+        return added[0];
     }
 
     public static void delayTask(Runnable task, String taskName, long delay) {
-        tasks.put(taskName, timer.schedule(task, delay, TimeUnit.MILLISECONDS));
+        // Completed once the timeout is in tasks, so a task which runs straight away still removes its own entry.
+        CompletableFuture<TimingWheel.Timeout> registered = new CompletableFuture<>();
+        TimingWheel.Timeout timeout = wheel.schedule(() -> {
+            registered.thenAccept(self -> tasks.remove(taskName, self));
+            task.run();
+        }, delay);
+        tasks.put(taskName, timeout);
+        registered.complete(timeout);
     }
 
-    public static void delayTask(FutureAction action) {
-        persistentTasks.put(action.toString() + System.currentTimeMillis(), timer.schedule(action::execute,
-                action.getExpires().getMillis(), TimeUnit.MILLISECONDS));
+    public static boolean cancelTask(String taskName) {
+        TimingWheel.Timeout timeout = tasks.remove(taskName);
+        return timeout != null && timeout.cancel();
     }
 
-    public static boolean cancelTask(String taskName) {
-        Iterator<Map.Entry<String, ScheduledFuture<?>>> i = tasks.entrySet().iterator();
-        while (i.hasNext()) {
-            Map.Entry<String, ScheduledFuture<?>> next = i.next();
-            if (next.getKey() == null) continue;
-            if (next.getKey().equals(taskName)) {
-                next.getValue().cancel(false);
-                i.remove();
-                return true;
-            }
-        }
-        return false;
+    /**
+     * @return If a task with this name is waiting to run or is repeating.
+     */
+    public static boolean isScheduled(String taskName) {
+        TimingWheel.Timeout timeout = tasks.get(taskName);
+        return timeout != null && !timeout.isDone();
     }
 
-    public static Map<String, ScheduledFuture<?>> getTasks() {
-        return tasks;
+    public static void cancelAll() {
+        for (String taskName : tasks.keySet())
+            cancelTask(taskName);
     }
 
-    public static Map<String, ScheduledFuture<?>> getPersistentTasks() {
-        return persistentTasks;
+    public static int getTaskCount() {
+        return wheel.size();
     }
 
     public static void queueFutureAction(long guuildId, long channelId, long responsible, long target, String reason,
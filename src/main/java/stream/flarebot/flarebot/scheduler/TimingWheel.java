@@ -0,0 +1,294 @@
+package stream.flarebot.flarebot.scheduler;
+
+import org.slf4j.Logger;
+import stream.flarebot.flarebot.FlareBot;
+import stream.flarebot.flarebot.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A hierarchical timing wheel, this holds every task of the {@link Scheduler}.
+ *
+ * There are {@link #LEVELS} wheels of {@link #SLOTS} slots each. A slot of the first wheel is one tick, a slot of
+ * every wheel after that is as long as a full turn of the wheel before it. A task goes into the lowest wheel which can
+ * hold its deadline and when a higher wheel moves onto a slot every task in it is moved down into the lower wheels.
+ * At 100ms ticks this covers over 3 years with 320 slots.
+ *
+ * Adding and cancelling a task is O(1) no matter how many tasks there are, a task is unlinked from its slot when it is
+ * cancelled. One thread ticks the wheel, the tasks themselves are ran on the given executor.
+ */
+public class TimingWheel {
+
+    private static final Logger LOGGER = FlareBot.getLog(TimingWheel.class);
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+
+    private final long tickMs;
+    private final long startTime = now();
+    private final Executor executor;
+
+    // Everything below is guarded by this lock.
+    private final Object lock = new Object();
+    private final Slot[][] wheels = new Slot[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    private final Thread ticker;
+    private volatile boolean running = true;
+
+    public TimingWheel(long tickMs, Executor executor, String name) {
+        this.tickMs = tickMs;
+        this.executor = executor;
+        for (Slot[] wheel : wheels)
+            for (int i = 0; i < SLOTS; i++)
+                wheel[i] = new Slot();
+
+        this.ticker = new Thread(this::tick, name);
+        this.ticker.setDaemon(true);
+        this.ticker.start();
+    }
+
+    /**
+     * Run a task once after a delay.
+     *
+     * @param task  The task to run.
+     * @param delay The delay in milliseconds.
+     * @return The timeout, this can be used to cancel the task.
+     */
+    public Timeout schedule(Runnable task, long delay) {
+        return schedule(task, delay, -1);
+    }
+
+    /**
+     * Run a task at a fixed rate. The next run is scheduled once the current one has finished so a task never runs
+     * alongside itself, if a run overruns the interval the next run happens straight away.
+     *
+     * @param task     The task to run.
+     * @param delay    The delay before the first run in milliseconds.
+     * @param interval The interval between runs in milliseconds.
+     * @return The timeout, this can be used to cancel the task.
+     */
+    public Timeout scheduleRepeating(Runnable task, long delay, long interval) {
+        if (interval <= 0)
+            throw new IllegalArgumentException("Interval must be positive!");
+        return schedule(task, delay, interval);
+    }
+
+    private Timeout schedule(Runnable task, long delay, long interval) {
+        Timeout timeout = new Timeout(task, now() + Math.max(0, delay), interval);
+        if (!insert(timeout))
+            fire(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return The amount of tasks waiting in the wheel.
+     */
+    public int size() {
+        synchronized (lock) {
+            return size;
+        }
+    }
+
+    public void stop() {
+        running = false;
+        ticker.interrupt();
+    }
+
+    /**
+     * Put a timeout into the wheel.
+     *
+     * @return False if the timeout is already due and should be fired instead.
+     */
+    private boolean insert(Timeout timeout) {
+        synchronized (lock) {
+            if (timeout.cancelled) return true;
+            long expiryTick = (timeout.deadline - startTime + tickMs - 1) / tickMs;
+            long delta = expiryTick - currentTick;
+            if (delta <= 0) return false;
+
+            int level = (63 - Long.numberOfLeadingZeros(delta)) / SLOT_BITS;
+            int slot;
+            if (level < LEVELS) {
+                slot = (int) (expiryTick >> (SLOT_BITS * level)) & SLOT_MASK;
+            } else {
+                // Further away than the wheel can hold, park it in the last slot of the top wheel to be looked at again.
+                level = LEVELS - 1;
+                slot = (int) ((currentTick >> (SLOT_BITS * level)) - 1) & SLOT_MASK;
+            }
+            wheels[level][slot].add(timeout);
+            size++;
+            return true;
+        }
+    }
+
+    private void tick() {
+        while (running) {
+            long target;
+            synchronized (lock) {
+                target = startTime + (currentTick + 1) * tickMs;
+            }
+            long sleep = target - now();
+            if (sleep > 0) {
+                try {
+                    Thread.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                    continue;
+                }
+            }
+
+            List<Timeout> due = new ArrayList<>();
+            synchronized (lock) {
+                currentTick++;
+                // Move tasks down from the top first, they may land in a lower slot which is also being moved now.
+                for (int level = LEVELS - 1; level > 0; level--) {
+                    if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0)
+                        cascade(wheels[level][(int) (currentTick >> (SLOT_BITS * level)) & SLOT_MASK], due);
+                }
+                cascade(wheels[0][(int) currentTick & SLOT_MASK], due);
+                Metrics.scheduledTasks.set(size);
+            }
+            for (Timeout timeout : due)
+                fire(timeout);
+        }
+    }
+
+    // Called with the lock held.
+    private void cascade(Slot slot, List<Timeout> due) {
+        Timeout timeout = slot.head;
+        slot.head = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+            size--;
+            if (!insert(timeout))
+                due.add(timeout);
+            timeout = next;
+        }
+    }
+
+    private void fire(Timeout timeout) {
+        if (timeout.cancelled) return;
+        try {
+            executor.execute(() -> run(timeout));
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Scheduler is shutting down, a task was not ran");
+        }
+    }
+
+    private void run(Timeout timeout) {
+        if (timeout.cancelled) return;
+        Metrics.schedulerLag.observe(Math.max(0, now() - timeout.deadline) / 1000d);
+        try {
+            timeout.task.run();
+        } catch (Exception e) {
+            LOGGER.error("Error running a scheduled task!", e);
+        }
+        if (timeout.interval > 0) {
+            timeout.deadline += timeout.interval;
+            if (!insert(timeout))
+                fire(timeout);
+        } else {
+            timeout.done = true;
+        }
+    }
+
+    private static long now() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /**
+     * A task in the wheel.
+     */
+    public class Timeout {
+
+        private final Runnable task;
+        private final long interval;
+        private volatile long deadline;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        // Guarded by the lock of the wheel.
+        private Slot slot;
+        private Timeout prev;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline, long interval) {
+            this.task = task;
+            this.deadline = deadline;
+            this.interval = interval;
+        }
+
+        /**
+         * Cancel this task, a run which has already started will finish.
+         *
+         * @return False if this has already been cancelled or has already ran.
+         */
+        public boolean cancel() {
+            synchronized (lock) {
+                if (cancelled || done) return false;
+                cancelled = true;
+                if (slot != null) {
+                    slot.remove(this);
+                    size--;
+                }
+                return true;
+            }
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * @return If this task has been cancelled or was a one off task which has ran.
+         */
+        public boolean isDone() {
+            return cancelled || done;
+        }
+
+        /**
+         * @return The time in milliseconds until this task runs next.
+         */
+        public long getDelay() {
+            return deadline - now();
+        }
+    }
+
+    // A doubly linked list of timeouts, guarded by the lock of the wheel.
+    private static class Slot {
+
+        private Timeout head;
+
+        void add(Timeout timeout) {
+            timeout.slot = this;
+            timeout.prev = null;
+            timeout.next = head;
+            if (head != null)
+                head.prev = timeout;
+            head = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.prev != null)
+                timeout.prev.next = timeout.next;
+            else
+                head = timeout.next;
+            if (timeout.next != null)
+                timeout.next.prev = timeout.prev;
+            timeout.slot = null;
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+}
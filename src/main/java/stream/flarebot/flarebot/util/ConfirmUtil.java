@@ -12,12 +12,12 @@ import java.util.concurrent.TimeUnit;
 
 public class ConfirmUtil {
 
-    private static final Cache<String, Set<RunnableWrapper>> confirmCache =
+    private static final Cache<Long, Set<RunnableWrapper>> confirmCache =
             CacheBuilder.newBuilder()
                     .expireAfterAccess(1, TimeUnit.MINUTES)
                     .build();
 
-    public static void pushAction(String userID, RunnableWrapper action) {
+    public static void pushAction(long userID, RunnableWrapper action) {
         Set<RunnableWrapper> actions = confirmCache.getIfPresent(userID);
         if (actions != null) {
             if (actions.stream().noneMatch(wrapper -> wrapper.getOrigin().equals(action.getOrigin()))) {
@@ -30,7 +30,7 @@ public class ConfirmUtil {
         }
     }
 
-    public static void run(String userID, Class<? extends Command> command) {
+    public static void run(long userID, Class<? extends Command> command) {
         Runnable runnable = get(userID, command);
         if (runnable != null) {
             runnable.run();
@@ -38,7 +38,7 @@ public class ConfirmUtil {
         }
     }
 
-    public static Runnable get(String userID, Class<? extends Command> command) {
+    public static Runnable get(long userID, Class<? extends Command> command) {
         if (confirmCache.getIfPresent(userID) != null) {
             Set<RunnableWrapper> wrappers = confirmCache.getIfPresent(userID);
             Optional<RunnableWrapper> wrapper =
@@ -50,11 +50,11 @@ public class ConfirmUtil {
         return null;
     }
 
-    public static void removeUser(String userID) {
+    public static void removeUser(long userID) {
         confirmCache.invalidate(userID);
     }
 
-    public static boolean checkExists(String userID, Class<? extends Command> command) {
+    public static boolean checkExists(long userID, Class<? extends Command> command) {
         if (confirmCache.getIfPresent(userID) != null) {
             Set<RunnableWrapper> wrappers = confirmCache.getIfPresent(userID);
             return wrappers.stream().anyMatch(wrapper -> wrapper.getOrigin().equals(command));
@@ -63,10 +63,21 @@ public class ConfirmUtil {
     }
 
 
-    public static void remove(String id, Class<? extends Command> command) {
+    public static void remove(long id, Class<? extends Command> command) {
         if (checkExists(id, command)) {
             confirmCache.getIfPresent(id).removeIf(restActionWrapper -> restActionWrapper.getOrigin().equals(command));
         }
     }
 
+    public static void cleanUp() {
+        confirmCache.cleanUp();
+    }
+
+    /**
+     * @return The amount of users with actions waiting to be confirmed.
+     */
+    public static long size() {
+        return confirmCache.size();
+    }
+
 }
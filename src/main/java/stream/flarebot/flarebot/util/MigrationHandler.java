@@ -43,7 +43,7 @@ public class MigrationHandler {
                     String perm = it.next();
                     if (oldPerm.matcher(perm).find()) {
                         it.remove();
-                        g.getPermissions().add(perm.replace(oldPermission, newPermission));
+                        g.addPermission(perm.replace(oldPermission, newPermission));
                         i++;
                     }
                 }
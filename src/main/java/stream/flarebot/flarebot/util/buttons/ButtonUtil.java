@@ -7,13 +7,8 @@ import net.dv8tion.jda.core.entities.TextChannel;
 import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.objects.ButtonGroup;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 public class ButtonUtil {
 
-    private static Map<String, ButtonGroup> buttonMessages = new ConcurrentHashMap<>();
-
     /**
      * Sends an embed button message with a set of buttons.
      *
@@ -63,35 +58,6 @@ public class ButtonUtil {
         for (ButtonGroup.Button button : buttonGroup.getButtons()) {
             button.addReaction(message);
         }
-        buttonMessages.put(message.getId(), buttonGroup);
-    }
-
-    /**
-     * Gets all the button Messages along with their buttons.
-     *
-     * @return A map containing what message id corresponds to what buttons.
-     */
-    public static Map<String, ButtonGroup> getButtonMessages() {
-        return buttonMessages;
-    }
-
-    /**
-     * Gets weather or not the message has buttons.
-     *
-     * @param id The Message id.
-     * @return If the message has buttons.
-     */
-    public static boolean isButtonMessage(String id) {
-        return buttonMessages.containsKey(id);
-    }
-
-    /**
-     * Gets the buttons for the specified message.
-     *
-     * @param id The Message id.
-     * @return The ButtonGroup for that message.
-     */
-    public static ButtonGroup getButtonGroup(String id) {
-        return buttonMessages.get(id);
+        ComponentRegistry.register(message.getIdLong(), buttonGroup);
     }
 }
@@ -0,0 +1,104 @@
+package stream.flarebot.flarebot.util.buttons;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import stream.flarebot.flarebot.metrics.Metrics;
+import stream.flarebot.flarebot.util.ConfirmUtil;
+import stream.flarebot.flarebot.util.objects.ButtonGroup;
+import stream.flarebot.flarebot.util.votes.VoteUtil;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds every live interactive message, these are messages with buttons (paged messages, votes etc) keyed by the long
+ * ID of the message.
+ *
+ * A message stops being interactive once nobody has clicked it for {@link #BUTTON_EXPIRY} or when it is deleted. Each
+ * user may only click {@link #MAX_CLICKS_PER_SECOND} buttons a second across every message, anything past that is
+ * ignored.
+ *
+ * Expired entries are only removed when the caches are touched so {@link #cleanUp()} should be ran periodically, this
+ * also updates the live component gauges.
+ */
+public class ComponentRegistry {
+
+    private static final long BUTTON_EXPIRY = TimeUnit.MINUTES.toMillis(30);
+    private static final int MAX_CLICKS_PER_SECOND = 5;
+
+    private static final Cache<Long, ButtonGroup> buttonMessages = CacheBuilder.newBuilder()
+            .expireAfterAccess(BUTTON_EXPIRY, TimeUnit.MILLISECONDS)
+            .build();
+
+    private static final Cache<Long, ClickWindow> clicks = CacheBuilder.newBuilder()
+            .expireAfterAccess(10, TimeUnit.SECONDS)
+            .build();
+
+    private ComponentRegistry() {
+    }
+
+    public static void register(long messageId, ButtonGroup group) {
+        buttonMessages.put(messageId, group);
+    }
+
+    /**
+     * Gets the buttons for the specified message.
+     *
+     * @param messageId The Message id.
+     * @return The ButtonGroup for that message or null if the message has no buttons or they have expired.
+     */
+    @Nullable
+    public static ButtonGroup getButtonGroup(long messageId) {
+        return buttonMessages.getIfPresent(messageId);
+    }
+
+    /**
+     * Stop a message from being interactive, this should be called when the message is deleted.
+     */
+    public static void remove(long messageId) {
+        buttonMessages.invalidate(messageId);
+    }
+
+    /**
+     * Record a click from a user.
+     *
+     * @param userId The user who clicked.
+     * @return False if the user has clicked too many buttons in the last second and this click should be ignored.
+     */
+    public static boolean tryClick(long userId) {
+        try {
+            return clicks.get(userId, ClickWindow::new).tryClick(System.currentTimeMillis());
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            return true;
+        }
+    }
+
+    /**
+     * Remove everything which has expired and update the gauges.
+     */
+    public static void cleanUp() {
+        buttonMessages.cleanUp();
+        clicks.cleanUp();
+        ConfirmUtil.cleanUp();
+        Metrics.interactiveComponents.labels("buttons").set(buttonMessages.size());
+        Metrics.interactiveComponents.labels("votes").set(VoteUtil.size());
+        Metrics.interactiveComponents.labels("confirmations").set(ConfirmUtil.size());
+    }
+
+    // A fixed one second window of clicks.
+    private static class ClickWindow {
+
+        private long windowStart;
+        private int count;
+
+        synchronized boolean tryClick(long now) {
+            if (now - windowStart >= 1000) {
+                windowStart = now;
+                count = 0;
+            }
+            return ++count <= MAX_CLICKS_PER_SECOND;
+        }
+    }
+}
@@ -23,6 +23,8 @@ import stream.flarebot.flarebot.Getters;
 import stream.flarebot.flarebot.commands.Command;
 import stream.flarebot.flarebot.commands.CommandType;
 import stream.flarebot.flarebot.database.RedisMessage;
+import stream.flarebot.flarebot.database.RedisMessageCodec;
+import stream.flarebot.flarebot.music.TrackCache;
 import stream.flarebot.flarebot.objects.GuildWrapper;
 import stream.flarebot.flarebot.objects.Report;
 import stream.flarebot.flarebot.objects.ReportMessage;
@@ -293,56 +295,38 @@ public class GeneralUtils {
     }
 
     /**
+     * Encodes a message for the message cache, see {@link RedisMessageCodec} for the format.
      * Message fields:
      * - Message ID
      * - Author ID
      * - Channel ID
      * - Guild ID
      * - Raw Content
-     * - Timestamp (Epoch seconds)
+     * - Timestamp (Epoch millis)
      *
      * @param message The message to serialise
      * @return The serialised message
      */
-    public static String getRedisMessageJson(Message message) {
-        return FlareBot.GSON.toJson(new RedisMessage(
-                message.getId(),
-                message.getAuthor().getId(),
-                message.getChannel().getId(),
-                message.getGuild().getId(),
+    public static byte[] getRedisMessage(Message message) {
+        return RedisMessageCodec.encode(new RedisMessage(
+                message.getIdLong(),
+                message.getAuthor().getIdLong(),
+                message.getChannel().getIdLong(),
+                message.getGuild().getIdLong(),
                 message.getContentRaw(),
                 message.getCreationTime().toInstant().toEpochMilli()
         ));
     }
 
     /**
-     * Coverts the json from redis to a RedisMessage.
-     * Message fields:
-     * - Message ID
-     * - Author ID
-     * - Channel ID
-     * - Guild ID
-     * - Raw Content
-     * - Timestamp (Epoch seconds)
+     * Decodes a message from the message cache, messages cached as JSON before the binary format are also read.
      *
-     * @param json The json to convert
+     * @param data The value from redis
      * @return {@link RedisMessage}
-     * @throws IllegalArgumentException This throws if the json doesn't match what {@link RedisMessage} is expecting.
+     * @throws IllegalArgumentException This throws if the value isn't a cached message.
      */
-    public static RedisMessage toRedisMessage(String json) throws IllegalArgumentException {
-        Pair<List<String>, List<String>> paths = jsonContains(json,
-                "messageID",
-                "authorID",
-                "channelID",
-                "guildID",
-                "content",
-                "timestamp"
-        );
-        if (paths.getKey().size() != 6) {
-            throw new IllegalArgumentException("Malformed JSON! Missing paths: " +
-                    Arrays.toString(paths.getValue().toArray(new String[paths.getValue().size()])));
-        }
-        return FlareBot.GSON.fromJson(json, RedisMessage.class);
+    public static RedisMessage toRedisMessage(byte[] data) throws IllegalArgumentException {
+        return RedisMessageCodec.decode(data);
     }
 
     /**
@@ -451,7 +435,7 @@ public class GeneralUtils {
         Throwable cause = null;
         for (int i = 0; i <= 2; i++) {
             try {
-                item = Optional.ofNullable(player.resolve(input));
+                item = Optional.ofNullable(TrackCache.resolve(player, input));
                 failed = false;
                 break;
             } catch (FriendlyException | InterruptedException | ExecutionException e) {
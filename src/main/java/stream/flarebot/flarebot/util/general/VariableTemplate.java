@@ -0,0 +1,269 @@
+package stream.flarebot.flarebot.util.general;
+
+import net.dv8tion.jda.core.entities.Guild;
+import net.dv8tion.jda.core.entities.Member;
+import net.dv8tion.jda.core.entities.TextChannel;
+import net.dv8tion.jda.core.entities.User;
+import stream.flarebot.flarebot.objects.GuildWrapper;
+import stream.flarebot.flarebot.util.RandomUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A message with variables in it, see {@link VariableUtils#parseVariables(String, GuildWrapper, TextChannel, User,
+ * String[])} for the variables. The message is parsed once into text and variables so filling it in is a single pass
+ * over them, keep hold of the template if a message is used more than once.
+ *
+ * Variables are filled in with the values as they were given, so a variable in a user's name is not filled in. A
+ * variable which there is nothing to fill in with, like {@code {channel}} without a channel, is left as it is.
+ *
+ * The deprecated {@code %user%}, {@code %guild%} and {@code %mention%} variables are still filled in, as are
+ * {@code {%}}, {@code %prefix%} and {@code %tag%} when rendering a tag.
+ */
+public class VariableTemplate {
+
+    private static final Pattern RANDOM = Pattern.compile("random(?::(-?\\d+)(?:,(-?\\d+))?)?");
+    private static final Pattern ARGUMENT = Pattern.compile("\\$([1-9])(?:,(.+))?");
+    private static final String DEFAULT_ARGUMENT = "William";
+
+    private static final Map<String, Variable> VARIABLES = new HashMap<>();
+    private static final Map<String, Variable> DEPRECATED_VARIABLES = new HashMap<>();
+
+    static {
+        VARIABLES.put("user", Variable.USER);
+        VARIABLES.put("username", Variable.USER);
+        VARIABLES.put("nickname", Variable.NICKNAME);
+        VARIABLES.put("tag", Variable.TAG);
+        VARIABLES.put("mention", Variable.MENTION);
+        VARIABLES.put("user_id", Variable.USER_ID);
+        VARIABLES.put("guild", Variable.GUILD);
+        VARIABLES.put("region", Variable.REGION);
+        VARIABLES.put("members", Variable.MEMBERS);
+        VARIABLES.put("owner", Variable.OWNER);
+        VARIABLES.put("owner_id", Variable.OWNER_ID);
+        VARIABLES.put("owner_mention", Variable.OWNER_MENTION);
+        VARIABLES.put("channel", Variable.CHANNEL);
+        VARIABLES.put("channel_mention", Variable.CHANNEL_MENTION);
+        VARIABLES.put("topic", Variable.TOPIC);
+        VARIABLES.put("category", Variable.CATEGORY);
+        VARIABLES.put("%", Variable.PREFIX);
+
+        DEPRECATED_VARIABLES.put("user", Variable.USER);
+        DEPRECATED_VARIABLES.put("guild", Variable.GUILD);
+        DEPRECATED_VARIABLES.put("mention", Variable.MENTION);
+        DEPRECATED_VARIABLES.put("prefix", Variable.PREFIX);
+        DEPRECATED_VARIABLES.put("tag", Variable.TAG_NAME);
+    }
+
+    private final String source;
+    private final Token[] tokens;
+    private final int textLength;
+    private final boolean deprecated;
+
+    private VariableTemplate(String source, List<Token> tokens, int textLength, boolean deprecated) {
+        this.source = source;
+        this.tokens = tokens.toArray(new Token[tokens.size()]);
+        this.textLength = textLength;
+        this.deprecated = deprecated;
+    }
+
+    /**
+     * Parse a message into a template.
+     *
+     * @param source The message.
+     * @return The template of the message.
+     */
+    public static VariableTemplate compile(@Nonnull String source) {
+        List<Token> tokens = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+        int textLength = 0;
+        boolean deprecated = false;
+        int i = 0;
+        while (i < source.length()) {
+            char c = source.charAt(i);
+            int end = c == '{' ? source.indexOf('}', i + 1) : c == '%' ? source.indexOf('%', i + 1) : -1;
+            Token token = null;
+            if (end != -1)
+                token = parseVariable(source.substring(i, end + 1));
+            if (token == null) {
+                text.append(c);
+                i++;
+                continue;
+            }
+            if (text.length() > 0) {
+                tokens.add(new Token(Variable.TEXT, text.toString()));
+                textLength += text.length();
+                text.setLength(0);
+            }
+            tokens.add(token);
+            deprecated |= token.deprecated;
+            i = end + 1;
+        }
+        if (text.length() > 0) {
+            tokens.add(new Token(Variable.TEXT, text.toString()));
+            textLength += text.length();
+        }
+        return new VariableTemplate(source, tokens, textLength, deprecated);
+    }
+
+    // Parses a variable with its brackets or percent signs, returns null if it isn't one.
+    private static Token parseVariable(String raw) {
+        String name = raw.substring(1, raw.length() - 1);
+        if (raw.charAt(0) == '%') {
+            Variable variable = DEPRECATED_VARIABLES.get(name);
+            return variable == null ? null : new Token(variable, raw, true);
+        }
+        Variable variable = VARIABLES.get(name);
+        if (variable != null)
+            return new Token(variable, raw, variable == Variable.PREFIX);
+
+        Matcher matcher = RANDOM.matcher(name);
+        if (matcher.matches()) {
+            Token token = new Token(Variable.RANDOM, raw);
+            token.first = matcher.group(1) != null ? GeneralUtils.getInt(matcher.group(1), 1) : 1;
+            token.second = matcher.group(2) != null ? GeneralUtils.getInt(matcher.group(2), 100) : 100;
+            return token;
+        }
+        matcher = ARGUMENT.matcher(name);
+        if (matcher.matches()) {
+            Token token = new Token(Variable.ARGUMENT, raw);
+            token.first = matcher.group(1).charAt(0) - '0';
+            token.argument = matcher.group(2) != null ? matcher.group(2) : DEFAULT_ARGUMENT;
+            return token;
+        }
+        return null;
+    }
+
+    /**
+     * @return The message this template was parsed from.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return If the message uses any of the deprecated variables.
+     */
+    public boolean hasDeprecatedVariables() {
+        return deprecated;
+    }
+
+    /**
+     * Fill in the variables of the template.
+     *
+     * @param wrapper The guild for the guild variables.
+     * @param channel The channel for the channel variables.
+     * @param user    The user for the user variables, their nickname is taken from the guild if there is one.
+     * @param args    The arguments for {@code {$n}}.
+     * @param tag     The name of the tag being rendered, this is null for anything but tags.
+     * @return The filled in message.
+     */
+    public String render(@Nullable GuildWrapper wrapper,
+                         @Nullable TextChannel channel,
+                         @Nullable User user,
+                         @Nullable String[] args,
+                         @Nullable String tag) {
+        Guild guild = wrapper == null ? null : wrapper.getGuild();
+        StringBuilder rendered = new StringBuilder(textLength + tokens.length * 16);
+        for (Token token : tokens) {
+            String value = getValue(token, wrapper, guild, channel, user, args, tag);
+            rendered.append(value == null ? token.text : value);
+        }
+        return rendered.toString();
+    }
+
+    private String getValue(Token token, GuildWrapper wrapper, Guild guild, TextChannel channel, User user,
+                            String[] args, String tag) {
+        switch (token.variable) {
+            case TEXT:
+                return token.text;
+            // User variables
+            case USER:
+                return user == null ? null : user.getName();
+            case NICKNAME: {
+                if (user == null) return null;
+                Member member = guild == null ? null : guild.getMember(user);
+                return member == null ? user.getName() : member.getEffectiveName();
+            }
+            case TAG:
+                return user == null ? null : user.getName() + "#" + user.getDiscriminator();
+            case MENTION:
+                return user == null ? null : user.getAsMention();
+            case USER_ID:
+                return user == null ? null : user.getId();
+            // Guild variables
+            case GUILD:
+                return guild == null ? null : guild.getName();
+            case REGION:
+                return guild == null ? null : guild.getRegion().getName();
+            case MEMBERS:
+                return guild == null ? null : String.valueOf(guild.getMemberCache().size());
+            case OWNER:
+                return guild == null ? null : guild.getOwner().getEffectiveName();
+            case OWNER_ID:
+                return guild == null ? null : guild.getOwner().getUser().getId();
+            case OWNER_MENTION:
+                return guild == null ? null : guild.getOwner().getUser().getAsMention();
+            // Channel variables
+            case CHANNEL:
+                return channel == null ? null : channel.getName();
+            case CHANNEL_MENTION:
+                return channel == null ? null : channel.getAsMention();
+            case TOPIC:
+                return channel == null ? null : channel.getTopic() == null ? "No Topic" : channel.getTopic();
+            case CATEGORY:
+                return channel == null ? null
+                        : channel.getParent() != null ? channel.getParent().getName() : "no category";
+            // Utility variables
+            case RANDOM:
+                return String.valueOf(RandomUtils.getInt(token.first, token.second));
+            case ARGUMENT:
+                return args != null && args.length >= token.first ? args[token.first - 1] : token.argument;
+            // Only tags have these
+            case PREFIX:
+                return tag == null ? null : String.valueOf(GuildUtils.getPrefix(wrapper));
+            case TAG_NAME:
+                return tag;
+            default:
+                throw new IllegalStateException("Unknown variable " + token.variable);
+        }
+    }
+
+    private enum Variable {
+        TEXT,
+        USER, NICKNAME, TAG, MENTION, USER_ID,
+        GUILD, REGION, MEMBERS, OWNER, OWNER_ID, OWNER_MENTION,
+        CHANNEL, CHANNEL_MENTION, TOPIC, CATEGORY,
+        RANDOM, ARGUMENT,
+        PREFIX, TAG_NAME
+    }
+
+    private static class Token {
+
+        private final Variable variable;
+        // The text itself, or how the variable was written to be used when it can't be filled in.
+        private final String text;
+        private final boolean deprecated;
+        // The bounds of a random number or the index of an argument.
+        private int first;
+        private int second;
+        private String argument;
+
+        Token(Variable variable, String text) {
+            this(variable, text, false);
+        }
+
+        Token(Variable variable, String text, boolean deprecated) {
+            this.variable = variable;
+            this.text = text;
+            this.deprecated = deprecated;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package stream.flarebot.flarebot.util.votes;
 import net.dv8tion.jda.core.EmbedBuilder;
 import net.dv8tion.jda.core.entities.Message;
 import net.dv8tion.jda.core.entities.User;
-import stream.flarebot.flarebot.Getters;
 
 import java.util.Collection;
 import java.util.HashSet;
@@ -41,7 +40,7 @@ public class VoteGroup {
                 yesVotes++;
 
             if (allowedUsers.size() == totalVotes()) {
-                VoteUtil.finishNow(id, Getters.getGuildById(voteMessage.getId()));
+                VoteUtil.finishNow(id, voteMessage.getGuild());
                 return true;
             }
 
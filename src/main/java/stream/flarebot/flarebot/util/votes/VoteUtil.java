@@ -10,6 +10,7 @@ import stream.flarebot.flarebot.scheduler.Scheduler;
 import stream.flarebot.flarebot.util.ColorUtils;
 import stream.flarebot.flarebot.util.MessageUtils;
 import stream.flarebot.flarebot.util.buttons.ButtonUtil;
+import stream.flarebot.flarebot.util.buttons.ComponentRegistry;
 import stream.flarebot.flarebot.util.objects.ButtonGroup;
 
 import java.util.Map;
@@ -18,8 +19,8 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class VoteUtil {
 
-    private static Map<String, VoteGroup> groupMap = new ConcurrentHashMap<>();
-    private static Map<String, VoteGroup.VoteRunnable> runnableMap = new ConcurrentHashMap<>();
+    // Guild ID -> vote ID -> vote
+    private static final Map<Long, Map<UUID, ActiveVote>> votes = new ConcurrentHashMap<>();
 
     public static void sendVoteMessage(UUID id, VoteGroup.VoteRunnable voteRunnable, VoteGroup group, long timeout, TextChannel channel, User user, String buttonGroupString, ButtonGroup.Button... optionalButtons) {
         EmbedBuilder votesEmbed = new EmbedBuilder()
@@ -31,8 +32,13 @@ public class VoteUtil {
         group.setVotesEmbed(votesEmbed);
         ButtonGroup buttonGroup = new ButtonGroup(user.getIdLong(), buttonGroupString);
 
-        groupMap.put(id + channel.getGuild().getId(), group);
-        runnableMap.put(id + channel.getGuild().getId(), voteRunnable);
+        long guildId = channel.getGuild().getIdLong();
+        ActiveVote vote = new ActiveVote(group, voteRunnable);
+        votes.compute(guildId, (g, guildVotes) -> {
+            if (guildVotes == null) guildVotes = new ConcurrentHashMap<>();
+            guildVotes.put(id, vote);
+            return guildVotes;
+        });
 
         buttonGroup.addButton(new ButtonGroup.Button(355776056092917761L, (owner, user1, message) -> {
             if (group.addVote(VoteGroup.Vote.YES, user1)) {
@@ -57,13 +63,14 @@ public class VoteUtil {
         Message voteMessage = ButtonUtil.sendReturnedButtonedMessage(channel, votesEmbed.build(), buttonGroup);
         group.setVoteMessage(voteMessage);
 
-        new FlareBotTask("Votes-" + voteMessage.getId()){
+        new FlareBotTask(getTaskName(voteMessage.getIdLong())) {
 
             @Override
             public void run() {
+                // If this vote was removed or finished early it has already been cleaned up.
+                if (!removeVote(id, guildId, vote)) return;
                 voteRunnable.run(group.won());
-                groupMap.remove(group.getMessageDesc() + channel.getGuild().getId());
-                runnableMap.remove(group.getMessageDesc() + channel.getGuild().getId());
+                ComponentRegistry.remove(voteMessage.getIdLong());
                 channel.deleteMessageById(voteMessage.getId()).queue();
             }
 
@@ -71,29 +78,73 @@ public class VoteUtil {
     }
 
     public static VoteGroup getVoteGroup(UUID uuid, Guild guild) {
-        return groupMap.get(uuid + guild.getId());
+        ActiveVote vote = getVote(uuid, guild.getIdLong());
+        return vote == null ? null : vote.group;
     }
 
     public static boolean contains(UUID uuid, Guild guild) {
-        return groupMap.containsKey(uuid + guild.getId());
+        return getVote(uuid, guild.getIdLong()) != null;
     }
 
     public static void remove(UUID uuid, Guild guild) {
-        VoteGroup group = groupMap.get(uuid + guild.getId());
-        if (group == null) return;
-        long message = group.getMessageId();
-        groupMap.remove(uuid + guild.getId());
-        Scheduler.cancelTask("Vote-" + message);
-        group.getVoteMessage().getChannel().deleteMessageById(group.getMessageId()).queue();
+        ActiveVote vote = getVote(uuid, guild.getIdLong());
+        if (vote == null || !removeVote(uuid, guild.getIdLong(), vote)) return;
+        cleanUp(vote.group);
     }
 
     public static void finishNow(UUID uuid, Guild guild) {
-        VoteGroup group = groupMap.get(uuid + guild.getId());
-        String message = group.getVoteMessage().getId();
-        groupMap.remove(uuid + guild.getId());
-        runnableMap.get(uuid + guild.getId()).run(group.won());
-        runnableMap.remove(uuid + guild.getId());
-        Scheduler.cancelTask("Votes-" + message);
-        group.getVoteMessage().getChannel().deleteMessageById(group.getVoteMessage().getId()).queue();
+        ActiveVote vote = getVote(uuid, guild.getIdLong());
+        if (vote == null || !removeVote(uuid, guild.getIdLong(), vote)) return;
+        vote.runnable.run(vote.group.won());
+        cleanUp(vote.group);
+    }
+
+    /**
+     * @return The amount of votes currently running.
+     */
+    public static int size() {
+        int size = 0;
+        for (Map<UUID, ActiveVote> guildVotes : votes.values())
+            size += guildVotes.size();
+        return size;
+    }
+
+    private static ActiveVote getVote(UUID uuid, long guildId) {
+        Map<UUID, ActiveVote> guildVotes = votes.get(guildId);
+        return guildVotes == null ? null : guildVotes.get(uuid);
+    }
+
+    /**
+     * @return False if the vote has already been removed, only one caller gets to finish a vote.
+     */
+    private static boolean removeVote(UUID uuid, long guildId, ActiveVote vote) {
+        boolean[] removed = new boolean[1];
+        // Done inside of compute so a vote can't be added to the map of a guild while it is being dropped.
+        votes.computeIfPresent(guildId, (g, guildVotes) -> {
+            removed[0] = guildVotes.remove(uuid, vote);
+            return guildVotes.isEmpty() ? null : guildVotes;
+        });
+        return removed[0];
+    }
+
+    private static void cleanUp(VoteGroup group) {
+        Scheduler.cancelTask(getTaskName(group.getMessageId()));
+        ComponentRegistry.remove(group.getMessageId());
+        group.getVoteMessage().getChannel().deleteMessageById(group.getMessageId()).queue();
+    }
+
+    private static String getTaskName(long messageId) {
+        return "Vote-" + messageId;
+    }
+
+    private static class ActiveVote {
+
+        private final VoteGroup group;
+        private final VoteGroup.VoteRunnable runnable;
+
+        ActiveVote(VoteGroup group, VoteGroup.VoteRunnable runnable) {
+            this.group = group;
+            this.runnable = runnable;
+        }
     }
 }
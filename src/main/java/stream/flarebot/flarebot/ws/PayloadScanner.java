@@ -0,0 +1,84 @@
+package stream.flarebot.flarebot.ws;
+
+/**
+ * Reads single numbers out of a JSON payload without parsing it.
+ *
+ * Discord payloads are small objects with a handful of top level keys so finding a key is a scan for its quoted name
+ * followed by a colon. A key can't be matched inside of a string value as the quotes around it would be escaped.
+ */
+public final class PayloadScanner {
+
+    private static final byte[] OP = key("op");
+    private static final byte[] SHARD = key("shard");
+    private static final byte[] SERVER_ID = key("server_id");
+
+    private PayloadScanner() {
+    }
+
+    /**
+     * @return The op code of the payload or -1 if it doesn't have one.
+     */
+    public static int readOpCode(byte[] payload) {
+        return (int) readNumber(payload, OP);
+    }
+
+    /**
+     * Read the shard ID out of a gateway identify, {@code "shard":[id, total]}.
+     *
+     * @return The shard ID or -1 if the payload doesn't have one.
+     */
+    public static int readShardId(byte[] payload) {
+        return (int) readNumber(payload, SHARD);
+    }
+
+    /**
+     * Read the guild ID out of a voice identify, this is sent as a string.
+     *
+     * @return The guild ID or -1 if the payload doesn't have one.
+     */
+    public static long readServerId(byte[] payload) {
+        return readNumber(payload, SERVER_ID);
+    }
+
+    /**
+     * Find a key and read the first number after it, skipping whitespace, quotes and an opening bracket.
+     */
+    private static long readNumber(byte[] payload, byte[] key) {
+        if (payload == null) return -1;
+        int i = indexOf(payload, key);
+        if (i == -1) return -1;
+        int length = payload.length;
+        while (i < length && (payload[i] == ' ' || payload[i] == '"' || payload[i] == '[')) i++;
+        if (i == length || payload[i] < '0' || payload[i] > '9') return -1;
+        long value = 0;
+        while (i < length && payload[i] >= '0' && payload[i] <= '9') {
+            value = value * 10 + (payload[i] - '0');
+            i++;
+        }
+        return value;
+    }
+
+    /**
+     * @return The index just after the key or -1 if it isn't in the payload.
+     */
+    private static int indexOf(byte[] payload, byte[] key) {
+        outer:
+        for (int i = 0, last = payload.length - key.length; i <= last; i++) {
+            for (int j = 0; j < key.length; j++) {
+                if (payload[i + j] != key[j]) continue outer;
+            }
+            return i + key.length;
+        }
+        return -1;
+    }
+
+    private static byte[] key(String name) {
+        byte[] key = new byte[name.length() + 3];
+        key[0] = '"';
+        for (int i = 0; i < name.length(); i++)
+            key[i + 1] = (byte) name.charAt(i);
+        key[key.length - 2] = '"';
+        key[key.length - 1] = ':';
+        return key;
+    }
+}
@@ -0,0 +1,107 @@
+package stream.flarebot.flarebot.ws;
+
+import com.neovisionaries.ws.client.WebSocket;
+import io.prometheus.client.Counter;
+import stream.flarebot.flarebot.Getters;
+import stream.flarebot.flarebot.metrics.Metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The frame counts of a single socket.
+ *
+ * The type of a socket comes from its URI, the gateway is always on the {@code gateway.} host and anything else is a
+ * voice server. The shard is only known once the socket identifies, a gateway identify says which shard it is and a
+ * voice identify has the guild which the shard can be worked out from. Until then the frames are counted under the
+ * {@link #UNKNOWN} shard.
+ *
+ * Discord lets a gateway connection send {@link #GATEWAY_SEND_LIMIT} payloads every minute, the headroom left in the
+ * current minute is kept for the shard.
+ */
+class SocketStats {
+
+    static final String UNKNOWN = "unknown";
+
+    private static final int GATEWAY_SEND_LIMIT = 120;
+    private static final long GATEWAY_SEND_WINDOW = TimeUnit.MINUTES.toMillis(1);
+
+    private final String type;
+
+    private volatile String shard = UNKNOWN;
+    private volatile Counter.Child sentBytes;
+    private volatile Counter.Child sentFrames;
+    private volatile Counter.Child receivedBytes;
+    private volatile Counter.Child receivedFrames;
+
+    // Guarded by this.
+    private long windowStart;
+    private int windowSends;
+
+    SocketStats(WebSocket socket) {
+        String host = socket.getURI().getHost();
+        this.type = host != null && host.startsWith("gateway.") ? "web" : "voice";
+        this.windowStart = System.currentTimeMillis();
+        bind();
+    }
+
+    String getType() {
+        return type;
+    }
+
+    boolean isVoice() {
+        return type.equals("voice");
+    }
+
+    String getShard() {
+        return shard;
+    }
+
+    boolean isIdentified() {
+        return !UNKNOWN.equals(shard);
+    }
+
+    void setShard(int shardId) {
+        this.shard = String.valueOf(shardId);
+        bind();
+    }
+
+    /**
+     * Work out the shard of a voice socket from the guild it identified for.
+     */
+    void setShardFromGuild(long guildId) {
+        if (Getters.getShardManager() == null) return;
+        int total = Getters.getShardManager().getShardsTotal();
+        if (total > 0)
+            setShard((int) ((guildId >> 22) % total));
+    }
+
+    void onSent(int length) {
+        sentBytes.inc(length);
+        sentFrames.inc();
+        if (isVoice()) return;
+
+        long now = System.currentTimeMillis();
+        int headroom;
+        synchronized (this) {
+            if (now - windowStart >= GATEWAY_SEND_WINDOW) {
+                windowStart = now;
+                windowSends = 0;
+            }
+            headroom = GATEWAY_SEND_LIMIT - ++windowSends;
+        }
+        Metrics.gatewayRateLimitHeadroom.labels(shard).set(headroom);
+    }
+
+    void onReceived(int length) {
+        receivedBytes.inc(length);
+        receivedFrames.inc();
+    }
+
+    // The children are looked up once per shard rather than on every frame.
+    private void bind() {
+        sentBytes = Metrics.websocketBytes.labels(shard, type, "sent");
+        sentFrames = Metrics.websocketFrames.labels(shard, type, "sent");
+        receivedBytes = Metrics.websocketBytes.labels(shard, type, "received");
+        receivedFrames = Metrics.websocketFrames.labels(shard, type, "received");
+    }
+}
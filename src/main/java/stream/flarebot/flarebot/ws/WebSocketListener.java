@@ -5,20 +5,33 @@ import com.neovisionaries.ws.client.WebSocket;
 import com.neovisionaries.ws.client.WebSocketException;
 import com.neovisionaries.ws.client.WebSocketFrame;
 import com.neovisionaries.ws.client.WebSocketState;
-import org.json.JSONObject;
 import stream.flarebot.flarebot.metrics.Metrics;
 
 import java.util.List;
 import java.util.Map;
-
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Counts the frames and bytes sent and received by every socket, one listener is shared by all of the sockets.
+ *
+ * The op code of a sent frame is found by {@link PayloadScanner} rather than parsing the payload. A gateway resume
+ * doesn't say which shard it is, it is given the shard whose socket disconnected the longest ago and hasn't come back
+ * yet which is the order the shards reconnect in.
+ */
 public class WebSocketListener implements com.neovisionaries.ws.client.WebSocketListener {
 
+    private final Map<WebSocket, SocketStats> sockets = new ConcurrentHashMap<>();
+    private final Queue<String> awaitingResume = new ConcurrentLinkedQueue<>();
+
     @Override
     public void onStateChanged(WebSocket webSocket, WebSocketState webSocketState) throws Exception {
     }
 
     @Override
     public void onConnected(WebSocket webSocket, Map<String, List<String>> map) throws Exception {
+        sockets.put(webSocket, new SocketStats(webSocket));
     }
 
     @Override
@@ -27,10 +40,16 @@ public class WebSocketListener implements com.neovisionaries.ws.client.WebSocket
 
     @Override
     public void onDisconnected(WebSocket webSocket, WebSocketFrame webSocketFrame, WebSocketFrame webSocketFrame1, boolean b) throws Exception {
+        SocketStats stats = sockets.remove(webSocket);
+        if (stats != null && !stats.isVoice() && stats.isIdentified())
+            awaitingResume.add(stats.getShard());
     }
 
     @Override
     public void onFrame(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
+        SocketStats stats = sockets.get(webSocket);
+        if (stats != null)
+            stats.onReceived(webSocketFrame.getPayloadLength());
     }
 
     @Override
@@ -71,18 +90,44 @@ public class WebSocketListener implements com.neovisionaries.ws.client.WebSocket
 
     @Override
     public void onFrameSent(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
-        int opCode = new JSONObject(webSocketFrame.getPayloadText()).getInt("op");
-        String type = Thread.currentThread().getName().contains("AudioWS") ? "voice" : "web";
-        String name = type.equals("voice") ?
-                WebSocketCodes.AudioCodes.AUDIO_SOCKET_CODES.get(opCode).name() :
-                WebSocketCodes.WEB_SOCKET_CODES.get(opCode).name();
+        SocketStats stats = sockets.get(webSocket);
+        if (stats == null) return;
+        stats.onSent(webSocketFrame.getPayloadLength());
+        if (!webSocketFrame.isTextFrame()) return;
+
+        byte[] payload = webSocketFrame.getPayload();
+        int opCode = PayloadScanner.readOpCode(payload);
+        if (opCode == -1) return;
+        Enum<?> code = stats.isVoice() ?
+                WebSocketCodes.AudioCodes.AUDIO_SOCKET_CODES.get(opCode) :
+                WebSocketCodes.WEB_SOCKET_CODES.get(opCode);
+        if (!stats.isIdentified())
+            identify(stats, code, payload);
         Metrics.websocketEvents.labels(
                 String.valueOf(opCode),
-                name,
-                type
+                code == null ? SocketStats.UNKNOWN : code.name(),
+                stats.getType()
         ).inc();
     }
 
+    private void identify(SocketStats stats, Enum<?> code, byte[] payload) {
+        if (code == WebSocketCodes.IDENTIFY) {
+            int shard = PayloadScanner.readShardId(payload);
+            if (shard != -1) {
+                awaitingResume.remove(String.valueOf(shard));
+                stats.setShard(shard);
+            }
+        } else if (code == WebSocketCodes.RESUME) {
+            String shard = awaitingResume.poll();
+            if (shard != null)
+                stats.setShard(Integer.parseInt(shard));
+        } else if (code == WebSocketCodes.AudioCodes.IDENTIFY || code == WebSocketCodes.AudioCodes.RESUME) {
+            long guildId = PayloadScanner.readServerId(payload);
+            if (guildId != -1)
+                stats.setShardFromGuild(guildId);
+        }
+    }
+
     @Override
     public void onFrameUnsent(WebSocket webSocket, WebSocketFrame webSocketFrame) throws Exception {
     }
@@ -0,0 +1,132 @@
+package stream.flarebot.flarebot.commands;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpamDetectorTest {
+
+    private static final long WINDOW = 3000;
+    private static final int LIMIT = 5;
+    private static final long KEY = 1;
+
+    private final AtomicLong time = new AtomicLong();
+    private SpamDetector detector;
+
+    @Before
+    public void setUp() {
+        time.set(TimeUnit.HOURS.toNanos(1));
+        detector = new SpamDetector(WINDOW, time::get);
+    }
+
+    private void advance(long millis) {
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private boolean acquire() {
+        return detector.tryAcquire(KEY, () -> LIMIT);
+    }
+
+    // Sends a message every interval for the duration and returns how many got through.
+    private int send(long interval, long duration) {
+        int accepted = 0;
+        for (long sent = 0; sent < duration; sent += interval) {
+            if (acquire()) accepted++;
+            advance(interval);
+        }
+        return accepted;
+    }
+
+    @Test
+    public void testBurstAtLimit() {
+        for (int i = 0; i < LIMIT; i++)
+            assertTrue("Message " + i + " should be let through", acquire());
+        assertFalse(acquire());
+        assertFalse(acquire());
+    }
+
+    @Test
+    public void testSmoothRefill() {
+        long interval = WINDOW / LIMIT;
+        for (int i = 0; i < LIMIT; i++)
+            acquire();
+        assertFalse(acquire());
+
+        // A token comes back every interval rather than all of them at the end of the window.
+        advance(interval - 1);
+        assertFalse(acquire());
+        advance(1);
+        assertTrue(acquire());
+        assertFalse(acquire());
+
+        advance(interval * 2);
+        assertTrue(acquire());
+        assertTrue(acquire());
+        assertFalse(acquire());
+    }
+
+    @Test
+    public void testBurstStraddlingWindowEdge() {
+        // A burst at the end of one window and another at the start of the next, a fixed window would let both through.
+        advance(WINDOW - 100);
+        for (int i = 0; i < LIMIT; i++)
+            assertTrue(acquire());
+        advance(200);
+        assertFalse(acquire());
+    }
+
+    @Test
+    public void testSyntheticRates() {
+        // Under the limit everything gets through.
+        assertEquals(30, send(1000, TimeUnit.SECONDS.toMillis(30)));
+
+        // Well over the limit only the burst and then the refill rate gets through.
+        advance(WINDOW);
+        int accepted = send(100, TimeUnit.SECONDS.toMillis(30));
+        int expected = LIMIT + (int) (TimeUnit.SECONDS.toMillis(30) / (WINDOW / LIMIT));
+        assertTrue("Accepted " + accepted + ", expected about " + expected, Math.abs(accepted - expected) <= 1);
+    }
+
+    @Test
+    public void testKeysAreSeparate() {
+        for (int i = 0; i < LIMIT; i++)
+            acquire();
+        assertFalse(acquire());
+        assertTrue(detector.tryAcquire(KEY + 1, () -> LIMIT));
+    }
+
+    @Test
+    public void testInvalidateRereadsLimit() {
+        AtomicInteger limit = new AtomicInteger(LIMIT);
+        AtomicInteger reads = new AtomicInteger();
+        IntSupplier supplier = () -> {
+            reads.incrementAndGet();
+            return limit.get();
+        };
+
+        for (int i = 0; i < LIMIT; i++)
+            assertTrue(detector.tryAcquire(KEY, supplier));
+        assertEquals(1, reads.get());
+
+        // The limit is kept until it's invalidated.
+        limit.set(1);
+        advance(WINDOW);
+        assertTrue(detector.tryAcquire(KEY, supplier));
+        assertTrue(detector.tryAcquire(KEY, supplier));
+        assertEquals(1, reads.get());
+
+        detector.invalidate(KEY);
+        advance(WINDOW);
+        assertTrue(detector.tryAcquire(KEY, supplier));
+        assertFalse(detector.tryAcquire(KEY, supplier));
+        assertEquals(2, reads.get());
+    }
+}
@@ -0,0 +1,246 @@
+package stream.flarebot.flarebot.mod.modlog;
+
+import net.dv8tion.jda.core.EmbedBuilder;
+import net.dv8tion.jda.core.entities.Message;
+import net.dv8tion.jda.core.entities.MessageEmbed;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ModlogDeliveryTest {
+
+    private static final long WINDOW = 50;
+    private static final long GUILD = 1;
+    private static final long CHANNEL = 10;
+
+    private final RecordingSink sink = new RecordingSink();
+
+    private static String repeat(char c, int times) {
+        char[] chars = new char[times];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    private static MessageEmbed embed(String title, String description) {
+        return new EmbedBuilder().setTitle(title).setDescription(description).build();
+    }
+
+    @Test
+    public void testTextMerged() throws InterruptedException {
+        ModlogDelivery delivery = new ModlogDelivery(sink, WINDOW);
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, "one");
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, "two");
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, "three");
+
+        assertEquals("one\ntwo\nthree", sink.next().getContentRaw());
+        assertNull(sink.poll(WINDOW * 4));
+    }
+
+    @Test
+    public void testTextSplitAtMaxLength() throws InterruptedException {
+        ModlogDelivery delivery = new ModlogDelivery(sink, WINDOW);
+        String a = repeat('a', 900);
+        String b = repeat('b', 900);
+        String c = repeat('c', 900);
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, a);
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, b);
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, c);
+
+        String first = sink.next().getContentRaw();
+        assertEquals(a + "\n" + b, first);
+        assertTrue(first.length() <= Message.MAX_CONTENT_LENGTH);
+        assertEquals(c, sink.next().getContentRaw());
+    }
+
+    @Test
+    public void testSingleEmbedSentAsIs() throws InterruptedException {
+        ModlogDelivery delivery = new ModlogDelivery(sink, WINDOW);
+        MessageEmbed embed = embed("Event", "Something happened");
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, embed);
+
+        assertSame(embed, sink.next().getEmbeds().get(0));
+    }
+
+    @Test
+    public void testDigestFieldLimit() throws InterruptedException {
+        ModlogDelivery delivery = new ModlogDelivery(sink, WINDOW);
+        for (int i = 0; i < 30; i++)
+            delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, embed("Event " + i, "Something happened"));
+
+        MessageEmbed first = sink.next().getEmbeds().get(0);
+        assertEquals(25, first.getFields().size());
+        assertEquals("Event 0", first.getFields().get(0).getName());
+        assertEquals("Something happened", first.getFields().get(0).getValue());
+        assertEquals("25 events", first.getFooter().getText());
+
+        MessageEmbed second = sink.next().getEmbeds().get(0);
+        assertEquals(5, second.getFields().size());
+        assertEquals("Event 25", second.getFields().get(0).getName());
+    }
+
+    @Test
+    public void testDigestLengthLimit() throws InterruptedException {
+        ModlogDelivery delivery = new ModlogDelivery(sink, WINDOW);
+        // Longer than a field can hold, each is cut down to the most a field can hold.
+        for (int i = 0; i < 6; i++)
+            delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, embed("Event " + i, repeat('x', 1500)));
+
+        int fields = 0;
+        while (fields < 6) {
+            MessageEmbed digest = sink.next().getEmbeds().get(0);
+            int length = 0;
+            for (MessageEmbed.Field field : digest.getFields()) {
+                assertTrue(field.getValue().length() <= MessageEmbed.VALUE_MAX_LENGTH);
+                assertTrue(field.getValue().endsWith("..."));
+                length += field.getName().length() + field.getValue().length();
+            }
+            assertTrue("Digest was " + length + " characters", length <= 5000);
+            assertTrue(digest.getFields().size() < 6);
+            fields += digest.getFields().size();
+        }
+        assertEquals(6, fields);
+    }
+
+    @Test
+    public void testPrioritySkipsWindow() throws InterruptedException {
+        ModlogDelivery delivery = new ModlogDelivery(sink, TimeUnit.SECONDS.toMillis(10));
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, embed("Joined", "Someone joined"));
+        delivery.post(GUILD, CHANNEL, ModlogEvent.USER_BANNED, "banned");
+
+        assertEquals("banned", sink.next().getContentRaw());
+        // The other entry still waits for the window.
+        assertNull(sink.poll(500));
+    }
+
+    @Test
+    public void testPriorityJumpsAhead() throws InterruptedException {
+        sink.hold();
+        ModlogDelivery delivery = new ModlogDelivery(sink, WINDOW);
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, "first");
+        assertEquals("first", sink.next().getContentRaw());
+
+        // Waiting behind the message being sent.
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, embed("Joined", "Someone joined"));
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_LEAVE, embed("Left", "Someone left"));
+        delivery.post(GUILD, CHANNEL, ModlogEvent.USER_KICKED, "kicked");
+        sink.release();
+
+        assertEquals("kicked", sink.next().getContentRaw());
+        assertEquals(2, sink.next().getEmbeds().get(0).getFields().size());
+    }
+
+    @Test
+    public void testBacklogDropsOldest() throws InterruptedException {
+        sink.hold();
+        ModlogDelivery delivery = new ModlogDelivery(sink, WINDOW);
+        delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, "first");
+        assertEquals("first", sink.next().getContentRaw());
+
+        for (int i = 0; i < 1100; i++)
+            delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, "entry " + i);
+        assertEquals(1000, delivery.getTopBacklog(1).get(0)[1]);
+        sink.release();
+
+        List<String> lines = new ArrayList<>();
+        while (lines.size() < 1000)
+            lines.addAll(Arrays.asList(sink.next().getContentRaw().split("\n")));
+        assertEquals(1000, lines.size());
+        assertEquals("entry 100", lines.get(0));
+        assertEquals("entry 1099", lines.get(999));
+        assertNull(sink.poll(WINDOW * 4));
+        assertTrue(delivery.getTopBacklog(1).isEmpty());
+    }
+
+    @Test
+    public void testOneSendInFlightPerChannel() throws InterruptedException {
+        ScheduledExecutorService completer = Executors.newSingleThreadScheduledExecutor();
+        Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+        Map<Long, AtomicInteger> mostInFlight = new ConcurrentHashMap<>();
+        AtomicInteger sent = new AtomicInteger();
+        ModlogDelivery delivery = new ModlogDelivery((channelId, message, done) -> {
+            int current = inFlight.computeIfAbsent(channelId, id -> new AtomicInteger()).incrementAndGet();
+            mostInFlight.computeIfAbsent(channelId, id -> new AtomicInteger()).accumulateAndGet(current, Math::max);
+            // A slow channel, more entries come in while this is being sent.
+            completer.schedule(() -> {
+                inFlight.get(channelId).decrementAndGet();
+                sent.addAndGet(message.getContentRaw().split("\n").length);
+                done.run();
+            }, WINDOW * 2, TimeUnit.MILLISECONDS);
+        }, WINDOW);
+
+        for (int i = 0; i < 100; i++) {
+            delivery.post(GUILD, CHANNEL, ModlogEvent.MEMBER_JOIN, "entry " + i);
+            delivery.post(GUILD, CHANNEL + 1, ModlogEvent.USER_BANNED, "ban " + i);
+            Thread.sleep(5);
+        }
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (sent.get() < 200 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        completer.shutdown();
+
+        assertEquals(200, sent.get());
+        assertEquals(1, mostInFlight.get(CHANNEL).get());
+        assertEquals(1, mostInFlight.get(CHANNEL + 1).get());
+    }
+
+    /**
+     * Records what is sent, a send is finished straight away unless the sink is held.
+     */
+    private static class RecordingSink implements ModlogDelivery.Sink {
+
+        private final BlockingQueue<Message> messages = new LinkedBlockingQueue<>();
+        private final List<Runnable> waiting = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean held;
+
+        @Override
+        public void send(long channelId, Message message, Runnable done) {
+            messages.add(message);
+            if (held)
+                waiting.add(done);
+            else
+                done.run();
+        }
+
+        void hold() {
+            held = true;
+        }
+
+        void release() {
+            held = false;
+            List<Runnable> finished;
+            synchronized (waiting) {
+                finished = new ArrayList<>(waiting);
+                waiting.clear();
+            }
+            for (Runnable done : finished)
+                done.run();
+        }
+
+        Message next() throws InterruptedException {
+            Message message = poll(TimeUnit.SECONDS.toMillis(5));
+            assertNotNull("Nothing was sent", message);
+            return message;
+        }
+
+        Message poll(long millis) throws InterruptedException {
+            return messages.poll(millis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package stream.flarebot.flarebot.mod.nino;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RedirectResolverTest {
+
+    // The same as URLChecker uses.
+    private static final int MAX_PER_HOST = 2;
+    private static final long TIMEOUT = 3000;
+    private static final long DEADLINE = 5000;
+
+    private MockWebServer server;
+    private RedirectResolver resolver;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        resolver = new RedirectResolver(RedirectResolver.createClient(new OkHttpClient(), MAX_PER_HOST, TIMEOUT),
+                url -> false, 10, DEADLINE, TimeUnit.HOURS.toMillis(1));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void testRedirectChain() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(301).setHeader("Location", "/b"));
+        server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", server.url("/c").toString()));
+        server.enqueue(new MockResponse().setBody("end"));
+
+        RedirectResolver.Resolution resolution = resolver.resolve(server.url("/a").toString()).get(10, TimeUnit.SECONDS);
+        assertTrue(resolution.isComplete());
+        assertEquals(Arrays.asList(server.url("/b").toString(), server.url("/c").toString()), resolution.getHops());
+        assertEquals(3, server.getRequestCount());
+
+        // Cached, nothing else is requested.
+        assertSame(resolution, resolver.resolve(server.url("/a").toString()).get(10, TimeUnit.SECONDS));
+        assertEquals(3, server.getRequestCount());
+    }
+
+    @Test
+    public void testRedirectLoop() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/b"));
+        server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/a"));
+
+        RedirectResolver.Resolution resolution = resolver.resolve(server.url("/a").toString()).get(10, TimeUnit.SECONDS);
+        assertTrue(resolution.isComplete());
+        assertEquals(Arrays.asList(server.url("/b").toString()), resolution.getHops());
+        assertEquals(2, server.getRequestCount());
+    }
+
+    @Test
+    public void testInFlightShared() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                release.await(10, TimeUnit.SECONDS);
+                return new MockResponse().setBody("end");
+            }
+        });
+
+        String url = server.url("/a").toString();
+        CompletableFuture<RedirectResolver.Resolution> first = resolver.resolve(url);
+        CompletableFuture<RedirectResolver.Resolution> second = resolver.resolve(url);
+        assertSame(first, second);
+        release.countDown();
+
+        assertTrue(first.get(10, TimeUnit.SECONDS).isComplete());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void testPerHostLimit() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger mostActive = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                mostActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } finally {
+                    active.decrementAndGet();
+                }
+                return new MockResponse().setBody("end");
+            }
+        });
+
+        List<CompletableFuture<RedirectResolver.Resolution>> futures = new ArrayList<>();
+        for (int i = 0; i < 6; i++)
+            futures.add(resolver.resolve(server.url("/" + i).toString()));
+
+        // Give the queued requests a chance to go over the limit.
+        Thread.sleep(500);
+        assertEquals(MAX_PER_HOST, server.getRequestCount());
+        release.countDown();
+
+        for (CompletableFuture<RedirectResolver.Resolution> future : futures)
+            assertTrue(future.get(10, TimeUnit.SECONDS).isComplete());
+        assertEquals(6, server.getRequestCount());
+        assertEquals(MAX_PER_HOST, mostActive.get());
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        // Every hop redirects to the next one and takes most of the timeout, only the deadline can stop this.
+        AtomicInteger hop = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                Thread.sleep(TIMEOUT * 2 / 3);
+                return new MockResponse().setResponseCode(302).setHeader("Location", "/" + hop.incrementAndGet());
+            }
+        });
+
+        long start = System.nanoTime();
+        RedirectResolver.Resolution resolution = resolver.resolve(server.url("/0").toString())
+                .get(DEADLINE * 2, TimeUnit.MILLISECONDS);
+        long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertFalse(resolution.isComplete());
+        assertTrue("Took " + took + "ms", took >= DEADLINE && took < DEADLINE + TIMEOUT);
+        // The hops found before the deadline are kept.
+        assertEquals(Arrays.asList(server.url("/1").toString(), server.url("/2").toString()), resolution.getHops());
+    }
+}
@@ -0,0 +1,210 @@
+package stream.flarebot.flarebot.music;
+
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioItem;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.junit.After;
+import org.junit.Test;
+import stream.flarebot.flarebot.music.extractors.YouTubeExtractor;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PlaylistResolverTest {
+
+    private final StubSource source = new StubSource();
+
+    @After
+    public void tearDown() {
+        // Don't leave anything blocking the shared pool.
+        source.releaseAll();
+    }
+
+    @Test
+    public void testOrderKeptWhenLoadsFinishOutOfOrder() throws Exception {
+        List<String> ids = Arrays.asList("order-1", "order-2", "order-3", "order-4", "order-5", "order-6");
+        for (String id : ids)
+            source.hold(id);
+        List<List<String>> received = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Integer> result = resolveAsync(ids, received);
+
+        // Everything after the first video is ready, nothing can be given out until the first one is.
+        source.awaitStarted(4);
+        source.release("order-4");
+        source.release("order-3");
+        source.release("order-2");
+        Thread.sleep(200);
+        assertTrue(received.isEmpty());
+
+        source.release("order-1");
+        source.release("order-6");
+        source.release("order-5");
+        assertEquals(6, (int) result.get(10, TimeUnit.SECONDS));
+        assertEquals(ids, flatten(received));
+    }
+
+    @Test
+    public void testUnavailableSkipped() throws Exception {
+        source.notFound("gone-1");
+        source.fail("gone-2", FriendlyException.Severity.COMMON);
+        source.fail("flaky-1", FriendlyException.Severity.SUSPICIOUS);
+        List<String> ids = Arrays.asList("gone-1", "ok-1", "gone-2", "flaky-1", "ok-2");
+
+        List<List<String>> received = Collections.synchronizedList(new ArrayList<>());
+        assertEquals(2, (int) resolveAsync(ids, received).get(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("ok-1", "ok-2"), flatten(received));
+
+        // Videos which don't exist are remembered, a video which failed for another reason is tried again.
+        resolveAsync(ids, Collections.synchronizedList(new ArrayList<>())).get(10, TimeUnit.SECONDS);
+        assertEquals(1, source.loads("gone-1"));
+        assertEquals(1, source.loads("gone-2"));
+        assertEquals(2, source.loads("flaky-1"));
+        assertEquals(2, source.loads("ok-1"));
+    }
+
+    @Test
+    public void testInterruptCancelsWindow() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add("interrupt-" + i);
+            source.hold("interrupt-" + i);
+        }
+        List<List<String>> received = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Throwable> thrown = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                PlaylistResolver.resolve(source, ids, tracks -> received.add(identifiers(tracks)));
+                thrown.complete(null);
+            } catch (Throwable t) {
+                thrown.complete(t);
+            }
+        });
+        thread.start();
+
+        source.awaitStarted(4);
+        thread.interrupt();
+        assertTrue(thrown.get(10, TimeUnit.SECONDS) instanceof InterruptedException);
+
+        // Nothing past the window is loaded and nothing in it is handed out once it finishes.
+        source.releaseAll();
+        Thread.sleep(200);
+        assertEquals(4, source.started.get());
+        assertTrue(received.isEmpty());
+    }
+
+    private CompletableFuture<Integer> resolveAsync(List<String> ids, List<List<String>> received) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        new Thread(() -> {
+            try {
+                result.complete(PlaylistResolver.resolve(source, ids, tracks -> received.add(identifiers(tracks))));
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }).start();
+        return result;
+    }
+
+    private static List<String> identifiers(List<AudioTrack> tracks) {
+        List<String> ids = new ArrayList<>(tracks.size());
+        for (AudioTrack track : tracks)
+            ids.add(track.getIdentifier());
+        return ids;
+    }
+
+    private static List<String> flatten(List<List<String>> batches) {
+        List<String> all = new ArrayList<>();
+        for (List<String> batch : batches)
+            all.addAll(batch);
+        return all;
+    }
+
+    private static AudioTrack track(String id) {
+        return (AudioTrack) Proxy.newProxyInstance(AudioTrack.class.getClassLoader(), new Class[]{AudioTrack.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getIdentifier":
+                        case "toString":
+                            return id;
+                        case "makeClone":
+                            return proxy;
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Stands in for the YouTube source manager, a video loads straight away unless it is held.
+     */
+    private static class StubSource implements PlaylistResolver.Loader {
+
+        private final Map<String, CountDownLatch> held = new ConcurrentHashMap<>();
+        private final Map<String, Object> outcomes = new ConcurrentHashMap<>();
+        private final Map<String, AtomicInteger> loads = new ConcurrentHashMap<>();
+        private final AtomicInteger started = new AtomicInteger();
+
+        void hold(String id) {
+            held.put(id, new CountDownLatch(1));
+        }
+
+        void release(String id) {
+            held.get(id).countDown();
+        }
+
+        void releaseAll() {
+            for (CountDownLatch latch : held.values())
+                latch.countDown();
+        }
+
+        void notFound(String id) {
+            outcomes.put(id, Boolean.FALSE);
+        }
+
+        void fail(String id, FriendlyException.Severity severity) {
+            outcomes.put(id, new FriendlyException("Stub failure", severity, null));
+        }
+
+        int loads(String id) {
+            AtomicInteger count = loads.get(id);
+            return count == null ? 0 : count.get();
+        }
+
+        void awaitStarted(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (started.get() < count && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(count, started.get());
+        }
+
+        @Override
+        public AudioItem load(String input) throws InterruptedException {
+            String id = input.substring(YouTubeExtractor.WATCH_URL.length());
+            started.incrementAndGet();
+            loads.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+            CountDownLatch latch = held.get(id);
+            if (latch != null)
+                latch.await(10, TimeUnit.SECONDS);
+
+            Object outcome = outcomes.get(id);
+            if (outcome instanceof FriendlyException)
+                throw (FriendlyException) outcome;
+            return outcome == Boolean.FALSE ? null : track(id);
+        }
+    }
+}